@@ -0,0 +1,284 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math;
+
+import com.jme3.math.FastMath;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Two-dimensional Perlin noise generator optimized for bulk sampling.
+ * <p>
+ * Produces the same values as a {@link Perlin2} constructed with the same
+ * arguments, but the period must be a power of two. The permutation is stored
+ * twice over in a flat table so hashing needs only bit masks, and the
+ * gradients are pre-hashed into flat coordinate arrays. Use
+ * {@link #sampleGrid(float[], float, float, float, float, int, int)} to fill
+ * whole rows at a time.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class FastPerlin2
+        implements Noise2 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(FastPerlin2.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * 1st coordinate of the gradient for each hashed index, indexed by
+     * (gridX &amp; mask) + hashes[gridY &amp; mask]: set by constructor
+     */
+    final private float[] gradientXs;
+    /**
+     * 2nd coordinate of the gradient for each hashed index: set by constructor
+     */
+    final private float[] gradientYs;
+    /**
+     * permutation for hashing, stored twice over (length=2*period): set by
+     * constructor
+     */
+    final private int[] hashes;
+    /**
+     * period minus one, for wrapping grid coordinates: set by constructor
+     */
+    final private int mask;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a generator with specified parameters.
+     *
+     * @param period coordinate value at which the function repeats itself
+     * (&ge;numGradients, a power of two)
+     * @param numGradients number of distinct gradients (&ge;2)
+     * @param gSeed seed for generating gradients
+     * @param pSeed seed for generating the permutation
+     */
+    public FastPerlin2(int period, int numGradients, long gSeed, long pSeed) {
+        if (period < numGradients) {
+            logger.log(Level.SEVERE, "period={0}, numGradients={1}",
+                    new Object[]{period, numGradients});
+            String message =
+                    String.format("period shouldn't be less than numGradients");
+            throw new IllegalArgumentException(message);
+        }
+        if (numGradients < 2) {
+            logger.log(Level.SEVERE, "numGradients={0}", numGradients);
+            String message =
+                    String.format("numGradients should be greater than 1");
+            throw new IllegalArgumentException(message);
+        }
+        if ((period & (period - 1)) != 0) {
+            logger.log(Level.SEVERE, "period={0}", period);
+            String message =
+                    String.format("period should be a power of two");
+            throw new IllegalArgumentException(message);
+        }
+        /*
+         * Generate the same gradients and permutation as Perlin2.
+         */
+        float[] xs = new float[numGradients];
+        float[] ys = new float[numGradients];
+        Random thetaGenerator = new Random(gSeed);
+        for (int index = 0; index < numGradients; index++) {
+            float theta = thetaGenerator.nextFloat() * FastMath.TWO_PI;
+            xs[index] = FastMath.cos(theta);
+            ys[index] = FastMath.sin(theta);
+        }
+        Permutation permutation = new Permutation(period, pSeed);
+        /*
+         * Double the permutation so that (gridX & mask) + hashes[gridY & mask]
+         * never needs wrapping, and pre-hash the gradients to match.
+         */
+        mask = period - 1;
+        int tableLength = 2 * period;
+        hashes = new int[tableLength];
+        gradientXs = new float[tableLength];
+        gradientYs = new float[tableLength];
+        for (int index = 0; index < tableLength; index++) {
+            int hash = permutation.permute(index);
+            hashes[index] = hash;
+            int gradientIndex = hash % numGradients;
+            gradientXs[index] = xs[gradientIndex];
+            gradientYs[index] = ys[gradientIndex];
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Sample the noise function on a regular rectangular grid of points. The
+     * sample at (x0 + column*dx, y0 + row*dy) is stored at
+     * storeResult[row*width + column].
+     *
+     * @param storeResult array to fill (not null, length&ge;width*height)
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param dx increment in the 1st coordinate between columns
+     * @param dy increment in the 2nd coordinate between rows
+     * @param width number of columns (&gt;0)
+     * @param height number of rows (&gt;0)
+     */
+    public void sampleGrid(float[] storeResult, float x0, float y0, float dx,
+            float dy, int width, int height) {
+        Validate.nonNull(storeResult, "result array");
+        Validate.positive(width, "width");
+        Validate.positive(height, "height");
+        if (storeResult.length < (long) width * height) {
+            logger.log(Level.SEVERE, "length={0}", storeResult.length);
+            throw new IllegalArgumentException(
+                    "result array should hold at least width*height samples");
+        }
+        /*
+         * Pre-compute everything which depends only on the column.
+         */
+        int[] columnIndices = new int[width];
+        float[] columnFades = new float[width];
+        float[] offsetX0s = new float[width];
+        float[] offsetX1s = new float[width];
+        for (int column = 0; column < width; column++) {
+            float sampleX = x0 + column * dx;
+            int squareX = (int) Math.floor(sampleX);
+            columnIndices[column] = squareX & mask;
+            offsetX0s[column] = sampleX - squareX;
+            offsetX1s[column] = sampleX - (squareX + 1);
+            columnFades[column] = MyMath.fade(offsetX0s[column]);
+        }
+
+        for (int row = 0; row < height; row++) {
+            float sampleY = y0 + row * dy;
+            int squareY = (int) Math.floor(sampleY);
+            int hash0 = hashes[squareY & mask];
+            int hash1 = hashes[(squareY + 1) & mask];
+            float offsetY0 = sampleY - squareY;
+            float offsetY1 = sampleY - (squareY + 1);
+            float fadeY = MyMath.fade(offsetY0);
+
+            int base = row * width;
+            for (int column = 0; column < width; column++) {
+                int ix = columnIndices[column];
+                float ox0 = offsetX0s[column];
+                float ox1 = offsetX1s[column];
+                /*
+                 * Compute the noise contribution of each corner.
+                 */
+                int i00 = ix + hash0;
+                int i01 = ix + hash1;
+                int i10 = ((ix + 1) & mask) + hash0;
+                int i11 = ((ix + 1) & mask) + hash1;
+                float n00 = gradientXs[i00] * ox0 + gradientYs[i00] * offsetY0;
+                float n01 = gradientXs[i01] * ox0 + gradientYs[i01] * offsetY1;
+                float n10 = gradientXs[i10] * ox1 + gradientYs[i10] * offsetY0;
+                float n11 = gradientXs[i11] * ox1 + gradientYs[i11] * offsetY1;
+                /*
+                 * 2-D interpolation between the four corners of the square.
+                 */
+                float fadeX = columnFades[column];
+                float nx0 = FastMath.interpolateLinear(fadeX, n00, n10);
+                float nx1 = FastMath.interpolateLinear(fadeX, n01, n11);
+                storeResult[base + column] =
+                        FastMath.interpolateLinear(fadeY, nx0, nx1);
+            }
+        }
+    }
+    // *************************************************************************
+    // Noise2 methods
+
+    /**
+     * Sample the noise function at a specified point.
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @return noise value (&le;sqrt(0.5), &ge;-sqrt(0.5))
+     */
+    @Override
+    public float sample(float sampleX, float sampleY) {
+        /*
+         * Determine which square contains the point.
+         */
+        int squareX = (int) Math.floor(sampleX);
+        int squareY = (int) Math.floor(sampleY);
+        int ix0 = squareX & mask;
+        int ix1 = (squareX + 1) & mask;
+        int hash0 = hashes[squareY & mask];
+        int hash1 = hashes[(squareY + 1) & mask];
+        /*
+         * Compute the noise contribution of each corner.
+         */
+        float ox0 = sampleX - squareX;
+        float ox1 = sampleX - (squareX + 1);
+        float oy0 = sampleY - squareY;
+        float oy1 = sampleY - (squareY + 1);
+        float n00 = gradientXs[ix0 + hash0] * ox0
+                + gradientYs[ix0 + hash0] * oy0;
+        float n01 = gradientXs[ix0 + hash1] * ox0
+                + gradientYs[ix0 + hash1] * oy1;
+        float n10 = gradientXs[ix1 + hash0] * ox1
+                + gradientYs[ix1 + hash0] * oy0;
+        float n11 = gradientXs[ix1 + hash1] * ox1
+                + gradientYs[ix1 + hash1] * oy1;
+        /*
+         * 2-D interpolation between the four corners of the square.
+         */
+        float fadeX = MyMath.fade(ox0);
+        float nx0 = FastMath.interpolateLinear(fadeX, n00, n10);
+        float nx1 = FastMath.interpolateLinear(fadeX, n01, n11);
+
+        float fadeY = MyMath.fade(oy0);
+        float noise = FastMath.interpolateLinear(fadeY, nx0, nx1);
+
+        return noise;
+    }
+
+    /**
+     * Sample the noise function at a specified point and normalize it to the
+     * range [-1, 1].
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @return normalized noise value (&le;1, &ge;-1)
+     */
+    @Override
+    public float sampleNormalized(float sampleX, float sampleY) {
+        float noise = sample(sampleX, sampleY);
+        /*
+         * Scale to fill the range [-1, 1].
+         */
+        noise /= MyMath.rootHalf;
+
+        assert noise >= -1f : noise;
+        assert noise <= 1f : noise;
+        return noise;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,569 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math;
+
+import java.nio.FloatBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Field of fractional Brownian motion (FBM) noise sampled on an unbounded
+ * square lattice. The sample at lattice point (column, row) is the FBM noise
+ * at (column/samplesPerUnit, row/samplesPerUnit), computed exactly as
+ * {@link Noise#fbmNoise(Noise2, float, float, int, float, float, float)}
+ * would.
+ * <p>
+ * Rectangular regions are assembled from square tiles, which are computed in
+ * parallel on a fork-join pool and retained in a least-recently-used cache, so
+ * that repeated requests for overlapping regions (scrolling terrain, streaming
+ * clouds) reuse tiles. Since every sample is computed independently, the
+ * results are identical regardless of tiling, caching, or thread count.
+ * <p>
+ * Instances are thread-safe, provided the base generator can be sampled
+ * concurrently (as all generators in this package can).
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class FbmField {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(FbmField.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * amplitude ratio between octaves (&gt;0, &lt;1): set by constructor
+     */
+    final private float gain;
+    /**
+     * frequency for the 1st octave (&gt;0): set by constructor
+     */
+    final private float fundamental;
+    /**
+     * frequency ratio between octaves (&gt;1): set by constructor
+     */
+    final private float lacunarity;
+    /**
+     * number of lattice points per unit of noise coordinate (&gt;0): set by
+     * constructor
+     */
+    final private float samplesPerUnit;
+    /**
+     * number of samples along each edge of a tile (&gt;0): set by constructor
+     */
+    final private int tileSize;
+    /**
+     * maximum number of tiles to retain in the cache (&ge;0): set by
+     * constructor
+     */
+    final private int maxCachedTiles;
+    /**
+     * number of noise components (&gt;0): set by constructor
+     */
+    final private int numOctaves;
+    /**
+     * computed tiles in least-recently-used order, keyed by tile coordinates
+     * (not null, guarded by itself)
+     */
+    final private Map<Long, float[]> cache;
+    /**
+     * base noise generator (not null): set by constructor
+     */
+    final private Noise2 generator;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a field with the specified parameters.
+     *
+     * @param generator base noise generator (not null)
+     * @param numOctaves number of noise components (&gt;0)
+     * @param fundamental frequency for the 1st component (&gt;0)
+     * @param gain amplitude ratio between octaves (&gt;0, &lt;1)
+     * @param lacunarity frequency ratio between octaves (&gt;1)
+     * @param samplesPerUnit number of lattice points per unit of noise
+     * coordinate (&gt;0)
+     * @param tileSize number of samples along each edge of a tile (&gt;0)
+     * @param maxCachedTiles maximum number of tiles to cache (&ge;0)
+     */
+    public FbmField(Noise2 generator, int numOctaves, float fundamental,
+            float gain, float lacunarity, float samplesPerUnit, int tileSize,
+            final int maxCachedTiles) {
+        Validate.nonNull(generator, "generator");
+        Validate.positive(numOctaves, "octaves");
+        Validate.positive(fundamental, "fundamental");
+        if (!(gain > 0f && gain < 1f)) {
+            logger.log(Level.SEVERE, "gain={0}", gain);
+            throw new IllegalArgumentException(
+                    "gain should be between 0 and 1");
+        }
+        if (!(lacunarity > 1f)) {
+            logger.log(Level.SEVERE, "lacunarity={0}", lacunarity);
+            throw new IllegalArgumentException(
+                    "lacunarity should be greater than 1");
+        }
+        Validate.positive(samplesPerUnit, "samples per unit");
+        Validate.positive(tileSize, "tile size");
+        Validate.nonNegative(maxCachedTiles, "max cached tiles");
+
+        this.generator = generator;
+        this.numOctaves = numOctaves;
+        this.fundamental = fundamental;
+        this.gain = gain;
+        this.lacunarity = lacunarity;
+        this.samplesPerUnit = samplesPerUnit;
+        this.tileSize = tileSize;
+        this.maxCachedTiles = maxCachedTiles;
+        cache = new LinkedHashMap<Long, float[]>(16, 0.75f, true) {
+            final private static long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Long, float[]> eldest) {
+                return size() > maxCachedTiles;
+            }
+        };
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Discard all cached tiles.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Count the tiles currently in the cache.
+     *
+     * @return count (&ge;0)
+     */
+    public int numCachedTiles() {
+        int result;
+        synchronized (cache) {
+            result = cache.size();
+        }
+
+        assert result >= 0 : result;
+        assert result <= maxCachedTiles : result;
+        return result;
+    }
+
+    /**
+     * Compute the field at a single lattice point, bypassing the cache.
+     *
+     * @param column lattice coordinate of the point along the 1st axis
+     * @param row lattice coordinate of the point along the 2nd axis
+     * @return noise value (range depends on parameters)
+     */
+    public float sample(int column, int row) {
+        float sampleX = column / samplesPerUnit;
+        float sampleY = row / samplesPerUnit;
+        float result = fbm(sampleX, sampleY);
+
+        return result;
+    }
+
+    /**
+     * Sample a rectangular region of the field into an array, using a
+     * temporary fork-join pool with one worker per available processor. The
+     * sample at lattice point (firstColumn + i, firstRow + j) is stored at
+     * index j*width + i.
+     *
+     * @param firstColumn lattice coordinate of the region's 1st column
+     * @param firstRow lattice coordinate of the region's 1st row
+     * @param width number of columns in the region (&gt;0)
+     * @param height number of rows in the region (&gt;0)
+     * @param storeResult (length&ge;width*height, modified if not null)
+     * @return array of samples (either storeResult or a new array)
+     */
+    public float[] sample(int firstColumn, int firstRow, int width,
+            int height, float[] storeResult) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            float[] result = sample(firstColumn, firstRow, width, height,
+                    storeResult, pool);
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sample a rectangular region of the field into an array, using the
+     * specified fork-join pool. The sample at lattice point (firstColumn + i,
+     * firstRow + j) is stored at index j*width + i.
+     *
+     * @param firstColumn lattice coordinate of the region's 1st column
+     * @param firstRow lattice coordinate of the region's 1st row
+     * @param width number of columns in the region (&gt;0)
+     * @param height number of rows in the region (&gt;0)
+     * @param storeResult (length&ge;width*height, modified if not null)
+     * @param pool pool for computing tiles (not null)
+     * @return array of samples (either storeResult or a new array)
+     */
+    public float[] sample(int firstColumn, int firstRow, int width,
+            int height, float[] storeResult, ForkJoinPool pool) {
+        Validate.positive(width, "width");
+        Validate.positive(height, "height");
+        long numSamples = (long) width * height;
+        float[] result;
+        if (storeResult == null) {
+            if (numSamples > Integer.MAX_VALUE) {
+                logger.log(Level.SEVERE, "width={0}, height={1}",
+                        new Object[]{width, height});
+                throw new IllegalArgumentException("region is too large");
+            }
+            result = new float[(int) numSamples];
+        } else {
+            result = storeResult;
+        }
+
+        FloatBuffer buffer = FloatBuffer.wrap(result);
+        sampleToBuffer(firstColumn, firstRow, width, height, buffer, pool);
+
+        return result;
+    }
+
+    /**
+     * Sample a rectangular region of the field into a buffer, using a
+     * temporary fork-join pool with one worker per available processor. The
+     * buffer is written starting at its current position, which advances past
+     * the samples. The sample at lattice point (firstColumn + i,
+     * firstRow + j) is stored at offset j*width + i.
+     *
+     * @param firstColumn lattice coordinate of the region's 1st column
+     * @param firstRow lattice coordinate of the region's 1st row
+     * @param width number of columns in the region (&gt;0)
+     * @param height number of rows in the region (&gt;0)
+     * @param storeResult buffer for the samples (not null,
+     * remaining&ge;width*height)
+     */
+    public void sampleToBuffer(int firstColumn, int firstRow, int width,
+            int height, FloatBuffer storeResult) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            sampleToBuffer(firstColumn, firstRow, width, height, storeResult,
+                    pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sample a rectangular region of the field into a buffer, using the
+     * specified fork-join pool. The buffer is written starting at its current
+     * position, which advances past the samples. The sample at lattice point
+     * (firstColumn + i, firstRow + j) is stored at offset j*width + i.
+     *
+     * @param firstColumn lattice coordinate of the region's 1st column
+     * @param firstRow lattice coordinate of the region's 1st row
+     * @param width number of columns in the region (&gt;0)
+     * @param height number of rows in the region (&gt;0)
+     * @param storeResult buffer for the samples (not null,
+     * remaining&ge;width*height)
+     * @param pool pool for computing tiles (not null)
+     */
+    public void sampleToBuffer(int firstColumn, int firstRow, int width,
+            int height, FloatBuffer storeResult, ForkJoinPool pool) {
+        Validate.positive(width, "width");
+        Validate.positive(height, "height");
+        Validate.nonNull(storeResult, "buffer");
+        Validate.nonNull(pool, "pool");
+        if (storeResult.remaining() < (long) width * height) {
+            logger.log(Level.SEVERE, "remaining={0}", storeResult.remaining());
+            throw new IllegalArgumentException(
+                    "buffer should have room for all samples");
+        }
+        /*
+         * Determine which tiles overlap the region.
+         */
+        int firstTileColumn = tileCoordinate(firstColumn);
+        int firstTileRow = tileCoordinate(firstRow);
+        int lastTileColumn = tileCoordinate(firstColumn + width - 1);
+        int lastTileRow = tileCoordinate(firstRow + height - 1);
+        int numTileColumns = lastTileColumn - firstTileColumn + 1;
+        int numTileRows = lastTileRow - firstTileRow + 1;
+        float[][] tiles = acquireTiles(firstTileColumn, firstTileRow,
+                numTileColumns, numTileRows, pool);
+        /*
+         * Copy the overlapping part of each tile, one row at a time.
+         */
+        int start = storeResult.position();
+        FloatBuffer view = storeResult.duplicate();
+        for (int j = 0; j < height; j++) {
+            int row = firstRow + j;
+            int tileRowIndex = tileCoordinate(row) - firstTileRow;
+            int rowInTile = MyMath.modulo(row, tileSize);
+
+            int i = 0;
+            while (i < width) {
+                int column = firstColumn + i;
+                int tileColumnIndex = tileCoordinate(column) - firstTileColumn;
+                int columnInTile = MyMath.modulo(column, tileSize);
+                int count = Math.min(tileSize - columnInTile, width - i);
+
+                float[] tile = tiles[tileRowIndex * numTileColumns
+                        + tileColumnIndex];
+                view.position(start + j * width + i);
+                view.put(tile, rowInTile * tileSize + columnInTile, count);
+                i += count;
+            }
+        }
+        storeResult.position(start + width * height);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Obtain the specified block of tiles, computing any which aren't cached.
+     *
+     * @param firstTileColumn tile coordinate of the block's 1st column
+     * @param firstTileRow tile coordinate of the block's 1st row
+     * @param numTileColumns number of columns in the block (&gt;0)
+     * @param numTileRows number of rows in the block (&gt;0)
+     * @param pool pool for computing tiles (not null)
+     * @return new array of tiles in row-major order
+     */
+    private float[][] acquireTiles(int firstTileColumn, int firstTileRow,
+            int numTileColumns, int numTileRows, ForkJoinPool pool) {
+        assert numTileColumns > 0 : numTileColumns;
+        assert numTileRows > 0 : numTileRows;
+        assert pool != null;
+
+        int numTiles = numTileColumns * numTileRows;
+        float[][] result = new float[numTiles][];
+        int[] missing = new int[numTiles];
+        int numMissing = 0;
+        synchronized (cache) {
+            for (int index = 0; index < numTiles; index++) {
+                long key = tileKey(firstTileColumn + index % numTileColumns,
+                        firstTileRow + index / numTileColumns);
+                result[index] = cache.get(key);
+                if (result[index] == null) {
+                    missing[numMissing] = index;
+                    numMissing++;
+                }
+            }
+        }
+        if (numMissing == 0) {
+            return result;
+        }
+
+        TileTask task = new TileTask(this, result, missing, 0, numMissing,
+                firstTileColumn, firstTileRow, numTileColumns);
+        pool.invoke(task);
+
+        synchronized (cache) {
+            for (int m = 0; m < numMissing; m++) {
+                int index = missing[m];
+                long key = tileKey(firstTileColumn + index % numTileColumns,
+                        firstTileRow + index / numTileColumns);
+                cache.put(key, result[index]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Compute all samples in the specified tile.
+     *
+     * @param tileColumn tile coordinate along the 1st axis
+     * @param tileRow tile coordinate along the 2nd axis
+     * @return new array of samples in row-major order
+     */
+    private float[] computeTile(int tileColumn, int tileRow) {
+        float[] result = new float[tileSize * tileSize];
+        int firstColumn = tileColumn * tileSize;
+        int firstRow = tileRow * tileSize;
+        for (int j = 0; j < tileSize; j++) {
+            float sampleY = (firstRow + j) / samplesPerUnit;
+            int base = j * tileSize;
+            for (int i = 0; i < tileSize; i++) {
+                float sampleX = (firstColumn + i) / samplesPerUnit;
+                result[base + i] = fbm(sampleX, sampleY);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sample FBM noise at the specified point, using the same arithmetic as
+     * Noise.fbmNoise().
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @return noise value
+     */
+    private float fbm(float sampleX, float sampleY) {
+        float amplitude = 1f;
+        float frequency = fundamental;
+        float total = 0f;
+        for (int octave = 0; octave < numOctaves; octave++) {
+            float sample = generator.sampleNormalized(sampleX * frequency,
+                    sampleY * frequency);
+            total += amplitude * sample;
+            frequency *= lacunarity;
+            amplitude *= gain;
+        }
+
+        return total;
+    }
+
+    /**
+     * Find the tile coordinate of the tile containing a lattice coordinate.
+     *
+     * @param latticeCoordinate lattice coordinate
+     * @return tile coordinate (rounded toward -infinity)
+     */
+    private int tileCoordinate(int latticeCoordinate) {
+        int offset = MyMath.modulo(latticeCoordinate, tileSize);
+        int result = (latticeCoordinate - offset) / tileSize;
+
+        return result;
+    }
+
+    /**
+     * Generate a cache key for the specified tile.
+     *
+     * @param tileColumn tile coordinate along the 1st axis
+     * @param tileRow tile coordinate along the 2nd axis
+     * @return key value
+     */
+    private static long tileKey(int tileColumn, int tileRow) {
+        long result = ((long) tileColumn << 32) | (tileRow & 0xffffffffL);
+        return result;
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Fork-join task to compute a range of missing tiles.
+     */
+    private static class TileTask
+            extends RecursiveAction {
+
+        /**
+         * version for serialization
+         */
+        final private static long serialVersionUID = 1L;
+        /**
+         * field being sampled (not null)
+         */
+        final private FbmField field;
+        /**
+         * tiles being assembled, in row-major order (not null)
+         */
+        final private float[][] tiles;
+        /**
+         * indices of the missing tiles (not null)
+         */
+        final private int[] missing;
+        /**
+         * index into missing past the range
+         */
+        final private int endMissing;
+        /**
+         * tile coordinate of the block's 1st column
+         */
+        final private int firstTileColumn;
+        /**
+         * tile coordinate of the block's 1st row
+         */
+        final private int firstTileRow;
+        /**
+         * index into missing of the 1st tile in the range
+         */
+        final private int firstMissing;
+        /**
+         * number of columns in the block
+         */
+        final private int numTileColumns;
+
+        /**
+         * Instantiate a task for a range of missing tiles.
+         *
+         * @param field field being sampled (not null)
+         * @param tiles tiles being assembled (not null)
+         * @param missing indices of the missing tiles (not null)
+         * @param firstMissing index into missing of the 1st tile in the range
+         * @param endMissing index into missing past the range
+         * @param firstTileColumn tile coordinate of the block's 1st column
+         * @param firstTileRow tile coordinate of the block's 1st row
+         * @param numTileColumns number of columns in the block
+         */
+        TileTask(FbmField field, float[][] tiles, int[] missing,
+                int firstMissing, int endMissing, int firstTileColumn,
+                int firstTileRow, int numTileColumns) {
+            this.field = field;
+            this.tiles = tiles;
+            this.missing = missing;
+            this.firstMissing = firstMissing;
+            this.endMissing = endMissing;
+            this.firstTileColumn = firstTileColumn;
+            this.firstTileRow = firstTileRow;
+            this.numTileColumns = numTileColumns;
+        }
+
+        /**
+         * Compute this task's tiles, splitting the range if it holds more
+         * than one.
+         */
+        @Override
+        protected void compute() {
+            int count = endMissing - firstMissing;
+            if (count > 1) {
+                int middle = firstMissing + count / 2;
+                invokeAll(new TileTask(field, tiles, missing, firstMissing,
+                        middle, firstTileColumn, firstTileRow,
+                        numTileColumns),
+                        new TileTask(field, tiles, missing, middle,
+                        endMissing, firstTileColumn, firstTileRow,
+                        numTileColumns));
+                return;
+            }
+
+            int index = missing[firstMissing];
+            int tileColumn = firstTileColumn + index % numTileColumns;
+            int tileRow = firstTileRow + index / numTileColumns;
+            tiles[index] = field.computeTile(tileColumn, tileRow);
+        }
+    }
+}
\ No newline at end of file
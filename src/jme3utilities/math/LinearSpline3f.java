@@ -25,16 +25,25 @@
  */
 package jme3utilities.math;
 
-import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 
 /**
  * Immutable linear spline in three dimensions.
+ * <p>
+ * Control points are packed into a float array, and the parameter values
+ * (cumulative path lengths) into another, so sampling is a binary search plus
+ * a lerp. For long runs of increasing samples, use a
+ * {@link LinearSpline3fCursor}, or sample in bulk directly into buffers.
+ * <p>
+ * Since t measures path length, sampling uniformly in t is the same as
+ * sampling uniformly in arc length.
  *
  * @author Stephen Gold <sgold@sonic.net>
  */
@@ -43,6 +52,14 @@ public class LinearSpline3f
     // *************************************************************************
     // constants
 
+    /**
+     * number of segments to step through before resorting to binary search
+     */
+    final private static int maxSteps = 8;
+    /**
+     * number of samples per fork-join task when sampling in parallel
+     */
+    final private static int samplesPerTask = 16_384;
     /**
      * message logger for this class
      */
@@ -51,13 +68,14 @@ public class LinearSpline3f
     // *************************************************************************
     // fields
     /**
-     * location of each control point (size&ge;2)
+     * parameter value for each control point, in increasing order
+     * (length&ge;1, 1st element=0)
      */
-    final private List<Vector3f> controlPoints = new ArrayList<>(2);
+    final private float[] controlTs;
     /**
-     * parameter value for each control point (size&ge;2)
+     * location of each control point, packed as x, y, z triplets
      */
-    final private List<Float> controlTs = new ArrayList<>(2);
+    final private float[] coordinates;
     /**
      * total path length (&ge;0)
      */
@@ -79,26 +97,184 @@ public class LinearSpline3f
             throw new IllegalArgumentException(
                     "should provide at least 2 control points");
         }
-
+        /*
+         * Skip any control point which doesn't strictly increase t, either
+         * because it duplicates its predecessor or because its distance is
+         * lost to rounding. Otherwise interpolation could divide by zero.
+         */
+        float[] xyz = new float[3 * points.length];
+        float[] ts = new float[points.length];
+        Vector3f previousPoint = points[0];
+        xyz[0] = previousPoint.x;
+        xyz[1] = previousPoint.y;
+        xyz[2] = previousPoint.z;
+        int numPoints = 1;
         float sumDistance = 0f;
-        Vector3f previousPoint = null;
-        for (Vector3f point : points) {
-            if (previousPoint != null) {
-                float distance = previousPoint.distance(point);
-                if (distance > 0f) {
-                    sumDistance += distance;
-                    controlPoints.add(point);
-                    controlTs.add(sumDistance);
-                }
-            } else {
-                controlPoints.add(point);
-                controlTs.add(sumDistance);
+        for (int index = 1; index < points.length; index++) {
+            Vector3f point = points[index];
+            float t = sumDistance + previousPoint.distance(point);
+            if (t > sumDistance) {
+                sumDistance = t;
+                xyz[3 * numPoints] = point.x;
+                xyz[3 * numPoints + 1] = point.y;
+                xyz[3 * numPoints + 2] = point.z;
+                ts[numPoints] = sumDistance;
+                numPoints++;
+                previousPoint = point;
             }
-            previousPoint = point;
         }
+
+        coordinates = Arrays.copyOf(xyz, 3 * numPoints);
+        controlTs = Arrays.copyOf(ts, numPoints);
         totalLength = sumDistance;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Interpolate the spline at the specified parameter value, given the
+     * index of the control point at or to the left of it.
+     *
+     * @param sampleT input value
+     * @param leftIndex index from {@link #seek(float, int)}
+     * @param storeResult (modified if not null)
+     * @return the interpolated value (either storeResult or a new instance)
+     */
+    Vector3f interpolate(float sampleT, int leftIndex, Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int lastIndex = controlTs.length - 1;
+        if (leftIndex < 0) {
+            result.set(coordinates[0], coordinates[1], coordinates[2]);
+            return result;
+        } else if (leftIndex >= lastIndex) {
+            int i0 = 3 * lastIndex;
+            result.set(coordinates[i0], coordinates[i0 + 1],
+                    coordinates[i0 + 2]);
+            return result;
+        }
+
+        float t0 = controlTs[leftIndex];
+        float t1 = controlTs[leftIndex + 1];
+        assert sampleT >= t0 : sampleT;
+        assert sampleT < t1 : sampleT;
+        float fraction = (sampleT - t0) / (t1 - t0);
+        assert fraction >= 0f : fraction;
+        assert fraction < 1f : fraction;
+
+        int i0 = 3 * leftIndex;
+        float x = coordinates[i0]
+                + fraction * (coordinates[i0 + 3] - coordinates[i0]);
+        float y = coordinates[i0 + 1]
+                + fraction * (coordinates[i0 + 4] - coordinates[i0 + 1]);
+        float z = coordinates[i0 + 2]
+                + fraction * (coordinates[i0 + 5] - coordinates[i0 + 2]);
+        result.set(x, y, z);
 
-        assert controlPoints.size() == controlTs.size() : controlTs.size();
+        return result;
+    }
+
+    /**
+     * Compute the spline's 1st derivative to the right of the specified
+     * parameter value, given the index of the control point at or to the left
+     * of it.
+     *
+     * @param leftIndex index from {@link #seek(float, int)}
+     * @param storeResult (modified if not null)
+     * @return the derivative (either storeResult or a new instance)
+     */
+    Vector3f rightDerivative(int leftIndex, Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int lastIndex = controlTs.length - 1;
+        if (leftIndex < 0 || leftIndex >= lastIndex) {
+            result.set(0f, 0f, 0f);
+            return result;
+        }
+
+        float dt = controlTs[leftIndex + 1] - controlTs[leftIndex];
+        assert dt > 0f : dt;
+        int i0 = 3 * leftIndex;
+        float x = (coordinates[i0 + 3] - coordinates[i0]) / dt;
+        float y = (coordinates[i0 + 4] - coordinates[i0 + 1]) / dt;
+        float z = (coordinates[i0 + 5] - coordinates[i0 + 2]) / dt;
+        result.set(x, y, z);
+
+        return result;
+    }
+
+    /**
+     * Sample the spline at evenly-spaced parameter values, writing the
+     * results directly into buffers and splitting large requests into
+     * fork-join tasks which sample disjoint ranges of the buffers. Each buffer
+     * is written starting at its current position, which advances past the
+     * samples.
+     *
+     * @param startT parameter value of the 1st sample
+     * @param endT parameter value of the last sample (ignored if
+     * numSamples=1)
+     * @param numSamples number of samples (&ge;1)
+     * @param storePositions buffer for the locations, as x, y, z triplets (not
+     * null, remaining&ge;3*numSamples)
+     * @param storeTangents buffer for the unit tangents, as x, y, z triplets
+     * (remaining&ge;3*numSamples) or null to skip tangents
+     * @param pool pool to execute the tasks (not null)
+     */
+    public void sample(float startT, float endT, int numSamples,
+            FloatBuffer storePositions, FloatBuffer storeTangents,
+            ForkJoinPool pool) {
+        validateBuffers(numSamples, storePositions, storeTangents);
+        Validate.nonNull(pool, "pool");
+
+        if (numSamples <= samplesPerTask) {
+            sample(startT, endT, numSamples, storePositions, storeTangents);
+            return;
+        }
+
+        SampleTask task = new SampleTask(this, startT, endT, numSamples, 0,
+                numSamples, storePositions, storeTangents);
+        pool.invoke(task);
+
+        int numFloats = 3 * numSamples;
+        storePositions.position(storePositions.position() + numFloats);
+        if (storeTangents != null) {
+            storeTangents.position(storeTangents.position() + numFloats);
+        }
+    }
+
+    /**
+     * Find the index of the control point at or to the left of a given
+     * coordinate, starting from a hint. If the coordinate lies at or beyond
+     * the hint, a few segments are stepped through before resorting to binary
+     * search, so increasing samples take O(1) amortized time.
+     *
+     * @param sampleT sample coordinate
+     * @param hintIndex index of a control point at or to the left of a
+     * previous sample (&ge;-1)
+     * @return index (&ge;0, &lt;numPoints) or -1 if sampleT&lt;0
+     */
+    int seek(float sampleT, int hintIndex) {
+        assert hintIndex >= -1 : hintIndex;
+
+        if (sampleT < 0f) {
+            return -1;
+        }
+        int index = Math.max(hintIndex, 0);
+        if (sampleT < controlTs[index]) {
+            int result = leftIndex(sampleT);
+            return result;
+        }
+
+        int lastIndex = controlTs.length - 1;
+        for (int step = 0; step < maxSteps; step++) {
+            if (index == lastIndex || sampleT < controlTs[index + 1]) {
+                return index;
+            }
+            index++;
+        }
+        int result = leftIndex(sampleT, index, lastIndex + 1);
+
+        return result;
     }
     // *************************************************************************
     // Spline3f methods
@@ -111,9 +287,31 @@ public class LinearSpline3f
      */
     @Override
     public Vector3f getControlPoint(int index) {
+        Vector3f result = getControlPoint(index, null);
+        return result;
+    }
+
+    /**
+     * Copy the specified control point of this spline.
+     *
+     * @param index index of the control point (&ge;0, &lt;numControlPoints)
+     * @param storeResult (modified if not null)
+     * @return the control point (either storeResult or a new instance)
+     */
+    @Override
+    public Vector3f getControlPoint(int index, Vector3f storeResult) {
         Validate.nonNegative(index, "index");
-        Vector3f result = controlPoints.get(index);
-        return result.clone();
+        if (index >= controlTs.length) {
+            logger.log(Level.SEVERE, "index={0}", index);
+            throw new IndexOutOfBoundsException(
+                    "index should be less than the number of control points");
+        }
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int i0 = 3 * index;
+        result.set(coordinates[i0], coordinates[i0 + 1], coordinates[i0 + 2]);
+
+        return result;
     }
 
     /**
@@ -124,38 +322,21 @@ public class LinearSpline3f
      */
     @Override
     public Vector3f interpolate(float sampleT) {
-        if (sampleT <= controlTs.get(0)) {
-            Vector3f controlPoint = controlPoints.get(0);
-            return controlPoint.clone();
-        }
-
-        int lastIndex = controlPoints.size() - 1;
-        if (sampleT >= totalLength) {
-            Vector3f controlPoint = controlPoints.get(lastIndex);
-            return controlPoint.clone();
-        }
+        Vector3f result = interpolate(sampleT, null);
+        return result;
+    }
 
+    /**
+     * Interpolate the spline at the specified parameter value.
+     *
+     * @param sampleT input value
+     * @param storeResult (modified if not null)
+     * @return the interpolated value (either storeResult or a new instance)
+     */
+    @Override
+    public Vector3f interpolate(float sampleT, Vector3f storeResult) {
         int leftIndex = leftIndex(sampleT);
-        assert leftIndex >= 0 : leftIndex;
-        assert leftIndex < lastIndex : leftIndex;
-
-        float t0 = controlTs.get(leftIndex);
-        assert sampleT >= t0 : sampleT;
-        Vector3f p0 = controlPoints.get(leftIndex);
-        if (sampleT == t0) {
-            return p0.clone();
-        }
-
-        int rightIndex = leftIndex + 1;
-        float t1 = controlTs.get(rightIndex);
-        assert t1 > t0 : t1;
-        assert sampleT < t1 : sampleT;
-        float fraction = (sampleT - t0) / (t1 - t0);
-        assert fraction >= 0f : fraction;
-        assert fraction < 1f : fraction;
-
-        Vector3f p1 = controlPoints.get(rightIndex);
-        Vector3f result = FastMath.interpolateLinear(fraction, p0, p1, null);
+        Vector3f result = interpolate(sampleT, leftIndex, storeResult);
 
         return result;
     }
@@ -167,7 +348,7 @@ public class LinearSpline3f
      */
     @Override
     public int numControlPoints() {
-        int result = controlPoints.size();
+        int result = controlTs.length;
         return result;
     }
 
@@ -180,28 +361,72 @@ public class LinearSpline3f
      */
     @Override
     public Vector3f rightDerivative(float sampleT) {
-        if (sampleT < controlTs.get(0) || sampleT >= totalLength) {
-            return new Vector3f();
-        }
+        Vector3f result = rightDerivative(sampleT, null);
+        return result;
+    }
 
+    /**
+     * Compute the spline's 1st derivative to the right of the specified
+     * parameter value.
+     *
+     * @param sampleT input value
+     * @param storeResult (modified if not null)
+     * @return the derivative (either storeResult or a new instance)
+     */
+    @Override
+    public Vector3f rightDerivative(float sampleT, Vector3f storeResult) {
         int leftIndex = leftIndex(sampleT);
-        assert leftIndex >= 0 : leftIndex;
-        int lastIndex = controlPoints.size() - 1;
-        assert leftIndex < lastIndex : leftIndex;
-
-        Vector3f p0 = controlPoints.get(leftIndex);
-        float t0 = controlTs.get(leftIndex);
-        int rightIndex = leftIndex + 1;
-        Vector3f p1 = controlPoints.get(rightIndex);
-        float t1 = controlTs.get(rightIndex);
-        Vector3f offset = p1.subtract(p0);
-        float dt = t1 - t0;
-        assert dt > 0f : dt;
-        Vector3f result = offset.divide(dt);
+        Vector3f result = rightDerivative(leftIndex, storeResult);
 
         return result;
     }
 
+    /**
+     * Sample the spline at evenly-spaced parameter values, writing the
+     * results directly into buffers. Each buffer is written starting at its
+     * current position, which advances past the samples.
+     *
+     * @param startT parameter value of the 1st sample
+     * @param endT parameter value of the last sample (ignored if
+     * numSamples=1)
+     * @param numSamples number of samples (&ge;1)
+     * @param storePositions buffer for the locations, as x, y, z triplets (not
+     * null, remaining&ge;3*numSamples)
+     * @param storeTangents buffer for the unit tangents, as x, y, z triplets
+     * (remaining&ge;3*numSamples) or null to skip tangents
+     */
+    @Override
+    public void sample(float startT, float endT, int numSamples,
+            FloatBuffer storePositions, FloatBuffer storeTangents) {
+        validateBuffers(numSamples, storePositions, storeTangents);
+
+        sampleRange(startT, endT, numSamples, 0, numSamples, storePositions,
+                storeTangents);
+
+        int numFloats = 3 * numSamples;
+        storePositions.position(storePositions.position() + numFloats);
+        if (storeTangents != null) {
+            storeTangents.position(storeTangents.position() + numFloats);
+        }
+    }
+
+    /**
+     * Sample the spline at evenly-spaced path lengths from start to end,
+     * writing the results directly into buffers. Each buffer is written
+     * starting at its current position, which advances past the samples.
+     *
+     * @param numSamples number of samples (&ge;1)
+     * @param storePositions buffer for the locations, as x, y, z triplets (not
+     * null, remaining&ge;3*numSamples)
+     * @param storeTangents buffer for the unit tangents, as x, y, z triplets
+     * (remaining&ge;3*numSamples) or null to skip tangents
+     */
+    @Override
+    public void sampleByLength(int numSamples, FloatBuffer storePositions,
+            FloatBuffer storeTangents) {
+        sample(0f, totalLength, numSamples, storePositions, storeTangents);
+    }
+
     /**
      * Read the total path length of this spline.
      *
@@ -217,7 +442,7 @@ public class LinearSpline3f
 
     /**
      * Find the index of the control point at or to the left of a given
-     * coordinate.
+     * coordinate, using binary search.
      *
      * @param sampleT sample coordinate
      * @return index (&ge;0, &lt;numPoints) or -1 if sampleT&lt;0
@@ -226,16 +451,234 @@ public class LinearSpline3f
         if (sampleT < 0f) {
             return -1;
         }
-        /*
-         * TODO: use binary search
+        int result = leftIndex(sampleT, 0, controlTs.length);
+
+        return result;
+    }
+
+    /**
+     * Find the index of the control point at or to the left of a given
+     * coordinate within a range of control points, using binary search.
+     *
+     * @param sampleT sample coordinate (&ge;controlTs[fromIndex])
+     * @param fromIndex index of the 1st control point in the range
+     * @param toIndex index past the last control point in the range
+     * @return index (&ge;fromIndex, &lt;toIndex)
+     */
+    private int leftIndex(float sampleT, int fromIndex, int toIndex) {
+        assert sampleT >= controlTs[fromIndex] : sampleT;
+
+        int result = Arrays.binarySearch(controlTs, fromIndex, toIndex,
+                sampleT);
+        if (result < 0) {
+            /*
+             * Not an exact match: use the insertion point minus one.
+             */
+            result = -result - 2;
+        }
+        assert result >= fromIndex : result;
+        assert result < toIndex : result;
+
+        return result;
+    }
+
+    /**
+     * Write a range of evenly-spaced samples into buffers, without altering
+     * the buffers' positions. Safe to invoke concurrently for disjoint ranges.
+     *
+     * @param startT parameter value of the 1st sample
+     * @param endT parameter value of the last sample (ignored if
+     * numSamples=1)
+     * @param numSamples total number of samples (&ge;1)
+     * @param firstSample index of the 1st sample in the range (&ge;0)
+     * @param endSample index past the last sample in the range
+     * (&le;numSamples)
+     * @param storePositions buffer for the locations (not null)
+     * @param storeTangents buffer for the unit tangents, or null to skip
+     */
+    private void sampleRange(float startT, float endT, int numSamples,
+            int firstSample, int endSample, FloatBuffer storePositions,
+            FloatBuffer storeTangents) {
+        assert firstSample >= 0 : firstSample;
+        assert endSample <= numSamples : endSample;
+
+        int lastIndex = controlTs.length - 1;
+        float step = (numSamples > 1) ? (endT - startT) / (numSamples - 1) : 0f;
+        int positionBase = storePositions.position();
+        int tangentBase = (storeTangents == null) ? 0 : storeTangents.position();
+        int leftIndex = -1;
+        for (int sample = firstSample; sample < endSample; sample++) {
+            float sampleT = (sample > 0 && sample == numSamples - 1)
+                    ? endT : startT + sample * step;
+            leftIndex = seek(sampleT, leftIndex);
+
+            int i0 = 3 * leftIndex;
+            int offset = 3 * sample;
+            if (leftIndex < 0) {
+                storePositions.put(positionBase + offset, coordinates[0]);
+                storePositions.put(positionBase + offset + 1, coordinates[1]);
+                storePositions.put(positionBase + offset + 2, coordinates[2]);
+            } else if (leftIndex >= lastIndex) {
+                storePositions.put(positionBase + offset, coordinates[i0]);
+                storePositions.put(positionBase + offset + 1,
+                        coordinates[i0 + 1]);
+                storePositions.put(positionBase + offset + 2,
+                        coordinates[i0 + 2]);
+            } else {
+                float t0 = controlTs[leftIndex];
+                float fraction = (sampleT - t0)
+                        / (controlTs[leftIndex + 1] - t0);
+                for (int axis = 0; axis < 3; axis++) {
+                    float c0 = coordinates[i0 + axis];
+                    float c1 = coordinates[i0 + 3 + axis];
+                    storePositions.put(positionBase + offset + axis,
+                            c0 + fraction * (c1 - c0));
+                }
+            }
+
+            if (storeTangents != null) {
+                /*
+                 * Use the segment containing the sample, or the nearest one
+                 * if the sample lies beyond either end.
+                 */
+                float dx = 0f;
+                float dy = 0f;
+                float dz = 0f;
+                if (lastIndex > 0) {
+                    int segment = Math.max(0,
+                            Math.min(leftIndex, lastIndex - 1));
+                    int s0 = 3 * segment;
+                    dx = coordinates[s0 + 3] - coordinates[s0];
+                    dy = coordinates[s0 + 4] - coordinates[s0 + 1];
+                    dz = coordinates[s0 + 5] - coordinates[s0 + 2];
+                    float length = (float) Math.sqrt(dx * dx + dy * dy
+                            + dz * dz);
+                    dx /= length;
+                    dy /= length;
+                    dz /= length;
+                }
+                storeTangents.put(tangentBase + offset, dx);
+                storeTangents.put(tangentBase + offset + 1, dy);
+                storeTangents.put(tangentBase + offset + 2, dz);
+            }
+        }
+    }
+
+    /**
+     * Validate the arguments of a bulk-sampling request.
+     *
+     * @param numSamples number of samples
+     * @param storePositions buffer for the locations
+     * @param storeTangents buffer for the tangents, or null
+     */
+    private static void validateBuffers(int numSamples,
+            FloatBuffer storePositions, FloatBuffer storeTangents) {
+        Validate.positive(numSamples, "number of samples");
+        Validate.nonNull(storePositions, "position buffer");
+
+        int numFloats = 3 * numSamples;
+        if (storePositions.remaining() < numFloats) {
+            logger.log(Level.SEVERE, "remaining={0}",
+                    storePositions.remaining());
+            throw new IllegalArgumentException(
+                    "position buffer should have room for all samples");
+        }
+        if (storeTangents != null && storeTangents.remaining() < numFloats) {
+            logger.log(Level.SEVERE, "remaining={0}",
+                    storeTangents.remaining());
+            throw new IllegalArgumentException(
+                    "tangent buffer should have room for all samples");
+        }
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Fork-join task to sample a range of evenly-spaced parameter values.
+     */
+    private static class SampleTask
+            extends RecursiveAction {
+
+        /**
+         * version for serialization
+         */
+        final private static long serialVersionUID = 1L;
+        /**
+         * parameter value of the last sample
+         */
+        final private float endT;
+        /**
+         * parameter value of the 1st sample
+         */
+        final private float startT;
+        /**
+         * buffer for the locations (not null)
          */
-        int numPoints = controlTs.size();
-        for (int index = 1; index < numPoints; index++) {
-            float controlT = controlTs.get(index);
-            if (sampleT < controlT) {
-                return index - 1;
+        final private FloatBuffer storePositions;
+        /**
+         * buffer for the tangents, or null to skip them
+         */
+        final private FloatBuffer storeTangents;
+        /**
+         * index past the last sample in the range
+         */
+        final private int endSample;
+        /**
+         * index of the 1st sample in the range
+         */
+        final private int firstSample;
+        /**
+         * total number of samples
+         */
+        final private int numSamples;
+        /**
+         * spline being sampled (not null)
+         */
+        final private LinearSpline3f spline;
+
+        /**
+         * Instantiate a task for a range of samples.
+         *
+         * @param spline spline being sampled (not null)
+         * @param startT parameter value of the 1st sample
+         * @param endT parameter value of the last sample (ignored if
+         * numSamples=1)
+         * @param numSamples total number of samples
+         * @param firstSample index of the 1st sample in the range
+         * @param endSample index past the last sample in the range
+         * @param storePositions buffer for the locations (not null)
+         * @param storeTangents buffer for the tangents, or null
+         */
+        SampleTask(LinearSpline3f spline, float startT, float endT,
+                int numSamples, int firstSample, int endSample,
+                FloatBuffer storePositions, FloatBuffer storeTangents) {
+            this.spline = spline;
+            this.startT = startT;
+            this.endT = endT;
+            this.numSamples = numSamples;
+            this.firstSample = firstSample;
+            this.endSample = endSample;
+            this.storePositions = storePositions;
+            this.storeTangents = storeTangents;
+        }
+
+        /**
+         * Sample this task's range, splitting it if it's large.
+         */
+        @Override
+        protected void compute() {
+            int count = endSample - firstSample;
+            if (count > samplesPerTask) {
+                int middle = firstSample + count / 2;
+                invokeAll(new SampleTask(spline, startT, endT, numSamples,
+                        firstSample, middle, storePositions, storeTangents),
+                        new SampleTask(spline, startT, endT, numSamples,
+                        middle, endSample, storePositions, storeTangents));
+                return;
             }
+
+            spline.sampleRange(startT, endT, numSamples, firstSample,
+                    endSample, storePositions, storeTangents);
         }
-        return numPoints - 1;
     }
 }
\ No newline at end of file
@@ -0,0 +1,305 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Three-dimensional simplex noise generator, suitable for animating 2-D noise
+ * by using time as the 3rd coordinate.
+ * <p>
+ * Sums the contributions of the four corners of the tetrahedron containing
+ * each sample point. Hashing uses a doubled 256-entry permutation.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class Simplex3
+        implements Noise3 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * skew factor from input space to the lattice
+     */
+    final private static float skew = 1f / 3f;
+    /**
+     * unskew factor from the lattice to input space
+     */
+    final private static float unskew = 1f / 6f;
+    /**
+     * scale factor which brings the noise close to the range [-1, 1]
+     */
+    final private static float scale = 32f;
+    /**
+     * mask for wrapping lattice coordinates
+     */
+    final private static int mask = 0xff;
+    /**
+     * 1st coordinates of the gradient directions (midpoints of a cube's edges)
+     */
+    final private static float[] directionXs = {
+        1f, -1f, 1f, -1f, 1f, -1f, 1f, -1f, 0f, 0f, 0f, 0f
+    };
+    /**
+     * 2nd coordinates of the gradient directions
+     */
+    final private static float[] directionYs = {
+        1f, 1f, -1f, -1f, 0f, 0f, 0f, 0f, 1f, -1f, 1f, -1f
+    };
+    /**
+     * 3rd coordinates of the gradient directions
+     */
+    final private static float[] directionZs = {
+        0f, 0f, 0f, 0f, 1f, 1f, -1f, -1f, 1f, 1f, -1f, -1f
+    };
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(Simplex3.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * 1st coordinate of the gradient for each hashed index: set by
+     * constructor
+     */
+    final private float[] gradientXs = new float[2 * (mask + 1)];
+    /**
+     * 2nd coordinate of the gradient for each hashed index: set by
+     * constructor
+     */
+    final private float[] gradientYs = new float[2 * (mask + 1)];
+    /**
+     * 3rd coordinate of the gradient for each hashed index: set by
+     * constructor
+     */
+    final private float[] gradientZs = new float[2 * (mask + 1)];
+    /**
+     * permutation for hashing, stored twice over: set by constructor
+     */
+    final private int[] hashes = new int[2 * (mask + 1)];
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a generator with the specified seed. Generators with the
+     * same seed produce identical noise.
+     *
+     * @param seed seed for generating the permutation
+     */
+    public Simplex3(long seed) {
+        Permutation permutation = new Permutation(mask + 1, seed);
+        for (int index = 0; index < hashes.length; index++) {
+            int hash = permutation.permute(index);
+            hashes[index] = hash;
+            int direction = hash % directionXs.length;
+            gradientXs[index] = directionXs[direction];
+            gradientYs[index] = directionYs[direction];
+            gradientZs[index] = directionZs[direction];
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Sample the noise function on a regular rectangular grid of points in a
+     * plane of constant Z. The sample at (x0 + column*dx, y0 + row*dy,
+     * sampleZ) is stored at storeResult[row*width + column].
+     *
+     * @param storeResult array to fill (not null, length&ge;width*height)
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param sampleZ 3rd coordinate of every sample point
+     * @param dx increment in the 1st coordinate between columns
+     * @param dy increment in the 2nd coordinate between rows
+     * @param width number of columns (&gt;0)
+     * @param height number of rows (&gt;0)
+     */
+    public void sampleGrid(float[] storeResult, float x0, float y0,
+            float sampleZ, float dx, float dy, int width, int height) {
+        Validate.nonNull(storeResult, "result array");
+        Validate.positive(width, "width");
+        Validate.positive(height, "height");
+        if (storeResult.length < (long) width * height) {
+            logger.log(Level.SEVERE, "length={0}", storeResult.length);
+            throw new IllegalArgumentException(
+                    "result array should hold at least width*height samples");
+        }
+
+        for (int row = 0; row < height; row++) {
+            float sampleY = y0 + row * dy;
+            int base = row * width;
+            for (int column = 0; column < width; column++) {
+                float sampleX = x0 + column * dx;
+                storeResult[base + column] = sample(sampleX, sampleY, sampleZ);
+            }
+        }
+    }
+    // *************************************************************************
+    // Noise3 methods
+
+    /**
+     * Sample the noise function at a specified point.
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @param sampleZ 3rd coordinate of the sample point
+     * @return noise value (approximately &le;1, &ge;-1)
+     */
+    @Override
+    public float sample(float sampleX, float sampleY, float sampleZ) {
+        /*
+         * Skew the input space to determine which cell contains the point,
+         * then unskew the cell origin back.
+         */
+        float s = (sampleX + sampleY + sampleZ) * skew;
+        int i = fastFloor(sampleX + s);
+        int j = fastFloor(sampleY + s);
+        int k = fastFloor(sampleZ + s);
+        float t = (i + j + k) * unskew;
+        float x0 = sampleX - (i - t);
+        float y0 = sampleY - (j - t);
+        float z0 = sampleZ - (k - t);
+        /*
+         * Rank the offsets to determine which of the cell's six tetrahedra
+         * contains the point: the largest offset is stepped first.
+         */
+        int rankX = 0, rankY = 0, rankZ = 0;
+        if (x0 > y0) {
+            rankX++;
+        } else {
+            rankY++;
+        }
+        if (x0 > z0) {
+            rankX++;
+        } else {
+            rankZ++;
+        }
+        if (y0 > z0) {
+            rankY++;
+        } else {
+            rankZ++;
+        }
+        int i1 = (rankX >= 2) ? 1 : 0;
+        int j1 = (rankY >= 2) ? 1 : 0;
+        int k1 = (rankZ >= 2) ? 1 : 0;
+        int i2 = (rankX >= 1) ? 1 : 0;
+        int j2 = (rankY >= 1) ? 1 : 0;
+        int k2 = (rankZ >= 1) ? 1 : 0;
+        /*
+         * Offsets from the remaining three corners.
+         */
+        float x1 = x0 - i1 + unskew;
+        float y1 = y0 - j1 + unskew;
+        float z1 = z0 - k1 + unskew;
+        float x2 = x0 - i2 + 2f * unskew;
+        float y2 = y0 - j2 + 2f * unskew;
+        float z2 = z0 - k2 + 2f * unskew;
+        float x3 = x0 - 1f + 3f * unskew;
+        float y3 = y0 - 1f + 3f * unskew;
+        float z3 = z0 - 1f + 3f * unskew;
+        /*
+         * Hash the corners and sum their contributions.
+         */
+        int ii = i & mask;
+        int jj = j & mask;
+        int kk = k & mask;
+        int g0 = ii + hashes[jj + hashes[kk]];
+        int g1 = ii + i1 + hashes[jj + j1 + hashes[kk + k1]];
+        int g2 = ii + i2 + hashes[jj + j2 + hashes[kk + k2]];
+        int g3 = ii + 1 + hashes[jj + 1 + hashes[kk + 1]];
+
+        float n = contribution(g0, x0, y0, z0)
+                + contribution(g1, x1, y1, z1)
+                + contribution(g2, x2, y2, z2)
+                + contribution(g3, x3, y3, z3);
+        float result = scale * n;
+
+        return result;
+    }
+
+    /**
+     * Sample the noise function at a specified point and normalize it to the
+     * range [-1, 1].
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @param sampleZ 3rd coordinate of the sample point
+     * @return normalized noise value (&le;1, &ge;-1)
+     */
+    @Override
+    public float sampleNormalized(float sampleX, float sampleY,
+            float sampleZ) {
+        float noise = sample(sampleX, sampleY, sampleZ);
+        noise = MyMath.clamp(noise, 1f);
+
+        assert noise >= -1f : noise;
+        assert noise <= 1f : noise;
+        return noise;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Compute the contribution of a specified corner to a noise sample.
+     *
+     * @param hashIndex index into the gradient tables (&ge;0, &lt;512)
+     * @param offsetX 1st coordinate of the sample's offset from the corner
+     * @param offsetY 2nd coordinate of the sample's offset from the corner
+     * @param offsetZ 3rd coordinate of the sample's offset from the corner
+     * @return contribution
+     */
+    private float contribution(int hashIndex, float offsetX, float offsetY,
+            float offsetZ) {
+        float falloff = 0.6f - offsetX * offsetX - offsetY * offsetY
+                - offsetZ * offsetZ;
+        if (falloff <= 0f) {
+            return 0f;
+        }
+        falloff *= falloff;
+        float dot = gradientXs[hashIndex] * offsetX
+                + gradientYs[hashIndex] * offsetY
+                + gradientZs[hashIndex] * offsetZ;
+        float result = falloff * falloff * dot;
+
+        return result;
+    }
+
+    /**
+     * Round a single-precision value down to an integer.
+     *
+     * @param fValue input value
+     * @return largest integer &le;fValue
+     */
+    private static int fastFloor(float fValue) {
+        int truncated = (int) fValue;
+        int result = (fValue < truncated) ? truncated - 1 : truncated;
+
+        return result;
+    }
+}
\ No newline at end of file
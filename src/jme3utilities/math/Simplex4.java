@@ -0,0 +1,346 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math;
+
+import com.jme3.math.FastMath;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Four-dimensional simplex noise generator, suitable for animating 3-D noise
+ * by using time as the 4th coordinate.
+ * <p>
+ * Sums the contributions of the five corners of the simplex containing each
+ * sample point, which scales much better to four dimensions than the 16
+ * corners of a Perlin hypercube. Hashing uses a doubled 256-entry
+ * permutation.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class Simplex4
+        implements Noise4 {
+    // *************************************************************************
+    // constants
+
+    /**
+     * skew factor from input space to the lattice: (sqrt(5)-1)/4
+     */
+    final private static float skew = (FastMath.sqrt(5f) - 1f) / 4f;
+    /**
+     * unskew factor from the lattice to input space: (5-sqrt(5))/20
+     */
+    final private static float unskew = (5f - FastMath.sqrt(5f)) / 20f;
+    /**
+     * scale factor which brings the noise close to the range [-1, 1]
+     */
+    final private static float scale = 27f;
+    /**
+     * mask for wrapping lattice coordinates
+     */
+    final private static int mask = 0xff;
+    /**
+     * number of gradient directions (midpoints of a tesseract's edges)
+     */
+    final private static int numDirections = 32;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(Simplex4.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * 4th coordinate of the gradient for each hashed index: set by
+     * constructor
+     */
+    final private float[] gradientWs = new float[2 * (mask + 1)];
+    /**
+     * 1st coordinate of the gradient for each hashed index: set by
+     * constructor
+     */
+    final private float[] gradientXs = new float[2 * (mask + 1)];
+    /**
+     * 2nd coordinate of the gradient for each hashed index: set by
+     * constructor
+     */
+    final private float[] gradientYs = new float[2 * (mask + 1)];
+    /**
+     * 3rd coordinate of the gradient for each hashed index: set by
+     * constructor
+     */
+    final private float[] gradientZs = new float[2 * (mask + 1)];
+    /**
+     * permutation for hashing, stored twice over: set by constructor
+     */
+    final private int[] hashes = new int[2 * (mask + 1)];
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a generator with the specified seed. Generators with the
+     * same seed produce identical noise.
+     *
+     * @param seed seed for generating the permutation
+     */
+    public Simplex4(long seed) {
+        Permutation permutation = new Permutation(mask + 1, seed);
+        float[] direction = new float[4];
+        for (int index = 0; index < hashes.length; index++) {
+            int hash = permutation.permute(index);
+            hashes[index] = hash;
+            /*
+             * Each direction has one zero coordinate and three
+             * coordinates of +/-1.
+             */
+            int code = hash % numDirections;
+            int zeroAxis = code >> 3;
+            int signBits = code & 0x7;
+            int bit = 0;
+            for (int axis = 0; axis < 4; axis++) {
+                if (axis == zeroAxis) {
+                    direction[axis] = 0f;
+                } else {
+                    boolean negative = ((signBits >> bit) & 0x1) != 0;
+                    direction[axis] = negative ? -1f : 1f;
+                    bit++;
+                }
+            }
+            gradientXs[index] = direction[0];
+            gradientYs[index] = direction[1];
+            gradientZs[index] = direction[2];
+            gradientWs[index] = direction[3];
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Sample the noise function on a regular rectangular grid of points in a
+     * plane of constant Z and W. The sample at (x0 + column*dx, y0 + row*dy,
+     * sampleZ, sampleW) is stored at storeResult[row*width + column].
+     *
+     * @param storeResult array to fill (not null, length&ge;width*height)
+     * @param x0 1st coordinate of the 1st sample point
+     * @param y0 2nd coordinate of the 1st sample point
+     * @param sampleZ 3rd coordinate of every sample point
+     * @param sampleW 4th coordinate of every sample point
+     * @param dx increment in the 1st coordinate between columns
+     * @param dy increment in the 2nd coordinate between rows
+     * @param width number of columns (&gt;0)
+     * @param height number of rows (&gt;0)
+     */
+    public void sampleGrid(float[] storeResult, float x0, float y0,
+            float sampleZ, float sampleW, float dx, float dy, int width,
+            int height) {
+        Validate.nonNull(storeResult, "result array");
+        Validate.positive(width, "width");
+        Validate.positive(height, "height");
+        if (storeResult.length < (long) width * height) {
+            logger.log(Level.SEVERE, "length={0}", storeResult.length);
+            throw new IllegalArgumentException(
+                    "result array should hold at least width*height samples");
+        }
+
+        for (int row = 0; row < height; row++) {
+            float sampleY = y0 + row * dy;
+            int base = row * width;
+            for (int column = 0; column < width; column++) {
+                float sampleX = x0 + column * dx;
+                storeResult[base + column] =
+                        sample(sampleX, sampleY, sampleZ, sampleW);
+            }
+        }
+    }
+    // *************************************************************************
+    // Noise4 methods
+
+    /**
+     * Sample the noise function at a specified point.
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @param sampleZ 3rd coordinate of the sample point
+     * @param sampleW 4th coordinate of the sample point
+     * @return noise value (approximately &le;1, &ge;-1)
+     */
+    @Override
+    public float sample(float sampleX, float sampleY, float sampleZ,
+            float sampleW) {
+        /*
+         * Skew the input space to determine which cell contains the point,
+         * then unskew the cell origin back.
+         */
+        float s = (sampleX + sampleY + sampleZ + sampleW) * skew;
+        int i = fastFloor(sampleX + s);
+        int j = fastFloor(sampleY + s);
+        int k = fastFloor(sampleZ + s);
+        int l = fastFloor(sampleW + s);
+        float t = (i + j + k + l) * unskew;
+        float x0 = sampleX - (i - t);
+        float y0 = sampleY - (j - t);
+        float z0 = sampleZ - (k - t);
+        float w0 = sampleW - (l - t);
+        /*
+         * Rank the offsets to determine which of the cell's 24 simplices
+         * contains the point: the largest offset is stepped first.
+         */
+        int rankX = 0, rankY = 0, rankZ = 0, rankW = 0;
+        if (x0 > y0) {
+            rankX++;
+        } else {
+            rankY++;
+        }
+        if (x0 > z0) {
+            rankX++;
+        } else {
+            rankZ++;
+        }
+        if (x0 > w0) {
+            rankX++;
+        } else {
+            rankW++;
+        }
+        if (y0 > z0) {
+            rankY++;
+        } else {
+            rankZ++;
+        }
+        if (y0 > w0) {
+            rankY++;
+        } else {
+            rankW++;
+        }
+        if (z0 > w0) {
+            rankZ++;
+        } else {
+            rankW++;
+        }
+        int i1 = (rankX >= 3) ? 1 : 0;
+        int j1 = (rankY >= 3) ? 1 : 0;
+        int k1 = (rankZ >= 3) ? 1 : 0;
+        int l1 = (rankW >= 3) ? 1 : 0;
+        int i2 = (rankX >= 2) ? 1 : 0;
+        int j2 = (rankY >= 2) ? 1 : 0;
+        int k2 = (rankZ >= 2) ? 1 : 0;
+        int l2 = (rankW >= 2) ? 1 : 0;
+        int i3 = (rankX >= 1) ? 1 : 0;
+        int j3 = (rankY >= 1) ? 1 : 0;
+        int k3 = (rankZ >= 1) ? 1 : 0;
+        int l3 = (rankW >= 1) ? 1 : 0;
+        /*
+         * Hash the corners and sum their contributions.
+         */
+        int ii = i & mask;
+        int jj = j & mask;
+        int kk = k & mask;
+        int ll = l & mask;
+        int g0 = ii + hashes[jj + hashes[kk + hashes[ll]]];
+        int g1 = ii + i1 + hashes[jj + j1 + hashes[kk + k1 + hashes[ll + l1]]];
+        int g2 = ii + i2 + hashes[jj + j2 + hashes[kk + k2 + hashes[ll + l2]]];
+        int g3 = ii + i3 + hashes[jj + j3 + hashes[kk + k3 + hashes[ll + l3]]];
+        int g4 = ii + 1 + hashes[jj + 1 + hashes[kk + 1 + hashes[ll + 1]]];
+
+        float n = contribution(g0, x0, y0, z0, w0)
+                + contribution(g1, x0 - i1 + unskew, y0 - j1 + unskew,
+                z0 - k1 + unskew, w0 - l1 + unskew)
+                + contribution(g2, x0 - i2 + 2f * unskew,
+                y0 - j2 + 2f * unskew, z0 - k2 + 2f * unskew,
+                w0 - l2 + 2f * unskew)
+                + contribution(g3, x0 - i3 + 3f * unskew,
+                y0 - j3 + 3f * unskew, z0 - k3 + 3f * unskew,
+                w0 - l3 + 3f * unskew)
+                + contribution(g4, x0 - 1f + 4f * unskew,
+                y0 - 1f + 4f * unskew, z0 - 1f + 4f * unskew,
+                w0 - 1f + 4f * unskew);
+        float result = scale * n;
+
+        return result;
+    }
+
+    /**
+     * Sample the noise function at a specified point and normalize it to the
+     * range [-1, 1].
+     *
+     * @param sampleX 1st coordinate of the sample point
+     * @param sampleY 2nd coordinate of the sample point
+     * @param sampleZ 3rd coordinate of the sample point
+     * @param sampleW 4th coordinate of the sample point
+     * @return normalized noise value (&le;1, &ge;-1)
+     */
+    @Override
+    public float sampleNormalized(float sampleX, float sampleY, float sampleZ,
+            float sampleW) {
+        float noise = sample(sampleX, sampleY, sampleZ, sampleW);
+        noise = MyMath.clamp(noise, 1f);
+
+        assert noise >= -1f : noise;
+        assert noise <= 1f : noise;
+        return noise;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Compute the contribution of a specified corner to a noise sample.
+     *
+     * @param hashIndex index into the gradient tables (&ge;0, &lt;512)
+     * @param offsetX 1st coordinate of the sample's offset from the corner
+     * @param offsetY 2nd coordinate of the sample's offset from the corner
+     * @param offsetZ 3rd coordinate of the sample's offset from the corner
+     * @param offsetW 4th coordinate of the sample's offset from the corner
+     * @return contribution
+     */
+    private float contribution(int hashIndex, float offsetX, float offsetY,
+            float offsetZ, float offsetW) {
+        float falloff = 0.6f - offsetX * offsetX - offsetY * offsetY
+                - offsetZ * offsetZ - offsetW * offsetW;
+        if (falloff <= 0f) {
+            return 0f;
+        }
+        falloff *= falloff;
+        float dot = gradientXs[hashIndex] * offsetX
+                + gradientYs[hashIndex] * offsetY
+                + gradientZs[hashIndex] * offsetZ
+                + gradientWs[hashIndex] * offsetW;
+        float result = falloff * falloff * dot;
+
+        return result;
+    }
+
+    /**
+     * Round a single-precision value down to an integer.
+     *
+     * @param fValue input value
+     * @return largest integer &le;fValue
+     */
+    private static int fastFloor(float fValue) {
+        int truncated = (int) fValue;
+        int result = (fValue < truncated) ? truncated - 1 : truncated;
+
+        return result;
+    }
+}
\ No newline at end of file
@@ -26,6 +26,7 @@
 package jme3utilities.math;
 
 import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
 
 /**
  * Interface for three-dimensional spline interpolation.
@@ -42,6 +43,15 @@ public interface Spline3f {
      */
     Vector3f getControlPoint(int index);
 
+    /**
+     * Copy the specified control point of this spline.
+     *
+     * @param index index of the control point (&ge;0)
+     * @param storeResult (modified if not null)
+     * @return the control point (either storeResult or a new instance)
+     */
+    Vector3f getControlPoint(int index, Vector3f storeResult);
+
     /**
      * Interpolate the spline at the specified parameter value.
      *
@@ -50,6 +60,15 @@ public interface Spline3f {
      */
     Vector3f interpolate(float sampleT);
 
+    /**
+     * Interpolate the spline at the specified parameter value.
+     *
+     * @param sampleT input value
+     * @param storeResult (modified if not null)
+     * @return the interpolated value (either storeResult or a new instance)
+     */
+    Vector3f interpolate(float sampleT, Vector3f storeResult);
+
     /**
      * Read the number of control points.
      *
@@ -66,6 +85,47 @@ public interface Spline3f {
      */
     Vector3f rightDerivative(float sampleT);
 
+    /**
+     * Compute the spline's 1st derivative to the right of the specified
+     * parameter value.
+     *
+     * @param sampleT input value
+     * @param storeResult (modified if not null)
+     * @return the derivative (either storeResult or a new instance)
+     */
+    Vector3f rightDerivative(float sampleT, Vector3f storeResult);
+
+    /**
+     * Sample the spline at evenly-spaced parameter values, writing the
+     * results directly into buffers. Each buffer is written starting at its
+     * current position, which advances past the samples.
+     *
+     * @param startT parameter value of the 1st sample
+     * @param endT parameter value of the last sample (ignored if
+     * numSamples=1)
+     * @param numSamples number of samples (&ge;1)
+     * @param storePositions buffer for the locations, as x, y, z triplets (not
+     * null, remaining&ge;3*numSamples)
+     * @param storeTangents buffer for the unit tangents, as x, y, z triplets
+     * (remaining&ge;3*numSamples) or null to skip tangents
+     */
+    void sample(float startT, float endT, int numSamples,
+            FloatBuffer storePositions, FloatBuffer storeTangents);
+
+    /**
+     * Sample the spline at evenly-spaced path lengths from start to end,
+     * writing the results directly into buffers. Each buffer is written
+     * starting at its current position, which advances past the samples.
+     *
+     * @param numSamples number of samples (&ge;1)
+     * @param storePositions buffer for the locations, as x, y, z triplets (not
+     * null, remaining&ge;3*numSamples)
+     * @param storeTangents buffer for the unit tangents, as x, y, z triplets
+     * (remaining&ge;3*numSamples) or null to skip tangents
+     */
+    void sampleByLength(int numSamples, FloatBuffer storePositions,
+            FloatBuffer storeTangents);
+
     /**
      * Read the total path length of this spline.
      *
@@ -0,0 +1,219 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.math.test;
+
+import java.util.logging.Logger;
+import jme3utilities.math.FastPerlin2;
+import jme3utilities.math.Noise2;
+import jme3utilities.math.Noise3;
+import jme3utilities.math.Noise4;
+import jme3utilities.math.Perlin2;
+import jme3utilities.math.Simplex2;
+import jme3utilities.math.Simplex3;
+import jme3utilities.math.Simplex4;
+
+/**
+ * Console application to compare the per-sample cost of the noise generators
+ * in the jme3utilities.math package, both one sample at a time and in bulk.
+ * The application's main entry point is here.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NoiseBenchmark {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of timed passes for each generator (the 1st pass warms up the
+     * JIT and isn't reported)
+     */
+    final private static int numPasses = 6;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NoiseBenchmark.class.getName());
+    /**
+     * distance between adjacent sample points
+     */
+    final private static float spacing = 0.037f;
+    /**
+     * number of samples along each edge of the grid
+     */
+    final private static int gridSize = 512;
+    /**
+     * seed for all generators
+     */
+    final private static long seed = 6_719_231L;
+    // *************************************************************************
+    // fields
+    /**
+     * sum of all samples, printed so the JIT can't discard the work
+     */
+    private static double checksum = 0.0;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the NoiseBenchmark application.
+     *
+     * @param ignored array of command-line arguments
+     */
+    public static void main(String[] ignored) {
+        System.out.printf("Noise benchmark, %d x %d samples per pass:%n%n",
+                gridSize, gridSize);
+
+        Perlin2 perlin2 = new Perlin2(256, 256, seed, seed);
+        FastPerlin2 fastPerlin2 = new FastPerlin2(256, 256, seed, seed);
+        Simplex2 simplex2 = new Simplex2(seed);
+        Simplex3 simplex3 = new Simplex3(seed);
+        Simplex4 simplex4 = new Simplex4(seed);
+        float[] grid = new float[gridSize * gridSize];
+
+        for (int pass = 0; pass < numPasses; pass++) {
+            boolean report = (pass > 0);
+            if (report) {
+                System.out.printf("pass %d:%n", pass);
+            }
+
+            long start = System.nanoTime();
+            sample(perlin2);
+            report(report, "Perlin2.sample", start);
+
+            start = System.nanoTime();
+            sample(fastPerlin2);
+            report(report, "FastPerlin2.sample", start);
+
+            start = System.nanoTime();
+            fastPerlin2.sampleGrid(grid, 0f, 0f, spacing, spacing, gridSize,
+                    gridSize);
+            checksum += grid[pass];
+            report(report, "FastPerlin2.sampleGrid", start);
+
+            start = System.nanoTime();
+            sample(simplex2);
+            report(report, "Simplex2.sample", start);
+
+            start = System.nanoTime();
+            simplex2.sampleGrid(grid, 0f, 0f, spacing, spacing, gridSize,
+                    gridSize);
+            checksum += grid[pass];
+            report(report, "Simplex2.sampleGrid", start);
+
+            start = System.nanoTime();
+            sample(simplex3, 0.5f);
+            report(report, "Simplex3.sample", start);
+
+            start = System.nanoTime();
+            sample(simplex4, 0.5f, 0.25f);
+            report(report, "Simplex4.sample", start);
+
+            if (report) {
+                System.out.println();
+            }
+        }
+        System.out.printf("checksum=%f%n", checksum);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Print the average time per sample, if requested.
+     *
+     * @param report true to print, false to skip
+     * @param description description of what was timed (not null)
+     * @param startNanos value of System.nanoTime() when timing began
+     */
+    private static void report(boolean report, String description,
+            long startNanos) {
+        assert description != null;
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (report) {
+            double numSamples = gridSize * gridSize;
+            double nanosPerSample = elapsedNanos / numSamples;
+            System.out.printf("  %-24s %7.2f ns/sample%n", description,
+                    nanosPerSample);
+        }
+    }
+
+    /**
+     * Sample a 2-D generator over the grid, one sample at a time through its
+     * interface.
+     *
+     * @param generator generator to sample (not null)
+     */
+    private static void sample(Noise2 generator) {
+        float sum = 0f;
+        for (int row = 0; row < gridSize; row++) {
+            float y = row * spacing;
+            for (int column = 0; column < gridSize; column++) {
+                float x = column * spacing;
+                sum += generator.sample(x, y);
+            }
+        }
+        checksum += sum;
+    }
+
+    /**
+     * Sample a 3-D generator over a slice of the grid, one sample at a time
+     * through its interface.
+     *
+     * @param generator generator to sample (not null)
+     * @param z 3rd coordinate of the slice
+     */
+    private static void sample(Noise3 generator, float z) {
+        float sum = 0f;
+        for (int row = 0; row < gridSize; row++) {
+            float y = row * spacing;
+            for (int column = 0; column < gridSize; column++) {
+                float x = column * spacing;
+                sum += generator.sample(x, y, z);
+            }
+        }
+        checksum += sum;
+    }
+
+    /**
+     * Sample a 4-D generator over a slice of the grid, one sample at a time
+     * through its interface.
+     *
+     * @param generator generator to sample (not null)
+     * @param z 3rd coordinate of the slice
+     * @param w 4th coordinate of the slice
+     */
+    private static void sample(Noise4 generator, float z, float w) {
+        float sum = 0f;
+        for (int row = 0; row < gridSize; row++) {
+            float y = row * spacing;
+            for (int column = 0; column < gridSize; column++) {
+                float x = column * spacing;
+                sum += generator.sample(x, y, z, w);
+            }
+        }
+        checksum += sum;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,336 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Immutable, compact snapshot of a navigation graph, for fast queries. Vertices
+ * are identified by dense integer ids (equal to their indices in the source
+ * graph) and arcs by their positions in compressed-sparse-row (CSR) order: the
+ * arcs originating from vertex v have ids in the range
+ * [firstArc(v), endArc(v)).
+ * <p>
+ * Snapshots are created using {@link NavGraph#freeze()} and are unaffected by
+ * later changes to the graph. Since they are immutable, they may be shared
+ * between threads.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class CompactNavGraph {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(CompactNavGraph.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * path length of each arc, indexed by arc id
+     */
+    final private float[] arcLengths;
+    /**
+     * world coordinates of each vertex, packed as x, y, z triplets and indexed
+     * by 3 * vertex id
+     */
+    final private float[] locations;
+    /**
+     * id of the 1st arc originating from each vertex, indexed by vertex id,
+     * plus a final entry equal to numArcs
+     */
+    final private int[] offsets;
+    /**
+     * id of the origin vertex of each arc, indexed by arc id
+     */
+    final private int[] sources;
+    /**
+     * id of the destination vertex of each arc, indexed by arc id
+     */
+    final private int[] targets;
+    /**
+     * original arcs, indexed by arc id
+     */
+    final private NavArc[] arcs;
+    /**
+     * original vertices, indexed by vertex id
+     */
+    final private NavVertex[] vertices;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a snapshot of the specified graph.
+     *
+     * @param graph graph to copy (not null)
+     */
+    CompactNavGraph(NavGraph graph) {
+        assert graph != null;
+
+        int numVertices = graph.numVertices();
+        int numArcs = graph.numArcs();
+        vertices = new NavVertex[numVertices];
+        locations = new float[3 * numVertices];
+        offsets = new int[numVertices + 1];
+        arcs = new NavArc[numArcs];
+        arcLengths = new float[numArcs];
+        sources = new int[numArcs];
+        targets = new int[numArcs];
+
+        int arcId = 0;
+        for (int vertexId = 0; vertexId < numVertices; vertexId++) {
+            NavVertex vertex = graph.getVertex(vertexId);
+            vertices[vertexId] = vertex;
+            Vector3f location = vertex.getLocation();
+            locations[3 * vertexId] = location.x;
+            locations[3 * vertexId + 1] = location.y;
+            locations[3 * vertexId + 2] = location.z;
+
+            offsets[vertexId] = arcId;
+            int numVertexArcs = vertex.getNumArcs();
+            for (int arcIndex = 0; arcIndex < numVertexArcs; arcIndex++) {
+                NavArc arc = vertex.getArc(arcIndex);
+                arcs[arcId] = arc;
+                arcLengths[arcId] = arc.getPathLength();
+                sources[arcId] = vertexId;
+                targets[arcId] = arc.getToVertex().getIndex();
+                arcId++;
+            }
+        }
+        offsets[numVertices] = arcId;
+        assert arcId == numArcs : arcId;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the path length (cost) of the identified arc.
+     *
+     * @param arcId (&ge;0, &lt;numArcs)
+     * @return length (&gt;0, world units)
+     */
+    public float arcLength(int arcId) {
+        float result = arcLengths[arcId];
+        return result;
+    }
+
+    /**
+     * Read the id of the vertex from which the identified arc originates.
+     *
+     * @param arcId (&ge;0, &lt;numArcs)
+     * @return vertex id (&ge;0, &lt;numVertices)
+     */
+    public int arcSource(int arcId) {
+        int result = sources[arcId];
+        return result;
+    }
+
+    /**
+     * Read the id of the vertex at which the identified arc terminates.
+     *
+     * @param arcId (&ge;0, &lt;numArcs)
+     * @return vertex id (&ge;0, &lt;numVertices)
+     */
+    public int arcTarget(int arcId) {
+        int result = targets[arcId];
+        return result;
+    }
+
+    /**
+     * Copy the world coordinates of the identified vertex.
+     *
+     * @param vertexId (&ge;0, &lt;numVertices)
+     * @param storeResult (modified if not null)
+     * @return vector (either storeResult or a new instance)
+     */
+    public Vector3f copyLocation(int vertexId, Vector3f storeResult) {
+        if (storeResult == null) {
+            storeResult = new Vector3f();
+        }
+        int base = 3 * vertexId;
+        storeResult.set(locations[base], locations[base + 1],
+                locations[base + 2]);
+
+        return storeResult;
+    }
+
+    /**
+     * Compute the straight-line distance between two identified vertices.
+     *
+     * @param vertexId1 (&ge;0, &lt;numVertices)
+     * @param vertexId2 (&ge;0, &lt;numVertices)
+     * @return distance (in world units, &ge;0)
+     */
+    public float distance(int vertexId1, int vertexId2) {
+        int base1 = 3 * vertexId1;
+        int base2 = 3 * vertexId2;
+        float dx = locations[base2] - locations[base1];
+        float dy = locations[base2 + 1] - locations[base1 + 1];
+        float dz = locations[base2 + 2] - locations[base1 + 2];
+        float result = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        return result;
+    }
+
+    /**
+     * Read the id just past the last arc originating from the identified
+     * vertex.
+     *
+     * @param vertexId (&ge;0, &lt;numVertices)
+     * @return arc id (&ge;firstArc(vertexId), &le;numArcs)
+     */
+    public int endArc(int vertexId) {
+        int result = offsets[vertexId + 1];
+        return result;
+    }
+
+    /**
+     * Find the id of the arc from one identified vertex to another.
+     *
+     * @param fromId (&ge;0, &lt;numVertices)
+     * @param toId (&ge;0, &lt;numVertices)
+     * @return arc id (&ge;0) or -1 if none found
+     */
+    public int findArc(int fromId, int toId) {
+        int end = offsets[fromId + 1];
+        for (int arcId = offsets[fromId]; arcId < end; arcId++) {
+            if (targets[arcId] == toId) {
+                return arcId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the id of the specified vertex.
+     *
+     * @param vertex (not null)
+     * @return vertex id (&ge;0) or -1 if the vertex isn't in this snapshot
+     */
+    public int findVertex(NavVertex vertex) {
+        Validate.nonNull(vertex, "vertex");
+
+        int result = vertex.getIndex();
+        if (result < 0 || result >= vertices.length
+                || vertices[result] != vertex) {
+            result = -1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the id of the 1st arc originating from the identified vertex.
+     *
+     * @param vertexId (&ge;0, &lt;numVertices)
+     * @return arc id (&ge;0, &le;numArcs)
+     */
+    public int firstArc(int vertexId) {
+        int result = offsets[vertexId];
+        return result;
+    }
+
+    /**
+     * Access the original arc with the specified id.
+     *
+     * @param arcId (&ge;0, &lt;numArcs)
+     * @return pre-existing instance
+     */
+    public NavArc getArc(int arcId) {
+        NavArc result = arcs[arcId];
+        return result;
+    }
+
+    /**
+     * Access the original vertex with the specified id.
+     *
+     * @param vertexId (&ge;0, &lt;numVertices)
+     * @return pre-existing instance
+     */
+    public NavVertex getVertex(int vertexId) {
+        NavVertex result = vertices[vertexId];
+        return result;
+    }
+
+    /**
+     * Count the arcs in this snapshot.
+     *
+     * @return number of arcs (&ge;0)
+     */
+    public int numArcs() {
+        int result = arcs.length;
+        return result;
+    }
+
+    /**
+     * Count the vertices in this snapshot.
+     *
+     * @return number of vertices (&ge;0)
+     */
+    public int numVertices() {
+        int result = vertices.length;
+        return result;
+    }
+
+    /**
+     * Validate an arc id.
+     *
+     * @param arcId id to validate
+     * @param description description of the id (not null)
+     * @throws IllegalArgumentException if the id is out of range
+     */
+    public void validateArc(int arcId, String description) {
+        if (arcId < 0 || arcId >= arcs.length) {
+            logger.log(Level.SEVERE, "{0}={1}",
+                    new Object[]{description, arcId});
+            String message = String.format("%s should be a valid arc id",
+                    description);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Validate a vertex id.
+     *
+     * @param vertexId id to validate
+     * @param description description of the id (not null)
+     * @throws IllegalArgumentException if the id is out of range
+     */
+    public void validateVertex(int vertexId, String description) {
+        if (vertexId < 0 || vertexId >= vertices.length) {
+            logger.log(Level.SEVERE, "{0}={1}",
+                    new Object[]{description, vertexId});
+            String message = String.format("%s should be a valid vertex id",
+                    description);
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,476 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Search workspace for a compact navigation-graph snapshot: shortest paths
+ * (Dijkstra/A*), hop counts, and connectivity. All scratch storage is
+ * allocated by the constructor, so queries (other than those which return new
+ * objects) don't allocate. Each thread should use its own instance.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class CompactSearch {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(CompactSearch.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * snapshot being searched (not null)
+     */
+    final private CompactNavGraph graph;
+    /**
+     * best-known distance to each vertex, indexed by vertex id (valid only
+     * where the corresponding stamp is current)
+     */
+    final private float[] distances;
+    /**
+     * queue of vertices awaiting expansion by a best-first search
+     */
+    final private IndexedHeap heap;
+    /**
+     * hop count of each vertex, indexed by vertex id (valid only where the
+     * corresponding stamp is current)
+     */
+    final private int[] hopCounts;
+    /**
+     * id of the arc by which each vertex was reached (or -1 for a starting
+     * point), indexed by vertex id (valid only where the corresponding stamp
+     * is current)
+     */
+    final private int[] predecessors;
+    /**
+     * FIFO queue of vertex ids for breadth-first searches
+     */
+    final private int[] queue;
+    /**
+     * stamp of the search which last reached each vertex, indexed by vertex id
+     */
+    final private int[] stamps;
+    /**
+     * stamp of the current/most recent search
+     */
+    private int currentStamp = 0;
+    /**
+     * true if the most recent search measured distances, false if it counted
+     * hops
+     */
+    private boolean measuredDistances = false;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a workspace for the specified snapshot.
+     *
+     * @param graph snapshot to search (not null)
+     */
+    public CompactSearch(CompactNavGraph graph) {
+        Validate.nonNull(graph, "graph");
+
+        this.graph = graph;
+        int numVertices = graph.numVertices();
+        distances = new float[numVertices];
+        heap = new IndexedHeap(numVertices);
+        hopCounts = new int[numVertices];
+        predecessors = new int[numVertices];
+        queue = new int[numVertices];
+        stamps = new int[numVertices];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Measure the minimum distance from a starting point to every vertex,
+     * using Dijkstra's algorithm.
+     *
+     * @param startId id of the starting vertex (&ge;0, &lt;numVertices)
+     */
+    public void computeDistances(int startId) {
+        graph.validateVertex(startId, "start id");
+        search(startId, -1, null);
+    }
+
+    /**
+     * Measure the minimum number of hops from a starting point to every
+     * vertex, using breadth-first search.
+     *
+     * @param startId id of the starting vertex (&ge;0, &lt;numVertices)
+     */
+    public void computeHops(int startId) {
+        graph.validateVertex(startId, "start id");
+
+        beginStamp();
+        stamps[startId] = currentStamp;
+        predecessors[startId] = -1;
+        hopCounts[startId] = 0;
+        queue[0] = startId;
+        breadthFirst(1, -1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Measure the minimum number of hops from the nearest of several starting
+     * points to every vertex within the specified limit, using a
+     * multi-source breadth-first search.
+     *
+     * @param startIds ids of the starting vertices (not null, unaffected)
+     * @param numStarts number of elements of startIds to use (&ge;0,
+     * &le;startIds.length)
+     * @param maxHopCount maximum hop count to explore (&ge;0)
+     */
+    public void computeHops(int[] startIds, int numStarts, int maxHopCount) {
+        Validate.nonNull(startIds, "start ids");
+        Validate.nonNegative(numStarts, "number of starts");
+        Validate.nonNegative(maxHopCount, "max hop count");
+        for (int index = 0; index < numStarts; index++) {
+            graph.validateVertex(startIds[index], "start id");
+        }
+
+        beginStamp();
+        int queueLength = 0;
+        for (int index = 0; index < numStarts; index++) {
+            int startId = startIds[index];
+            if (stamps[startId] != currentStamp) {
+                stamps[startId] = currentStamp;
+                hopCounts[startId] = 0;
+                predecessors[startId] = -1;
+                queue[queueLength] = startId;
+                queueLength++;
+            }
+        }
+        breadthFirst(queueLength, -1, maxHopCount);
+    }
+
+    /**
+     * Copy the arc ids of the path to the identified vertex found by the most
+     * recent search.
+     *
+     * @param goalId id of the goal vertex (&ge;0, &lt;numVertices)
+     * @param storeArcIds array to fill with arc ids in path order (not null,
+     * length&ge;pathArcCount(goalId))
+     * @return number of arc ids stored (&ge;0) or -1 if the goal wasn't reached
+     */
+    public int copyPath(int goalId, int[] storeArcIds) {
+        Validate.nonNull(storeArcIds, "storage");
+
+        int count = pathArcCount(goalId);
+        if (count > storeArcIds.length) {
+            logger.log(Level.SEVERE, "count={0} length={1}",
+                    new Object[]{count, storeArcIds.length});
+            throw new IllegalArgumentException("storage is too small");
+        }
+        int vertexId = goalId;
+        for (int index = count - 1; index >= 0; index--) {
+            int arcId = predecessors[vertexId];
+            storeArcIds[index] = arcId;
+            vertexId = graph.arcSource(arcId);
+        }
+
+        return count;
+    }
+
+    /**
+     * Read the distance to the identified vertex calculated by the most recent
+     * distance search.
+     *
+     * @param vertexId (&ge;0, &lt;numVertices)
+     * @return distance (&ge;0) or +Infinity if the vertex wasn't reached
+     */
+    public float distance(int vertexId) {
+        graph.validateVertex(vertexId, "vertex id");
+
+        if (!measuredDistances) {
+            throw new IllegalStateException("no distance search performed");
+        }
+        if (stamps[vertexId] != currentStamp) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float result = distances[vertexId];
+
+        return result;
+    }
+
+    /**
+     * Find the shortest path from one identified vertex to another, using A*
+     * with the specified heuristic. The path may then be retrieved using
+     * {@link #copyPath(int, int[])} or {@link #toNavPath(int)}.
+     *
+     * @param startId id of the starting vertex (&ge;0, &lt;numVertices)
+     * @param goalId id of the goal vertex (&ge;0, &lt;numVertices)
+     * @param heuristic estimator of remaining cost (or null for Dijkstra's
+     * algorithm)
+     * @return path length (&ge;0) or +Infinity if the goal is unreachable
+     */
+    public float findPath(int startId, int goalId, NavHeuristic heuristic) {
+        graph.validateVertex(startId, "start id");
+        graph.validateVertex(goalId, "goal id");
+
+        search(startId, goalId, heuristic);
+        float result = distance(goalId);
+
+        return result;
+    }
+
+    /**
+     * Access the snapshot being searched.
+     *
+     * @return pre-existing instance
+     */
+    public CompactNavGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Read the hop count of the identified vertex calculated by the most
+     * recent hop search.
+     *
+     * @param vertexId (&ge;0, &lt;numVertices)
+     * @return number of hops (&ge;0) or -1 if the vertex wasn't reached
+     */
+    public int hopCount(int vertexId) {
+        graph.validateVertex(vertexId, "vertex id");
+
+        if (measuredDistances) {
+            throw new IllegalStateException("no hop search performed");
+        }
+        if (stamps[vertexId] != currentStamp) {
+            return -1;
+        }
+        int result = hopCounts[vertexId];
+
+        return result;
+    }
+
+    /**
+     * Test whether the destination of the identified arc would still be
+     * reachable from its origin if the arc were removed.
+     *
+     * @param arcId (&ge;0, &lt;numArcs)
+     * @return true if still connected, false if not
+     */
+    public boolean isConnectedWithout(int arcId) {
+        graph.validateArc(arcId, "arc id");
+
+        int fromId = graph.arcSource(arcId);
+        int toId = graph.arcTarget(arcId);
+
+        beginStamp();
+        stamps[fromId] = currentStamp;
+        predecessors[fromId] = -1;
+        hopCounts[fromId] = 0;
+        queue[0] = fromId;
+        breadthFirst(1, arcId, Integer.MAX_VALUE);
+        boolean result = (stamps[toId] == currentStamp);
+
+        return result;
+    }
+
+    /**
+     * Count the arcs in the path to the identified vertex found by the most
+     * recent search.
+     *
+     * @param goalId id of the goal vertex (&ge;0, &lt;numVertices)
+     * @return number of arcs (&ge;0) or -1 if the goal wasn't reached
+     */
+    public int pathArcCount(int goalId) {
+        graph.validateVertex(goalId, "goal id");
+
+        if (stamps[goalId] != currentStamp) {
+            return -1;
+        }
+        int count = 0;
+        for (int arcId = predecessors[goalId]; arcId != -1;) {
+            int vertexId = graph.arcSource(arcId);
+            arcId = predecessors[vertexId];
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Read the id of the arc by which the identified vertex was reached in the
+     * most recent search.
+     *
+     * @param vertexId (&ge;0, &lt;numVertices)
+     * @return arc id (&ge;0) or -1 if the vertex was a starting point or
+     * wasn't reached
+     */
+    public int predecessor(int vertexId) {
+        graph.validateVertex(vertexId, "vertex id");
+
+        if (stamps[vertexId] != currentStamp) {
+            return -1;
+        }
+        int result = predecessors[vertexId];
+
+        return result;
+    }
+
+    /**
+     * Construct a NavPath to the identified vertex from the most recent
+     * search.
+     *
+     * @param goalId id of the goal vertex (&ge;0, &lt;numVertices)
+     * @return new path (or null if the goal wasn't reached)
+     */
+    public NavPath toNavPath(int goalId) {
+        graph.validateVertex(goalId, "goal id");
+
+        if (stamps[goalId] != currentStamp) {
+            return null;
+        }
+        List<NavArc> arcList = new ArrayList<>(20);
+        int vertexId = goalId;
+        for (int arcId = predecessors[goalId]; arcId != -1;) {
+            arcList.add(graph.getArc(arcId));
+            vertexId = graph.arcSource(arcId);
+            arcId = predecessors[vertexId];
+        }
+        Collections.reverse(arcList);
+        NavVertex startVertex = graph.getVertex(vertexId);
+        NavPath result = new NavPath(startVertex, arcList);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Begin a new stamp, invalidating the results of previous searches.
+     */
+    private void beginStamp() {
+        currentStamp++;
+        if (currentStamp == 0) {
+            /*
+             * The stamp has wrapped around: invalidate all entries.
+             */
+            Arrays.fill(stamps, 0);
+            currentStamp = 1;
+        }
+    }
+
+    /**
+     * Perform a breadth-first search from the vertices already in the queue,
+     * recording hop counts.
+     *
+     * @param queueLength number of vertices initially in the queue (&ge;0)
+     * @param avoidArcId id of an arc to ignore (or -1 for none)
+     * @param maxHopCount maximum hop count to explore (&ge;0)
+     */
+    private void breadthFirst(int queueLength, int avoidArcId,
+            int maxHopCount) {
+        measuredDistances = false;
+        int head = 0;
+        int tail = queueLength;
+        while (head < tail) {
+            int vertexId = queue[head];
+            head++;
+            int nextHopCount = hopCounts[vertexId] + 1;
+            if (nextHopCount > maxHopCount) {
+                continue;
+            }
+            int end = graph.endArc(vertexId);
+            for (int arcId = graph.firstArc(vertexId); arcId < end; arcId++) {
+                if (arcId == avoidArcId) {
+                    continue;
+                }
+                int neighborId = graph.arcTarget(arcId);
+                if (stamps[neighborId] != currentStamp) {
+                    stamps[neighborId] = currentStamp;
+                    hopCounts[neighborId] = nextHopCount;
+                    predecessors[neighborId] = arcId;
+                    queue[tail] = neighborId;
+                    tail++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Perform a best-first search from the identified starting point.
+     *
+     * @param startId id of the starting vertex
+     * @param goalId id of the goal vertex (or -1 for an exhaustive search)
+     * @param heuristic estimator of remaining cost (or null for Dijkstra's
+     * algorithm)
+     */
+    private void search(int startId, int goalId, NavHeuristic heuristic) {
+        assert goalId != -1 || heuristic == null;
+
+        beginStamp();
+        measuredDistances = true;
+        stamps[startId] = currentStamp;
+        predecessors[startId] = -1;
+        distances[startId] = 0f;
+        heap.update(startId, 0f);
+
+        NavVertex goalVertex = null;
+        if (heuristic != null) {
+            goalVertex = graph.getVertex(goalId);
+        }
+
+        while (!heap.isEmpty()) {
+            int vertexId = heap.removeMin();
+            if (vertexId == goalId) {
+                break;
+            }
+            float baseDistance = distances[vertexId];
+            int end = graph.endArc(vertexId);
+            for (int arcId = graph.firstArc(vertexId); arcId < end; arcId++) {
+                int neighborId = graph.arcTarget(arcId);
+                float newDistance = baseDistance + graph.arcLength(arcId);
+                if (stamps[neighborId] != currentStamp
+                        || newDistance < distances[neighborId]) {
+                    stamps[neighborId] = currentStamp;
+                    distances[neighborId] = newDistance;
+                    predecessors[neighborId] = arcId;
+                    float priority = newDistance;
+                    if (heuristic != null) {
+                        NavVertex neighbor = graph.getVertex(neighborId);
+                        priority += heuristic.estimate(neighbor, goalVertex);
+                    }
+                    heap.update(neighborId, priority);
+                }
+            }
+        }
+
+        heap.clear();
+    }
+}
\ No newline at end of file
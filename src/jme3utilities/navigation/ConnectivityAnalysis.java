@@ -0,0 +1,293 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Bridges and articulation vertices of a navigation graph, found by a single
+ * iterative (Tarjan-style) depth-first search in O(V+E) time.
+ * <p>
+ * The analysis treats the graph as undirected: an arc and its reverse (if any)
+ * form a single edge. A bridge is an edge whose removal would disconnect its
+ * endpoints; an articulation vertex is one whose removal would disconnect
+ * some pair of its neighbors. The analysis reflects the graph at the moment it
+ * was constructed.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+class ConnectivityAnalysis {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(ConnectivityAnalysis.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * true if every arc is matched by a reverse arc, otherwise false
+     */
+    private boolean symmetric = true;
+    /**
+     * articulation vertices, in index order
+     */
+    final private List<NavVertex> articulationVertices = new ArrayList<>(10);
+    /**
+     * arcs which form bridges (in either direction)
+     */
+    final private List<NavArc> bridgeArcs = new ArrayList<>(10);
+    /**
+     * the same arcs as bridgeArcs, for fast lookup
+     */
+    final private Set<NavArc> bridgeSet = new HashSet<>(20);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Analyze the specified graph.
+     *
+     * @param graph graph to analyze (not null)
+     */
+    ConnectivityAnalysis(NavGraph graph) {
+        assert graph != null;
+
+        int numVertices = graph.numVertices();
+        NavArc[] arcs = graph.getArcs();
+        int numArcs = arcs.length;
+        /*
+         * Merge each arc with its reverse to form undirected edges,
+         * counting the arcs in each direction.
+         */
+        Map<Long, Integer> edgeIds = new HashMap<>(numArcs);
+        int[] arcEdges = new int[numArcs];
+        int[] edgeEnds = new int[2 * numArcs];
+        int[] forwardCounts = new int[numArcs];
+        int[] reverseCounts = new int[numArcs];
+        int numEdges = 0;
+        for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+            NavArc arc = arcs[arcIndex];
+            int fromIndex = arc.getFromVertex().getIndex();
+            int toIndex = arc.getToVertex().getIndex();
+            int low = Math.min(fromIndex, toIndex);
+            int high = Math.max(fromIndex, toIndex);
+            Long key = ((long) low << 32) | high;
+            Integer edgeId = edgeIds.get(key);
+            if (edgeId == null) {
+                edgeId = numEdges;
+                edgeIds.put(key, edgeId);
+                edgeEnds[2 * numEdges] = low;
+                edgeEnds[2 * numEdges + 1] = high;
+                numEdges++;
+            }
+            arcEdges[arcIndex] = edgeId;
+            if (fromIndex == low) {
+                forwardCounts[edgeId]++;
+            } else {
+                reverseCounts[edgeId]++;
+            }
+        }
+        for (int edgeId = 0; edgeId < numEdges; edgeId++) {
+            if (forwardCounts[edgeId] != reverseCounts[edgeId]) {
+                symmetric = false;
+                break;
+            }
+        }
+        /*
+         * Build undirected adjacency lists in compressed-sparse-row form.
+         */
+        int[] offsets = new int[numVertices + 1];
+        for (int endIndex = 0; endIndex < 2 * numEdges; endIndex++) {
+            offsets[edgeEnds[endIndex] + 1]++;
+        }
+        for (int vertexIndex = 0; vertexIndex < numVertices; vertexIndex++) {
+            offsets[vertexIndex + 1] += offsets[vertexIndex];
+        }
+        int[] fill = offsets.clone();
+        int[] adjacentEdges = new int[2 * numEdges];
+        for (int edgeId = 0; edgeId < numEdges; edgeId++) {
+            int end0 = edgeEnds[2 * edgeId];
+            int end1 = edgeEnds[2 * edgeId + 1];
+            adjacentEdges[fill[end0]] = edgeId;
+            fill[end0]++;
+            adjacentEdges[fill[end1]] = edgeId;
+            fill[end1]++;
+        }
+        /*
+         * Iterative depth-first search, computing discovery times and
+         * low-links.
+         */
+        int[] discovery = new int[numVertices];
+        int[] lowLinks = new int[numVertices];
+        int[] parentEdges = new int[numVertices];
+        int[] cursors = new int[numVertices];
+        int[] stack = new int[numVertices];
+        boolean[] isBridgeEdge = new boolean[numEdges];
+        boolean[] isArticulation = new boolean[numVertices];
+        int time = 0;
+
+        for (int root = 0; root < numVertices; root++) {
+            if (discovery[root] != 0) {
+                continue;
+            }
+            time++;
+            discovery[root] = time;
+            lowLinks[root] = time;
+            parentEdges[root] = -1;
+            cursors[root] = offsets[root];
+            int depth = 0;
+            stack[0] = root;
+            int rootChildren = 0;
+
+            while (depth >= 0) {
+                int vertex = stack[depth];
+                if (cursors[vertex] < offsets[vertex + 1]) {
+                    int edgeId = adjacentEdges[cursors[vertex]];
+                    cursors[vertex]++;
+                    if (edgeId == parentEdges[vertex]) {
+                        continue;
+                    }
+                    int neighbor = edgeEnds[2 * edgeId];
+                    if (neighbor == vertex) {
+                        neighbor = edgeEnds[2 * edgeId + 1];
+                    }
+                    if (discovery[neighbor] == 0) {
+                        /*
+                         * tree edge: descend
+                         */
+                        time++;
+                        discovery[neighbor] = time;
+                        lowLinks[neighbor] = time;
+                        parentEdges[neighbor] = edgeId;
+                        cursors[neighbor] = offsets[neighbor];
+                        depth++;
+                        stack[depth] = neighbor;
+                        if (vertex == root) {
+                            rootChildren++;
+                        }
+                    } else {
+                        /*
+                         * back edge
+                         */
+                        lowLinks[vertex] = Math.min(lowLinks[vertex],
+                                discovery[neighbor]);
+                    }
+
+                } else {
+                    /*
+                     * All edges explored: ascend.
+                     */
+                    depth--;
+                    if (depth >= 0) {
+                        int parent = stack[depth];
+                        lowLinks[parent] = Math.min(lowLinks[parent],
+                                lowLinks[vertex]);
+                        if (lowLinks[vertex] > discovery[parent]) {
+                            isBridgeEdge[parentEdges[vertex]] = true;
+                        }
+                        if (parent != root
+                                && lowLinks[vertex] >= discovery[parent]) {
+                            isArticulation[parent] = true;
+                        }
+                    }
+                }
+            }
+            if (rootChildren > 1) {
+                isArticulation[root] = true;
+            }
+        }
+        /*
+         * Parallel arcs in the same direction mean the edge isn't a bridge.
+         */
+        for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+            int edgeId = arcEdges[arcIndex];
+            if (isBridgeEdge[edgeId] && forwardCounts[edgeId] <= 1
+                    && reverseCounts[edgeId] <= 1) {
+                NavArc arc = arcs[arcIndex];
+                bridgeArcs.add(arc);
+                bridgeSet.add(arc);
+            }
+        }
+        for (int vertexIndex = 0; vertexIndex < numVertices; vertexIndex++) {
+            if (isArticulation[vertexIndex]) {
+                NavVertex vertex = graph.getVertex(vertexIndex);
+                articulationVertices.add(vertex);
+            }
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Enumerate the articulation vertices.
+     *
+     * @return new list of graph members, in index order
+     */
+    List<NavVertex> copyArticulationVertices() {
+        List<NavVertex> result = new ArrayList<>(articulationVertices);
+        return result;
+    }
+
+    /**
+     * Enumerate the arcs which form bridges.
+     *
+     * @return new list of graph members
+     */
+    List<NavArc> copyBridgeArcs() {
+        List<NavArc> result = new ArrayList<>(bridgeArcs);
+        return result;
+    }
+
+    /**
+     * Test whether the specified arc is part of a bridge.
+     *
+     * @param arc arc to test (member of the analyzed graph)
+     * @return true if it's part of a bridge, otherwise false
+     */
+    boolean isBridge(NavArc arc) {
+        boolean result = bridgeSet.contains(arc);
+        return result;
+    }
+
+    /**
+     * Test whether every arc of the analyzed graph was matched by a reverse
+     * arc. In such graphs, an arc is removable without loss of connectivity
+     * if and only if it isn't part of a bridge.
+     *
+     * @return true if symmetric, otherwise false
+     */
+    boolean isSymmetric() {
+        return symmetric;
+    }
+}
\ No newline at end of file
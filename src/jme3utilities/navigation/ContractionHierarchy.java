@@ -0,0 +1,794 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Contraction hierarchy for fast point-to-point shortest-path queries on a
+ * static navigation graph.
+ * <p>
+ * Preprocessing contracts the vertices one at a time, in order of increasing
+ * importance, inserting a shortcut wherever a shortest path through the
+ * contracted vertex has no witness path avoiding it. Queries then run a
+ * bidirectional Dijkstra search which only climbs the hierarchy, settling a
+ * tiny fraction of the vertices a plain search would. Shortcuts are unpacked,
+ * so routes consist of the original arcs.
+ * <p>
+ * A hierarchy is built from a snapshot and doesn't reflect later changes to
+ * the graph. Queries use internal workspace, so an instance shouldn't be
+ * queried from multiple threads at once.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class ContractionHierarchy {
+    // *************************************************************************
+    // constants
+
+    /**
+     * maximum number of vertices settled by each witness search during
+     * preprocessing
+     */
+    final private static int maxWitnessSettled = 500;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(ContractionHierarchy.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * snapshot from which this hierarchy was built (not null)
+     */
+    final private CompactNavGraph graph;
+    /**
+     * current generation of the query workspace
+     */
+    private int currentStamp = 0;
+    /**
+     * 1st half of each shortcut (edge id), indexed by edge id (-1 for an
+     * original arc, whose edge id equals its arc id)
+     */
+    final private int[] firstHalves;
+    /**
+     * 2nd half of each shortcut (edge id), indexed by edge id (-1 for an
+     * original arc)
+     */
+    final private int[] secondHalves;
+    /**
+     * origin vertex of each edge, indexed by edge id
+     */
+    final private int[] edgeSources;
+    /**
+     * destination vertex of each edge, indexed by edge id
+     */
+    final private int[] edgeTargets;
+    /**
+     * path length of each edge, indexed by edge id
+     */
+    final private float[] edgeLengths;
+    /**
+     * ids of upward edges (to higher-ranked vertices) in CSR order, grouped by
+     * source vertex
+     */
+    final private int[] upEdges;
+    /**
+     * start of each vertex's upward edges, indexed by vertex id, plus a final
+     * entry
+     */
+    final private int[] upOffsets;
+    /**
+     * ids of downward edges (from higher-ranked vertices) in CSR order,
+     * grouped by target vertex
+     */
+    final private int[] downEdges;
+    /**
+     * start of each vertex's downward edges, indexed by vertex id, plus a
+     * final entry
+     */
+    final private int[] downOffsets;
+    /**
+     * contraction order of each vertex, indexed by vertex id
+     */
+    final private int[] ranks;
+    /**
+     * query workspace for the forward and backward searches: tentative path
+     * lengths, indexed by direction then vertex id
+     */
+    final private float[][] distances = new float[2][];
+    /**
+     * query workspace: priority queues, indexed by direction
+     */
+    final private IndexedHeap[] heaps = new IndexedHeap[2];
+    /**
+     * query workspace: last edge of each tentative path, indexed by direction
+     * then vertex id (-1 for the starting vertex)
+     */
+    final private int[][] predecessors = new int[2][];
+    /**
+     * query workspace: generation stamps, indexed by direction then vertex id
+     */
+    final private int[][] stamps = new int[2][];
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a hierarchy from the results of preprocessing.
+     *
+     * @param graph snapshot (not null)
+     * @param builder completed builder (not null)
+     */
+    private ContractionHierarchy(CompactNavGraph graph, Builder builder) {
+        this.graph = graph;
+        int numVertices = graph.numVertices();
+        int numEdges = builder.numEdges;
+
+        ranks = builder.ranks;
+        edgeSources = Arrays.copyOf(builder.sources, numEdges);
+        edgeTargets = Arrays.copyOf(builder.targets, numEdges);
+        edgeLengths = Arrays.copyOf(builder.lengths, numEdges);
+        firstHalves = Arrays.copyOf(builder.firstHalves, numEdges);
+        secondHalves = Arrays.copyOf(builder.secondHalves, numEdges);
+        /*
+         * Sort the edges into upward and downward CSR arrays.
+         */
+        upOffsets = new int[numVertices + 1];
+        downOffsets = new int[numVertices + 1];
+        for (int edgeId = 0; edgeId < numEdges; edgeId++) {
+            int source = edgeSources[edgeId];
+            int target = edgeTargets[edgeId];
+            if (ranks[source] < ranks[target]) {
+                ++upOffsets[source + 1];
+            } else {
+                ++downOffsets[target + 1];
+            }
+        }
+        for (int vertexId = 0; vertexId < numVertices; vertexId++) {
+            upOffsets[vertexId + 1] += upOffsets[vertexId];
+            downOffsets[vertexId + 1] += downOffsets[vertexId];
+        }
+        upEdges = new int[upOffsets[numVertices]];
+        downEdges = new int[downOffsets[numVertices]];
+        int[] upFill = Arrays.copyOf(upOffsets, numVertices);
+        int[] downFill = Arrays.copyOf(downOffsets, numVertices);
+        for (int edgeId = 0; edgeId < numEdges; edgeId++) {
+            int source = edgeSources[edgeId];
+            int target = edgeTargets[edgeId];
+            if (ranks[source] < ranks[target]) {
+                upEdges[upFill[source]] = edgeId;
+                ++upFill[source];
+            } else {
+                downEdges[downFill[target]] = edgeId;
+                ++downFill[target];
+            }
+        }
+
+        for (int direction = 0; direction < 2; direction++) {
+            distances[direction] = new float[numVertices];
+            heaps[direction] = new IndexedHeap(numVertices);
+            predecessors[direction] = new int[numVertices];
+            stamps[direction] = new int[numVertices];
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Preprocess the specified snapshot. This takes much longer than a single
+     * search, so it's best done once per map, ahead of time.
+     *
+     * @param graph snapshot to preprocess (not null)
+     * @return new instance
+     */
+    public static ContractionHierarchy build(CompactNavGraph graph) {
+        Validate.nonNull(graph, "graph");
+
+        Builder builder = new Builder(graph);
+        builder.contractAll();
+        ContractionHierarchy result = new ContractionHierarchy(graph, builder);
+
+        return result;
+    }
+
+    /**
+     * Calculate the length of a shortest path from one identified vertex to
+     * another.
+     *
+     * @param startId id of the starting vertex (&ge;0, &lt;numVertices)
+     * @param goalId id of the goal vertex (&ge;0, &lt;numVertices)
+     * @return path length (&ge;0) or +Infinity if the goal is unreachable
+     */
+    public float distance(int startId, int goalId) {
+        graph.validateVertex(startId, "start id");
+        graph.validateVertex(goalId, "goal id");
+
+        int meetingId = search(startId, goalId);
+        if (meetingId == -1) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float result = distances[0][meetingId] + distances[1][meetingId];
+
+        return result;
+    }
+
+    /**
+     * Find a shortest path from one vertex to another.
+     *
+     * @param startVertex starting point (in the snapshot)
+     * @param goalVertex goal (in the snapshot)
+     * @return new path (or null if the goal is unreachable)
+     */
+    public NavPath findPath(NavVertex startVertex, NavVertex goalVertex) {
+        int startId = graph.findVertex(startVertex);
+        graph.validateVertex(startId, "start vertex");
+        int goalId = graph.findVertex(goalVertex);
+        graph.validateVertex(goalId, "goal vertex");
+
+        int meetingId = search(startId, goalId);
+        if (meetingId == -1) {
+            return null;
+        }
+        /*
+         * Collect the edges of the forward half (in reverse order),
+         * then the backward half.
+         */
+        List<Integer> edgeIds = new ArrayList<>(20);
+        for (int vertexId = meetingId; vertexId != startId;) {
+            int edgeId = predecessors[0][vertexId];
+            edgeIds.add(edgeId);
+            vertexId = edgeSources[edgeId];
+        }
+        int numForward = edgeIds.size();
+        List<NavArc> arcList = new ArrayList<>(40);
+        for (int i = numForward - 1; i >= 0; i--) {
+            unpack(edgeIds.get(i), arcList);
+        }
+        for (int vertexId = meetingId; vertexId != goalId;) {
+            int edgeId = predecessors[1][vertexId];
+            unpack(edgeId, arcList);
+            vertexId = edgeTargets[edgeId];
+        }
+        NavPath result = new NavPath(startVertex, arcList);
+
+        return result;
+    }
+
+    /**
+     * Access the snapshot from which this hierarchy was built.
+     *
+     * @return pre-existing instance
+     */
+    public CompactNavGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Count the shortcuts added during preprocessing.
+     *
+     * @return count (&ge;0)
+     */
+    public int numShortcuts() {
+        int result = edgeLengths.length - graph.numArcs();
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Begin a new generation of the query workspace, resetting the stamps if
+     * the counter would overflow.
+     */
+    private void beginStamp() {
+        if (currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps[0], 0);
+            Arrays.fill(stamps[1], 0);
+            currentStamp = 0;
+        }
+        ++currentStamp;
+        heaps[0].clear();
+        heaps[1].clear();
+    }
+
+    /**
+     * Relax the edges of a vertex settled by one of the searches.
+     *
+     * @param direction 0 for the forward search, 1 for the backward search
+     * @param vertexId id of the settled vertex
+     */
+    private void relaxEdges(int direction, int vertexId) {
+        float[] dist = distances[direction];
+        int[] stamp = stamps[direction];
+        int[] pred = predecessors[direction];
+        IndexedHeap heap = heaps[direction];
+
+        int[] offsets;
+        int[] edges;
+        int[] neighbors;
+        if (direction == 0) {
+            offsets = upOffsets;
+            edges = upEdges;
+            neighbors = edgeTargets;
+        } else {
+            offsets = downOffsets;
+            edges = downEdges;
+            neighbors = edgeSources;
+        }
+
+        float base = dist[vertexId];
+        int end = offsets[vertexId + 1];
+        for (int i = offsets[vertexId]; i < end; i++) {
+            int edgeId = edges[i];
+            int neighbor = neighbors[edgeId];
+            float newDistance = base + edgeLengths[edgeId];
+            if (stamp[neighbor] != currentStamp
+                    || newDistance < dist[neighbor]) {
+                stamp[neighbor] = currentStamp;
+                dist[neighbor] = newDistance;
+                pred[neighbor] = edgeId;
+                heap.update(neighbor, newDistance);
+            }
+        }
+    }
+
+    /**
+     * Perform a bidirectional upward search.
+     *
+     * @param startId id of the starting vertex
+     * @param goalId id of the goal vertex
+     * @return id of the highest-ranked vertex on a shortest path, or -1 if
+     * the goal is unreachable
+     */
+    private int search(int startId, int goalId) {
+        beginStamp();
+        int[] ends = {startId, goalId};
+        for (int direction = 0; direction < 2; direction++) {
+            int endId = ends[direction];
+            stamps[direction][endId] = currentStamp;
+            distances[direction][endId] = 0f;
+            predecessors[direction][endId] = -1;
+            heaps[direction].update(endId, 0f);
+        }
+
+        float best = Float.POSITIVE_INFINITY;
+        int result = -1;
+        while (true) {
+            /*
+             * Advance whichever search has the smaller frontier key.
+             */
+            float forwardKey = heaps[0].isEmpty()
+                    ? Float.POSITIVE_INFINITY : heaps[0].minKey();
+            float backwardKey = heaps[1].isEmpty()
+                    ? Float.POSITIVE_INFINITY : heaps[1].minKey();
+            int direction = (forwardKey <= backwardKey) ? 0 : 1;
+            float minKey = Math.min(forwardKey, backwardKey);
+            if (minKey >= best) {
+                break;
+            }
+
+            int vertexId = heaps[direction].removeMin();
+            int other = 1 - direction;
+            if (stamps[other][vertexId] == currentStamp) {
+                float total = distances[0][vertexId] + distances[1][vertexId];
+                if (total < best) {
+                    best = total;
+                    result = vertexId;
+                }
+            }
+            relaxEdges(direction, vertexId);
+        }
+
+        return result;
+    }
+
+    /**
+     * Append the original arcs of an edge to a list, expanding shortcuts
+     * recursively.
+     *
+     * @param edgeId id of the edge to unpack
+     * @param arcList list to append to (not null, modified)
+     */
+    private void unpack(int edgeId, List<NavArc> arcList) {
+        int[] stack = new int[16];
+        int depth = 0;
+        stack[0] = edgeId;
+        while (depth >= 0) {
+            int id = stack[depth];
+            depth--;
+            if (firstHalves[id] == -1) {
+                arcList.add(graph.getArc(id));
+            } else {
+                if (depth + 2 >= stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                /*
+                 * Push the 2nd half first, so the 1st half pops first.
+                 */
+                ++depth;
+                stack[depth] = secondHalves[id];
+                ++depth;
+                stack[depth] = firstHalves[id];
+            }
+        }
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Mutable state used during preprocessing.
+     */
+    private static class Builder {
+        /**
+         * true for each contracted vertex, indexed by vertex id
+         */
+        final boolean[] contracted;
+        /**
+         * scratch slot of each vertex during a contraction (-1 if unused)
+         */
+        final int[] slots;
+        /**
+         * number of contracted neighbors of each vertex, indexed by vertex id
+         */
+        final int[] contractedNeighbors;
+        /**
+         * 1st half of each shortcut, indexed by edge id (-1 for originals)
+         */
+        int[] firstHalves;
+        /**
+         * 2nd half of each shortcut, indexed by edge id (-1 for originals)
+         */
+        int[] secondHalves;
+        /**
+         * ids of the incoming edges of each vertex (only the 1st
+         * inCounts[vertexId] elements are valid)
+         */
+        final int[][] inEdges;
+        /**
+         * number of incoming edges of each vertex
+         */
+        final int[] inCounts;
+        /**
+         * path length of each edge
+         */
+        float[] lengths;
+        /**
+         * number of edges, including shortcuts
+         */
+        int numEdges;
+        /**
+         * ids of the outgoing edges of each vertex (only the 1st
+         * outCounts[vertexId] elements are valid)
+         */
+        final int[][] outEdges;
+        /**
+         * number of outgoing edges of each vertex
+         */
+        final int[] outCounts;
+        /**
+         * contraction order of each vertex
+         */
+        final int[] ranks;
+        /**
+         * origin of each edge
+         */
+        int[] sources;
+        /**
+         * destination of each edge
+         */
+        int[] targets;
+        /**
+         * witness-search workspace: tentative path lengths
+         */
+        final float[] witnessDistances;
+        /**
+         * witness-search workspace: priority queue
+         */
+        final IndexedHeap witnessHeap;
+        /**
+         * witness-search workspace: generation stamps
+         */
+        final int[] witnessStamps;
+        /**
+         * witness-search workspace: current generation
+         */
+        int witnessStamp = 0;
+        /**
+         * contraction-order queue keyed by priority
+         */
+        final IndexedHeap queue;
+
+        /**
+         * Instantiate a builder with the original arcs of a snapshot.
+         *
+         * @param graph snapshot (not null)
+         */
+        Builder(CompactNavGraph graph) {
+            int numVertices = graph.numVertices();
+            int numArcs = graph.numArcs();
+            int capacity = 2 * numArcs + 16;
+
+            contracted = new boolean[numVertices];
+            contractedNeighbors = new int[numVertices];
+            inCounts = new int[numVertices];
+            inEdges = new int[numVertices][];
+            outCounts = new int[numVertices];
+            outEdges = new int[numVertices][];
+            ranks = new int[numVertices];
+            slots = new int[numVertices];
+            Arrays.fill(slots, -1);
+            witnessDistances = new float[numVertices];
+            witnessStamps = new int[numVertices];
+            witnessHeap = new IndexedHeap(numVertices);
+            queue = new IndexedHeap(numVertices);
+            for (int vertexId = 0; vertexId < numVertices; vertexId++) {
+                inEdges[vertexId] = new int[4];
+                outEdges[vertexId] = new int[4];
+            }
+
+            firstHalves = new int[capacity];
+            secondHalves = new int[capacity];
+            lengths = new float[capacity];
+            sources = new int[capacity];
+            targets = new int[capacity];
+            for (int arcId = 0; arcId < numArcs; arcId++) {
+                addEdge(graph.arcSource(arcId), graph.arcTarget(arcId),
+                        graph.arcLength(arcId), -1, -1);
+            }
+        }
+
+        /**
+         * Add an edge.
+         *
+         * @param source id of the origin vertex
+         * @param target id of the destination vertex
+         * @param length path length (&ge;0)
+         * @param firstHalf 1st half (edge id) or -1 for an original arc
+         * @param secondHalf 2nd half (edge id) or -1 for an original arc
+         */
+        void addEdge(int source, int target, float length, int firstHalf,
+                int secondHalf) {
+            if (numEdges == lengths.length) {
+                int newCapacity = 2 * numEdges;
+                firstHalves = Arrays.copyOf(firstHalves, newCapacity);
+                secondHalves = Arrays.copyOf(secondHalves, newCapacity);
+                lengths = Arrays.copyOf(lengths, newCapacity);
+                sources = Arrays.copyOf(sources, newCapacity);
+                targets = Arrays.copyOf(targets, newCapacity);
+            }
+            int edgeId = numEdges;
+            ++numEdges;
+            firstHalves[edgeId] = firstHalf;
+            secondHalves[edgeId] = secondHalf;
+            lengths[edgeId] = length;
+            sources[edgeId] = source;
+            targets[edgeId] = target;
+
+            if (outCounts[source] == outEdges[source].length) {
+                outEdges[source] = Arrays.copyOf(outEdges[source],
+                        2 * outCounts[source]);
+            }
+            outEdges[source][outCounts[source]] = edgeId;
+            ++outCounts[source];
+
+            if (inCounts[target] == inEdges[target].length) {
+                inEdges[target] = Arrays.copyOf(inEdges[target],
+                        2 * inCounts[target]);
+            }
+            inEdges[target][inCounts[target]] = edgeId;
+            ++inCounts[target];
+        }
+
+        /**
+         * Contract all vertices, in order of increasing priority, updating
+         * priorities lazily.
+         */
+        void contractAll() {
+            int numVertices = ranks.length;
+            for (int vertexId = 0; vertexId < numVertices; vertexId++) {
+                queue.update(vertexId, priority(vertexId));
+            }
+
+            int rank = 0;
+            while (!queue.isEmpty()) {
+                int vertexId = queue.removeMin();
+                float newPriority = priority(vertexId);
+                if (!queue.isEmpty() && newPriority > queue.minKey()) {
+                    queue.update(vertexId, newPriority);
+                    continue;
+                }
+                contract(vertexId, false);
+                contracted[vertexId] = true;
+                ranks[vertexId] = rank;
+                ++rank;
+            }
+
+            if (logger.isLoggable(Level.INFO)) {
+                logger.log(Level.INFO, "contracted {0} vertices, {1} edges",
+                        new Object[]{numVertices, numEdges});
+            }
+        }
+
+        /**
+         * Contract (or simulate contracting) a vertex: find the shortcuts
+         * needed to preserve shortest paths among its uncontracted
+         * neighbors.
+         *
+         * @param vertexId id of the vertex to contract
+         * @param simulate if true, count the shortcuts without adding them
+         * @return number of shortcuts needed (&ge;0)
+         */
+        int contract(int vertexId, boolean simulate) {
+            /*
+             * Find the cheapest edge from each uncontracted in-neighbor
+             * and to each uncontracted out-neighbor.
+             */
+            int[] inIds = collectNeighbors(vertexId, true);
+            int[] outIds = collectNeighbors(vertexId, false);
+            float maxOut = 0f;
+            for (int edgeId : outIds) {
+                maxOut = Math.max(maxOut, lengths[edgeId]);
+            }
+
+            int result = 0;
+            for (int inEdge : inIds) {
+                int source = sources[inEdge];
+                float inLength = lengths[inEdge];
+                witnessSearch(source, vertexId, inLength + maxOut);
+                for (int outEdge : outIds) {
+                    int target = targets[outEdge];
+                    if (target == source) {
+                        continue;
+                    }
+                    float viaLength = inLength + lengths[outEdge];
+                    if (witnessStamps[target] == witnessStamp
+                            && witnessDistances[target] <= viaLength) {
+                        continue;
+                    }
+                    ++result;
+                    if (!simulate) {
+                        addEdge(source, target, viaLength, inEdge, outEdge);
+                    }
+                }
+            }
+
+            if (!simulate) {
+                for (int edgeId : inIds) {
+                    ++contractedNeighbors[sources[edgeId]];
+                }
+                for (int edgeId : outIds) {
+                    ++contractedNeighbors[targets[edgeId]];
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Select the cheapest edge between a vertex and each of its
+         * uncontracted neighbors.
+         *
+         * @param vertexId id of the vertex
+         * @param incoming true for in-neighbors, false for out-neighbors
+         * @return new array of edge ids
+         */
+        int[] collectNeighbors(int vertexId, boolean incoming) {
+            int[] edges = incoming ? inEdges[vertexId] : outEdges[vertexId];
+            int count = incoming ? inCounts[vertexId] : outCounts[vertexId];
+            int[] ends = incoming ? sources : targets;
+
+            int[] result = new int[count];
+            int numSelected = 0;
+            for (int i = 0; i < count; i++) {
+                int edgeId = edges[i];
+                int neighbor = ends[edgeId];
+                if (contracted[neighbor] || neighbor == vertexId) {
+                    continue;
+                }
+                int slot = slots[neighbor];
+                if (slot == -1) {
+                    slots[neighbor] = numSelected;
+                    result[numSelected] = edgeId;
+                    ++numSelected;
+                } else if (lengths[edgeId] < lengths[result[slot]]) {
+                    result[slot] = edgeId;
+                }
+            }
+            for (int i = 0; i < numSelected; i++) {
+                slots[ends[result[i]]] = -1;
+            }
+            result = Arrays.copyOf(result, numSelected);
+
+            return result;
+        }
+
+        /**
+         * Calculate the contraction priority of a vertex: the edge
+         * difference plus the number of contracted neighbors.
+         *
+         * @param vertexId id of the vertex
+         * @return priority (lower values are contracted sooner)
+         */
+        float priority(int vertexId) {
+            int numShortcuts = contract(vertexId, true);
+            int numRemoved = collectNeighbors(vertexId, true).length
+                    + collectNeighbors(vertexId, false).length;
+            float result = numShortcuts - numRemoved
+                    + contractedNeighbors[vertexId];
+
+            return result;
+        }
+
+        /**
+         * Perform a bounded Dijkstra search among uncontracted vertices,
+         * avoiding one vertex. Results are left in the witness workspace.
+         *
+         * @param sourceId id of the starting vertex
+         * @param avoidId id of the vertex to avoid
+         * @param maxLength path length beyond which to stop
+         */
+        void witnessSearch(int sourceId, int avoidId, float maxLength) {
+            if (witnessStamp == Integer.MAX_VALUE) {
+                Arrays.fill(witnessStamps, 0);
+                witnessStamp = 0;
+            }
+            ++witnessStamp;
+            witnessHeap.clear();
+
+            witnessStamps[sourceId] = witnessStamp;
+            witnessDistances[sourceId] = 0f;
+            witnessHeap.update(sourceId, 0f);
+            int numSettled = 0;
+            while (!witnessHeap.isEmpty()
+                    && numSettled < maxWitnessSettled) {
+                if (witnessHeap.minKey() > maxLength) {
+                    break;
+                }
+                int vertexId = witnessHeap.removeMin();
+                ++numSettled;
+                float base = witnessDistances[vertexId];
+                int count = outCounts[vertexId];
+                for (int i = 0; i < count; i++) {
+                    int edgeId = outEdges[vertexId][i];
+                    int neighbor = targets[edgeId];
+                    if (neighbor == avoidId || contracted[neighbor]) {
+                        continue;
+                    }
+                    float newDistance = base + lengths[edgeId];
+                    if (witnessStamps[neighbor] != witnessStamp
+                            || newDistance < witnessDistances[neighbor]) {
+                        witnessStamps[neighbor] = witnessStamp;
+                        witnessDistances[neighbor] = newDistance;
+                        witnessHeap.update(neighbor, newDistance);
+                    }
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
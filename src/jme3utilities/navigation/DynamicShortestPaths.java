@@ -0,0 +1,386 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Shortest-path tree over a navigation graph, kept up to date as the graph
+ * changes. This is the shared core of NavShortestPathTree and NavFlowField.
+ * <p>
+ * In the forward direction, paths run from the roots and each vertex's tree
+ * arc is the last arc of its shortest path. In the backward direction, paths
+ * run to the roots and the tree arc is the 1st arc. Either way, the "near"
+ * end of a tree arc is the end closer to the roots.
+ * <p>
+ * Repairs follow the Ramalingam-Reps algorithm. Removing an arc which isn't
+ * in the tree costs nothing. Removing a tree arc recomputes only the subtree
+ * beyond it, seeded from the arcs entering that subtree. Adding an arc
+ * propagates any improvement it offers.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+class DynamicShortestPaths
+        implements NavGraphListener {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(DynamicShortestPaths.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * true for each vertex affected by the current repair, indexed by vertex
+     * index
+     */
+    private boolean[] affected = new boolean[0];
+    /**
+     * true if paths lead to the roots, false if they lead from the roots
+     */
+    final private boolean backward;
+    /**
+     * path length between each vertex and the nearest root, indexed by vertex
+     * index (+Infinity if unconnected)
+     */
+    private float[] distances = new float[0];
+    /**
+     * priority queue for searches
+     */
+    final private IndexedHeap heap = new IndexedHeap(0);
+    /**
+     * incoming arcs of each vertex, indexed by vertex index
+     */
+    final private List<List<NavArc>> incomingArcs = new ArrayList<>(64);
+    /**
+     * tree arc of each vertex, indexed by vertex index (null for roots and
+     * for unconnected vertices)
+     */
+    private NavArc[] treeArcs = new NavArc[0];
+    /**
+     * graph being searched (not null)
+     */
+    final private NavGraph graph;
+    /**
+     * reusable list of outgoing arcs, to avoid allocation during searches
+     */
+    final private List<NavArc> outgoingArcs = new ArrayList<>(8);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a tree with no roots. Before use, specify the roots using
+     * {@link #setRoots(java.util.Collection)} and register the tree using
+     * {@link #attach()}.
+     *
+     * @param graph graph to search (not null)
+     * @param backward true if paths lead to the roots, false if they lead
+     * from the roots
+     */
+    DynamicShortestPaths(NavGraph graph, boolean backward) {
+        assert graph != null;
+
+        this.graph = graph;
+        this.backward = backward;
+        for (NavVertex vertex : graph.getVertices()) {
+            vertexAdded(graph, vertex);
+        }
+        for (NavArc arc : graph.getArcs()) {
+            int toIndex = arc.getToVertex().getIndex();
+            incomingArcs.get(toIndex).add(arc);
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Register this tree as a listener of its graph.
+     */
+    void attach() {
+        graph.addListener(this);
+    }
+
+    /**
+     * Unregister this tree from its graph.
+     */
+    void detach() {
+        graph.removeListener(this);
+    }
+
+    /**
+     * Read the path length between the specified vertex and the nearest root.
+     *
+     * @param vertexIndex index of the vertex (&ge;0)
+     * @return path length (&ge;0) or +Infinity if unconnected
+     */
+    float distance(int vertexIndex) {
+        float result = distances[vertexIndex];
+        return result;
+    }
+
+    /**
+     * Replace the roots and recompute the entire tree.
+     *
+     * @param roots root vertices (not null, not empty, members of the graph,
+     * unaffected)
+     */
+    void setRoots(Collection<NavVertex> roots) {
+        assert roots != null;
+        assert !roots.isEmpty();
+
+        int numVertices = graph.numVertices();
+        Arrays.fill(distances, 0, numVertices, Float.POSITIVE_INFINITY);
+        Arrays.fill(treeArcs, 0, numVertices, null);
+        heap.clear();
+        heap.ensureCapacity(numVertices);
+        for (NavVertex root : roots) {
+            int index = root.getIndex();
+            distances[index] = 0f;
+            heap.update(index, 0f);
+        }
+        propagate(false);
+    }
+
+    /**
+     * Find the tree arc of the specified vertex.
+     *
+     * @param vertexIndex index of the vertex (&ge;0)
+     * @return the pre-existing arc, or null if the vertex is a root or
+     * unconnected
+     */
+    NavArc treeArc(int vertexIndex) {
+        NavArc result = treeArcs[vertexIndex];
+        return result;
+    }
+    // *************************************************************************
+    // NavGraphListener methods
+
+    /**
+     * Callback after an arc is added to the graph: if it offers its far end a
+     * shorter path, propagate the improvement.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the new arc (not null)
+     */
+    @Override
+    public void arcAdded(NavGraph graph, NavArc arc) {
+        int toIndex = arc.getToVertex().getIndex();
+        incomingArcs.get(toIndex).add(arc);
+
+        heap.clear();
+        heap.ensureCapacity(graph.numVertices());
+        relax(arc, false);
+        propagate(false);
+    }
+
+    /**
+     * Callback after an arc is removed from the graph: if it was in the tree,
+     * recompute the subtree beyond it.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the removed arc (not null)
+     */
+    @Override
+    public void arcRemoved(NavGraph graph, NavArc arc) {
+        int toIndex = arc.getToVertex().getIndex();
+        /*
+         * Match by identity: parallel arcs may be equal() to one another.
+         */
+        List<NavArc> incoming = incomingArcs.get(toIndex);
+        int position = 0;
+        while (incoming.get(position) != arc) {
+            position++;
+        }
+        incoming.remove(position);
+
+        int farIndex = farEnd(arc).getIndex();
+        if (treeArcs[farIndex] == arc) {
+            repairFrom(farIndex);
+        }
+    }
+
+    /**
+     * Callback after a vertex is added to the graph: grow the arrays. The new
+     * vertex has no arcs, so it's unconnected.
+     *
+     * @param graph graph which was modified (not null)
+     * @param vertex the new vertex (not null)
+     */
+    @Override
+    public void vertexAdded(NavGraph graph, NavVertex vertex) {
+        int index = vertex.getIndex();
+        if (index >= distances.length) {
+            int newLength = Math.max(2 * distances.length, index + 16);
+            affected = Arrays.copyOf(affected, newLength);
+            distances = Arrays.copyOf(distances, newLength);
+            treeArcs = Arrays.copyOf(treeArcs, newLength);
+        }
+        distances[index] = Float.POSITIVE_INFINITY;
+        treeArcs[index] = null;
+        List<NavArc> list = new ArrayList<>(4);
+        incomingArcs.add(list);
+        assert incomingArcs.size() == index + 1;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Enumerate the arcs which lead away from the roots at the specified
+     * vertex, or toward them.
+     *
+     * @param vertexIndex index of the vertex (&ge;0)
+     * @param away true for arcs whose near end is the vertex, false for arcs
+     * whose far end is the vertex
+     * @return internal list (not null, valid only until the next invocation)
+     */
+    private List<NavArc> arcsAt(int vertexIndex, boolean away) {
+        if (away == backward) {
+            return incomingArcs.get(vertexIndex);
+        }
+
+        NavVertex vertex = graph.getVertex(vertexIndex);
+        int numArcs = vertex.getNumArcs();
+        outgoingArcs.clear();
+        for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+            NavArc arc = vertex.getArc(arcIndex);
+            outgoingArcs.add(arc);
+        }
+
+        return outgoingArcs;
+    }
+
+    /**
+     * Find the end of the specified arc which is farther from the roots.
+     *
+     * @param arc (not null)
+     * @return the pre-existing vertex
+     */
+    private NavVertex farEnd(NavArc arc) {
+        NavVertex result = backward ? arc.getFromVertex() : arc.getToVertex();
+        return result;
+    }
+
+    /**
+     * Find the end of the specified arc which is nearer to the roots.
+     *
+     * @param arc (not null)
+     * @return the pre-existing vertex
+     */
+    private NavVertex nearEnd(NavArc arc) {
+        NavVertex result = backward ? arc.getToVertex() : arc.getFromVertex();
+        return result;
+    }
+
+    /**
+     * Run Dijkstra's algorithm away from the roots, starting from the
+     * vertices already in the heap.
+     *
+     * @param restrict if true, update only vertices flagged as affected
+     */
+    private void propagate(boolean restrict) {
+        while (!heap.isEmpty()) {
+            int index = heap.removeMin();
+            for (NavArc arc : arcsAt(index, true)) {
+                relax(arc, restrict);
+            }
+        }
+    }
+
+    /**
+     * If the specified arc offers its far end a shorter path, update the far
+     * end's distance and tree arc and queue it for propagation.
+     *
+     * @param arc arc to test (not null)
+     * @param restrict if true, update the far end only if it's flagged as
+     * affected
+     */
+    private void relax(NavArc arc, boolean restrict) {
+        int farIndex = farEnd(arc).getIndex();
+        if (restrict && !affected[farIndex]) {
+            return;
+        }
+        int nearIndex = nearEnd(arc).getIndex();
+        float newDistance = distances[nearIndex] + arc.getPathLength();
+        if (newDistance < distances[farIndex]) {
+            distances[farIndex] = newDistance;
+            treeArcs[farIndex] = arc;
+            heap.update(farIndex, newDistance);
+        }
+    }
+
+    /**
+     * Recompute the subtree rooted at the specified vertex, after its tree
+     * arc was removed.
+     *
+     * @param rootIndex index of the vertex which lost its tree arc
+     */
+    private void repairFrom(int rootIndex) {
+        /*
+         * Collect the affected subtree and reset it.
+         */
+        List<Integer> subtree = new ArrayList<>(32);
+        subtree.add(rootIndex);
+        affected[rootIndex] = true;
+        for (int i = 0; i < subtree.size(); i++) {
+            for (NavArc arc : arcsAt(subtree.get(i), true)) {
+                int farIndex = farEnd(arc).getIndex();
+                if (treeArcs[farIndex] == arc && !affected[farIndex]) {
+                    affected[farIndex] = true;
+                    subtree.add(farIndex);
+                }
+            }
+        }
+        for (int index : subtree) {
+            distances[index] = Float.POSITIVE_INFINITY;
+            treeArcs[index] = null;
+        }
+        /*
+         * Seed each affected vertex from the arcs entering the subtree,
+         * then propagate within the subtree.
+         */
+        heap.clear();
+        heap.ensureCapacity(graph.numVertices());
+        for (int index : subtree) {
+            for (NavArc arc : arcsAt(index, false)) {
+                int nearIndex = nearEnd(arc).getIndex();
+                if (!affected[nearIndex]) {
+                    relax(arc, false);
+                }
+            }
+        }
+        propagate(true);
+
+        for (int index : subtree) {
+            affected[index] = false;
+        }
+    }
+}
\ No newline at end of file
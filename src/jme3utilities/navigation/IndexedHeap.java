@@ -0,0 +1,259 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Binary min-heap of integer items with single-precision keys, indexed so that
+ * the key of any item in the heap can be decreased in O(log n) time. Items are
+ * dense indices (&ge;0, &lt;capacity), so no objects are allocated after
+ * construction unless the capacity grows.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+class IndexedHeap {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(IndexedHeap.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * heap-ordered items (only the 1st size elements are valid)
+     */
+    private int[] items;
+    /**
+     * key of each item, indexed by item
+     */
+    private float[] keys;
+    /**
+     * position of each item in the items array, indexed by item (-1 if absent)
+     */
+    private int[] positions;
+    /**
+     * number of items currently in the heap (&ge;0)
+     */
+    private int size = 0;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty heap for the specified number of distinct items.
+     *
+     * @param capacity number of distinct items (&ge;0)
+     */
+    IndexedHeap(int capacity) {
+        assert capacity >= 0 : capacity;
+
+        items = new int[capacity];
+        keys = new float[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Remove all items from this heap. Runs in time proportional to the number
+     * of items removed.
+     */
+    void clear() {
+        for (int position = 0; position < size; position++) {
+            int item = items[position];
+            positions[item] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Test whether the specified item is in this heap.
+     *
+     * @param item (&ge;0, &lt;capacity)
+     * @return true if present, otherwise false
+     */
+    boolean contains(int item) {
+        boolean result = positions[item] != -1;
+        return result;
+    }
+
+    /**
+     * Grow this heap (if necessary) to accommodate the specified number of
+     * distinct items. The heap must be empty.
+     *
+     * @param capacity number of distinct items (&ge;0)
+     */
+    void ensureCapacity(int capacity) {
+        assert size == 0 : size;
+
+        int oldCapacity = positions.length;
+        if (capacity > oldCapacity) {
+            items = new int[capacity];
+            keys = new float[capacity];
+            positions = new int[capacity];
+            Arrays.fill(positions, -1);
+        }
+    }
+
+    /**
+     * Test whether this heap is empty.
+     *
+     * @return true if empty, otherwise false
+     */
+    boolean isEmpty() {
+        boolean result = (size == 0);
+        return result;
+    }
+
+    /**
+     * Read the minimum key in this heap.
+     *
+     * @return key value
+     */
+    float minKey() {
+        assert size > 0 : size;
+
+        int item = items[0];
+        float result = keys[item];
+
+        return result;
+    }
+
+    /**
+     * Remove the item with the minimum key.
+     *
+     * @return the removed item (&ge;0)
+     */
+    int removeMin() {
+        assert size > 0 : size;
+
+        int result = items[0];
+        positions[result] = -1;
+        size--;
+        if (size > 0) {
+            int lastItem = items[size];
+            items[0] = lastItem;
+            positions[lastItem] = 0;
+            siftDown(0);
+        }
+
+        return result;
+    }
+
+    /**
+     * Insert an item with the specified key, or if the item is already in the
+     * heap, change its key.
+     *
+     * @param item (&ge;0, &lt;capacity)
+     * @param key new key value
+     */
+    void update(int item, float key) {
+        int position = positions[item];
+        if (position == -1) {
+            keys[item] = key;
+            items[size] = item;
+            positions[item] = size;
+            size++;
+            siftUp(size - 1);
+
+        } else {
+            float oldKey = keys[item];
+            keys[item] = key;
+            if (key < oldKey) {
+                siftUp(position);
+            } else {
+                siftDown(position);
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Move the item at the specified position down until heap order is
+     * restored.
+     *
+     * @param startPosition (&ge;0, &lt;size)
+     */
+    private void siftDown(int startPosition) {
+        int position = startPosition;
+        int item = items[position];
+        float key = keys[item];
+
+        int half = size / 2;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int childItem = items[child];
+            float childKey = keys[childItem];
+            int right = child + 1;
+            if (right < size && keys[items[right]] < childKey) {
+                child = right;
+                childItem = items[right];
+                childKey = keys[childItem];
+            }
+            if (key <= childKey) {
+                break;
+            }
+            items[position] = childItem;
+            positions[childItem] = position;
+            position = child;
+        }
+
+        items[position] = item;
+        positions[item] = position;
+    }
+
+    /**
+     * Move the item at the specified position up until heap order is
+     * restored.
+     *
+     * @param startPosition (&ge;0, &lt;size)
+     */
+    private void siftUp(int startPosition) {
+        int position = startPosition;
+        int item = items[position];
+        float key = keys[item];
+
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            int parentItem = items[parent];
+            if (keys[parentItem] <= key) {
+                break;
+            }
+            items[position] = parentItem;
+            positions[parentItem] = position;
+            position = parent;
+        }
+
+        items[position] = item;
+        positions[item] = position;
+    }
+}
\ No newline at end of file
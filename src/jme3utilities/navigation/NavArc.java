@@ -72,6 +72,10 @@ public class NavArc
      * direction at the start of this arc (in world space, length=1)
      */
     final private VectorXZ horizontalDirection;
+    /**
+     * index of this arc in its graph (&ge;0) or -1 if not a member
+     */
+    private int index = -1;
     // *************************************************************************
     // constructors
 
@@ -152,6 +156,24 @@ public class NavArc
         return horizontalDirection;
     }
 
+    /**
+     * Read the index of this arc in its graph.
+     *
+     * @return index (&ge;0) or -1 if not a member
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Access the path of this arc.
+     *
+     * @return pre-existing instance
+     */
+    Spline3f getPath() {
+        return path;
+    }
+
     /**
      * Read the total path length (cost) of this arc.
      *
@@ -192,6 +214,31 @@ public class NavArc
         Vector3f result = path.interpolate(distance);
         return result;
     }
+
+    /**
+     * Compute the location at the specified distance along this arc's path,
+     * without allocating.
+     *
+     * @param distance (&ge;0)
+     * @param storeResult (modified if not null)
+     * @return world coordinates (either storeResult or a new instance)
+     */
+    public Vector3f pathLocation(float distance, Vector3f storeResult) {
+        Validate.nonNegative(distance, "distance");
+
+        Vector3f result = path.interpolate(distance, storeResult);
+        return result;
+    }
+
+    /**
+     * Alter the index of this arc in its graph.
+     *
+     * @param newIndex new index (&ge;0) or -1 if no longer a member
+     */
+    void setIndex(int newIndex) {
+        assert newIndex >= -1 : newIndex;
+        index = newIndex;
+    }
     // *************************************************************************
     // Comparable methods
 
@@ -71,12 +71,12 @@ public class NavDebug {
     /**
      * sphere mesh for generating balls
      */
-    final private static Mesh ballMesh =
+    final static Mesh ballMesh =
             new Sphere(meridianSamples, equatorSamples, 1f);
     /**
      * cylinder mesh for generating sticks
      */
-    final private static Mesh stickMesh =
+    final static Mesh stickMesh =
             new Cylinder(lengthSamples, circumferenceSamples, 1f, 1f);
     // *************************************************************************
     // constructors
@@ -180,6 +180,35 @@ public class NavDebug {
         }
     }
 
+    /**
+     * Create a batched ball-and-stick representation of a specified
+     * navigation graph, which renders with just 2 geometries and tracks
+     * subsequent changes to the graph. Better than makeBallsAndSticks() for
+     * large graphs.
+     *
+     * @param graph graph to represent (not null)
+     * @param parentNode where in the scene to attach geometries (not null)
+     * @param ballRadius radius of each ball (in world units, &gt;0)
+     * @param stickRadius radius of each stick (in world units, &gt;0)
+     * @param ballMaterial material for the geometry which represents
+     * navigation vertices (not null)
+     * @param stickMaterial material for the geometry which represents
+     * navigation arcs (not null)
+     * @return new batch, registered as a listener on the graph
+     */
+    public static NavDebugBatch makeBatchedBallsAndSticks(NavGraph graph,
+            Node parentNode, float ballRadius, float stickRadius,
+            Material ballMaterial, Material stickMaterial) {
+        Validate.nonNull(parentNode, "parent node");
+
+        NavDebugBatch result = new NavDebugBatch(graph, ballRadius,
+                stickRadius, ballMaterial, stickMaterial);
+        parentNode.attachChild(result.getBallGeometry());
+        parentNode.attachChild(result.getStickGeometry());
+
+        return result;
+    }
+
     /**
      * Create a stick for a ball-and-stick representation.
      *
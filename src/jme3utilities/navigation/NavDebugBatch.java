@@ -0,0 +1,586 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Batched ball-and-stick visualization of a navigation graph: all balls share
+ * one merged mesh and all sticks share another, so the entire graph renders
+ * with 2 geometries instead of one per vertex and arc.
+ * <p>
+ * Each vertex and arc owns a fixed-size slot in its mesh, indexed like the
+ * graph's own lists. As a listener, the batch rewrites only the affected slots
+ * when the graph changes; a removed arc's slot is filled by copying the last
+ * slot, mirroring NavGraph.remove(). The pending changes are pushed to the
+ * meshes by {@link #update()}, which should be invoked from the render thread
+ * (for instance once per frame) since the scene graph isn't thread-safe.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavDebugBatch
+        implements NavGraphListener {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavDebugBatch.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * radius of each ball (in world units, &gt;0)
+     */
+    final private float ballRadius;
+    /**
+     * radius of each stick (in world units, &gt;0)
+     */
+    final private float stickRadius;
+    /**
+     * graph being visualized, or null if detached
+     */
+    private NavGraph graph;
+    /**
+     * arc represented by each stick slot (only the 1st numSlots elements are
+     * valid)
+     */
+    private NavArc[] slotArcs = new NavArc[16];
+    /**
+     * merged mesh of balls, one slot per vertex
+     */
+    final private SlotMesh balls;
+    /**
+     * merged mesh of sticks, one slot per arc
+     */
+    final private SlotMesh sticks;
+    /**
+     * temporary storage for the center of a slot
+     */
+    final private Vector3f tmpCenter = new Vector3f();
+    /**
+     * temporary storage for the +X axis of a slot
+     */
+    final private Vector3f tmpX = new Vector3f();
+    /**
+     * temporary storage for the +Y axis of a slot
+     */
+    final private Vector3f tmpY = new Vector3f();
+    /**
+     * temporary storage for the +Z axis of a slot
+     */
+    final private Vector3f tmpZ = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a batch which represents the specified graph, and register
+     * it as a listener.
+     *
+     * @param graph graph to represent (not null)
+     * @param ballRadius radius of each ball (in world units, &gt;0)
+     * @param stickRadius radius of each stick (in world units, &gt;0)
+     * @param ballMaterial material for the ball geometry (not null)
+     * @param stickMaterial material for the stick geometry (not null)
+     */
+    public NavDebugBatch(NavGraph graph, float ballRadius, float stickRadius,
+            Material ballMaterial, Material stickMaterial) {
+        Validate.nonNull(graph, "graph");
+        Validate.positive(ballRadius, "ball radius");
+        Validate.positive(stickRadius, "stick radius");
+        Validate.nonNull(ballMaterial, "ball material");
+        Validate.nonNull(stickMaterial, "stick material");
+
+        this.graph = graph;
+        this.ballRadius = ballRadius;
+        this.stickRadius = stickRadius;
+
+        int numVertices = graph.numVertices();
+        balls = new SlotMesh("navigation vertices", NavDebug.ballMesh,
+                numVertices, ballMaterial);
+        for (int index = 0; index < numVertices; index++) {
+            writeBall(graph.getVertex(index));
+        }
+
+        NavArc[] arcs = graph.getArcs();
+        sticks = new SlotMesh("navigation arcs", NavDebug.stickMesh,
+                arcs.length, stickMaterial);
+        for (NavArc arc : arcs) {
+            writeStick(arc);
+        }
+
+        graph.addListener(this);
+        update();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Stop tracking the graph. After detaching, the meshes no longer change.
+     */
+    public void detach() {
+        if (graph != null) {
+            graph.removeListener(this);
+            graph = null;
+        }
+    }
+
+    /**
+     * Access the geometry which represents the graph's vertices.
+     *
+     * @return pre-existing instance
+     */
+    public Geometry getBallGeometry() {
+        return balls.geometry;
+    }
+
+    /**
+     * Access the geometry which represents the graph's arcs.
+     *
+     * @return pre-existing instance
+     */
+    public Geometry getStickGeometry() {
+        return sticks.geometry;
+    }
+
+    /**
+     * Push any changes made since the previous update to the meshes. Should
+     * be invoked from the render thread.
+     */
+    public void update() {
+        balls.flush();
+        sticks.flush();
+    }
+    // *************************************************************************
+    // NavGraphListener methods
+
+    /**
+     * Callback after an arc is added to the graph: write its stick into the
+     * next slot.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the new arc (not null)
+     */
+    @Override
+    public void arcAdded(NavGraph graph, NavArc arc) {
+        assert graph == this.graph : graph;
+        writeStick(arc);
+    }
+
+    /**
+     * Callback after an arc is removed from the graph: fill its slot with the
+     * stick from the last slot, just as the graph filled the arc's position
+     * with its last arc.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the removed arc (not null)
+     */
+    @Override
+    public void arcRemoved(NavGraph graph, NavArc arc) {
+        assert graph == this.graph : graph;
+
+        int lastSlot = sticks.numSlots - 1;
+        NavArc lastArc = slotArcs[lastSlot];
+        if (lastArc != arc) {
+            int slot = lastArc.getIndex();
+            assert slotArcs[slot] == arc : slot;
+            sticks.copySlot(lastSlot, slot);
+            slotArcs[slot] = lastArc;
+        }
+        slotArcs[lastSlot] = null;
+        sticks.setNumSlots(lastSlot);
+    }
+
+    /**
+     * Callback after a vertex is added to the graph: write its ball into the
+     * next slot.
+     *
+     * @param graph graph which was modified (not null)
+     * @param vertex the new vertex (not null)
+     */
+    @Override
+    public void vertexAdded(NavGraph graph, NavVertex vertex) {
+        assert graph == this.graph : graph;
+        writeBall(vertex);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append the ball for the specified vertex.
+     *
+     * @param vertex vertex to represent (not null)
+     */
+    private void writeBall(NavVertex vertex) {
+        int slot = vertex.getIndex();
+        assert slot == balls.numSlots : slot;
+
+        balls.setNumSlots(slot + 1);
+        Vector3f location = vertex.getLocation();
+        tmpX.set(1f, 0f, 0f);
+        tmpY.set(0f, 1f, 0f);
+        tmpZ.set(0f, 0f, 1f);
+        balls.writeSlot(slot, location, tmpX, tmpY, tmpZ, ballRadius,
+                ballRadius, ballRadius);
+    }
+
+    /**
+     * Append the stick for the specified arc. The stick is oriented the same
+     * way as NavDebug.makeStick() would orient it.
+     *
+     * @param arc arc to represent (not null)
+     */
+    private void writeStick(NavArc arc) {
+        int slot = arc.getIndex();
+        assert slot == sticks.numSlots : slot;
+
+        sticks.setNumSlots(slot + 1);
+        if (slot >= slotArcs.length) {
+            slotArcs = Arrays.copyOf(slotArcs, 2 * slotArcs.length);
+        }
+        slotArcs[slot] = arc;
+
+        Vector3f from = arc.getFromVertex().getLocation();
+        Vector3f to = arc.getToVertex().getLocation();
+        tmpCenter.set(from).addLocal(to).multLocal(0.5f);
+        /*
+         * Local +Z points along the stick, local +X is horizontal.
+         */
+        tmpZ.set(to).subtractLocal(from);
+        float length = tmpZ.length();
+        tmpZ.divideLocal(length);
+        tmpX.set(tmpZ.z, 0f, -tmpZ.x).normalizeLocal();
+        tmpZ.cross(tmpX, tmpY);
+        sticks.writeSlot(slot, tmpCenter, tmpX, tmpY, tmpZ, stickRadius,
+                stickRadius, length);
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Merged mesh made of transformed copies of a template mesh, one copy per
+     * slot.
+     */
+    private static class SlotMesh {
+        /**
+         * true if the buffers have been replaced since the last flush, so
+         * the mesh needs new vertex buffers
+         */
+        private boolean buffersDirty = true;
+        /**
+         * true if the number of slots has changed since the last flush
+         */
+        private boolean countDirty = true;
+        /**
+         * true if the contents of any slot have changed since the last flush
+         */
+        private boolean slotsDirty = true;
+        /**
+         * template normals, packed as x, y, z triplets
+         */
+        final private float[] templateNormals;
+        /**
+         * template positions, packed as x, y, z triplets
+         */
+        final private float[] templatePositions;
+        /**
+         * normals of all slots
+         */
+        private FloatBuffer normals;
+        /**
+         * positions of all slots
+         */
+        private FloatBuffer positions;
+        /**
+         * geometry which renders the merged mesh
+         */
+        final private Geometry geometry;
+        /**
+         * number of slots allocated (&ge;1)
+         */
+        private int capacity;
+        /**
+         * number of indices per slot
+         */
+        final private int indicesPerSlot;
+        /**
+         * number of slots in use (&ge;0, &le;capacity)
+         */
+        private int numSlots = 0;
+        /**
+         * number of mesh vertices per slot
+         */
+        final private int verticesPerSlot;
+        /**
+         * template triangle indices
+         */
+        final private int[] templateIndices;
+        /**
+         * triangle indices for all allocated slots
+         */
+        private IntBuffer indices;
+        /**
+         * merged mesh
+         */
+        final private Mesh mesh = new Mesh();
+        /**
+         * the mesh's index buffer (null before the 1st flush)
+         */
+        private VertexBuffer indexBuffer = null;
+        /**
+         * the mesh's normal buffer (null before the 1st flush)
+         */
+        private VertexBuffer normalBuffer = null;
+        /**
+         * the mesh's position buffer (null before the 1st flush)
+         */
+        private VertexBuffer positionBuffer = null;
+
+        /**
+         * Instantiate a merged mesh with the specified template.
+         *
+         * @param name name for the geometry (not null)
+         * @param template mesh to copy into each slot (not null, unaffected)
+         * @param initialCapacity number of slots to allocate (&ge;0)
+         * @param material material for the geometry (not null)
+         */
+        SlotMesh(String name, Mesh template, int initialCapacity,
+                Material material) {
+            FloatBuffer templateBuffer =
+                    template.getFloatBuffer(VertexBuffer.Type.Position);
+            templatePositions = new float[templateBuffer.limit()];
+            for (int i = 0; i < templatePositions.length; i++) {
+                templatePositions[i] = templateBuffer.get(i);
+            }
+            templateBuffer = template.getFloatBuffer(VertexBuffer.Type.Normal);
+            templateNormals = new float[templateBuffer.limit()];
+            for (int i = 0; i < templateNormals.length; i++) {
+                templateNormals[i] = templateBuffer.get(i);
+            }
+            IndexBuffer templateIndexBuffer = template.getIndexBuffer();
+            templateIndices = new int[templateIndexBuffer.size()];
+            for (int i = 0; i < templateIndices.length; i++) {
+                templateIndices[i] = templateIndexBuffer.get(i);
+            }
+            verticesPerSlot = templatePositions.length / 3;
+            indicesPerSlot = templateIndices.length;
+
+            capacity = Math.max(1, initialCapacity);
+            positions = BufferUtils.createFloatBuffer(
+                    3 * verticesPerSlot * capacity);
+            normals = BufferUtils.createFloatBuffer(
+                    3 * verticesPerSlot * capacity);
+            indices = createIndices(capacity);
+            setLimits();
+
+            mesh.setDynamic();
+            geometry = new Geometry(name, mesh);
+            geometry.setMaterial(material);
+        }
+
+        /**
+         * Copy one slot onto another.
+         *
+         * @param fromSlot slot to copy (&ge;0, &lt;numSlots)
+         * @param toSlot slot to overwrite (&ge;0, &lt;numSlots)
+         */
+        void copySlot(int fromSlot, int toSlot) {
+            int floatsPerSlot = 3 * verticesPerSlot;
+            int fromBase = fromSlot * floatsPerSlot;
+            int toBase = toSlot * floatsPerSlot;
+            for (int i = 0; i < floatsPerSlot; i++) {
+                positions.put(toBase + i, positions.get(fromBase + i));
+                normals.put(toBase + i, normals.get(fromBase + i));
+            }
+            slotsDirty = true;
+        }
+
+        /**
+         * Push the slots to the mesh, if they've changed. The mesh's vertex
+         * buffers are created on the 1st flush and re-created only after the
+         * buffers grow. Otherwise the existing vertex buffers are marked for
+         * upload, and each upload is limited to the slots in use.
+         */
+        void flush() {
+            if (buffersDirty) {
+                mesh.setBuffer(VertexBuffer.Type.Position, 3, positions);
+                mesh.setBuffer(VertexBuffer.Type.Normal, 3, normals);
+                mesh.setBuffer(VertexBuffer.Type.Index, 3, indices);
+                positionBuffer = mesh.getBuffer(VertexBuffer.Type.Position);
+                normalBuffer = mesh.getBuffer(VertexBuffer.Type.Normal);
+                indexBuffer = mesh.getBuffer(VertexBuffer.Type.Index);
+                mesh.updateCounts();
+            } else if (countDirty) {
+                /*
+                 * Same buffers with new limits: re-read the element counts.
+                 */
+                positionBuffer.updateData(positions);
+                normalBuffer.updateData(normals);
+                indexBuffer.updateData(indices);
+                mesh.updateCounts();
+            } else if (slotsDirty) {
+                positionBuffer.setUpdateNeeded();
+                normalBuffer.setUpdateNeeded();
+            } else {
+                return;
+            }
+
+            if (numSlots == 0) {
+                geometry.setCullHint(Spatial.CullHint.Always);
+            } else {
+                mesh.updateBound();
+                geometry.updateModelBound();
+                geometry.setCullHint(Spatial.CullHint.Inherit);
+            }
+            buffersDirty = false;
+            countDirty = false;
+            slotsDirty = false;
+        }
+
+        /**
+         * Alter the number of slots in use, growing the buffers if necessary.
+         *
+         * @param newNumSlots (&ge;0)
+         */
+        void setNumSlots(int newNumSlots) {
+            assert newNumSlots >= 0 : newNumSlots;
+
+            if (newNumSlots > capacity) {
+                int newCapacity = Math.max(newNumSlots, 2 * capacity);
+                int numFloats = 3 * verticesPerSlot * newCapacity;
+                FloatBuffer newPositions =
+                        BufferUtils.createFloatBuffer(numFloats);
+                FloatBuffer newNormals =
+                        BufferUtils.createFloatBuffer(numFloats);
+                positions.clear();
+                newPositions.put(positions);
+                newPositions.clear();
+                normals.clear();
+                newNormals.put(normals);
+                newNormals.clear();
+
+                positions = newPositions;
+                normals = newNormals;
+                indices = createIndices(newCapacity);
+                capacity = newCapacity;
+                buffersDirty = true;
+            }
+            if (newNumSlots != numSlots) {
+                numSlots = newNumSlots;
+                setLimits();
+                countDirty = true;
+            }
+        }
+
+        /**
+         * Write a transformed copy of the template into a slot.
+         *
+         * @param slot slot to overwrite (&ge;0, &lt;numSlots)
+         * @param center translation (not null, unaffected)
+         * @param xAxis direction of the template's +X axis (unit vector, not
+         * null, unaffected)
+         * @param yAxis direction of the template's +Y axis (unit vector, not
+         * null, unaffected)
+         * @param zAxis direction of the template's +Z axis (unit vector, not
+         * null, unaffected)
+         * @param xScale scale factor for template X coordinates
+         * @param yScale scale factor for template Y coordinates
+         * @param zScale scale factor for template Z coordinates
+         */
+        void writeSlot(int slot, Vector3f center, Vector3f xAxis,
+                Vector3f yAxis, Vector3f zAxis, float xScale, float yScale,
+                float zScale) {
+            assert slot >= 0 : slot;
+            assert slot < numSlots : slot;
+
+            int base = 3 * verticesPerSlot * slot;
+            for (int i = 0; i < templatePositions.length; i += 3) {
+                float x = xScale * templatePositions[i];
+                float y = yScale * templatePositions[i + 1];
+                float z = zScale * templatePositions[i + 2];
+                positions.put(base + i,
+                        center.x + x * xAxis.x + y * yAxis.x + z * zAxis.x);
+                positions.put(base + i + 1,
+                        center.y + x * xAxis.y + y * yAxis.y + z * zAxis.y);
+                positions.put(base + i + 2,
+                        center.z + x * xAxis.z + y * yAxis.z + z * zAxis.z);
+
+                x = templateNormals[i];
+                y = templateNormals[i + 1];
+                z = templateNormals[i + 2];
+                normals.put(base + i, x * xAxis.x + y * yAxis.x + z * zAxis.x);
+                normals.put(base + i + 1,
+                        x * xAxis.y + y * yAxis.y + z * zAxis.y);
+                normals.put(base + i + 2,
+                        x * xAxis.z + y * yAxis.z + z * zAxis.z);
+            }
+            slotsDirty = true;
+        }
+
+        /**
+         * Create an index buffer for the specified number of slots.
+         *
+         * @param numSlots number of slots (&ge;1)
+         * @return new direct buffer
+         */
+        private IntBuffer createIndices(int numSlots) {
+            IntBuffer result =
+                    BufferUtils.createIntBuffer(indicesPerSlot * numSlots);
+            for (int slot = 0; slot < numSlots; slot++) {
+                int offset = slot * verticesPerSlot;
+                for (int index : templateIndices) {
+                    result.put(offset + index);
+                }
+            }
+            result.clear();
+
+            return result;
+        }
+
+        /**
+         * Limit the buffers to the slots in use.
+         */
+        private void setLimits() {
+            int numFloats = 3 * verticesPerSlot * numSlots;
+            positions.limit(numFloats);
+            normals.limit(numFloats);
+            indices.limit(indicesPerSlot * numSlots);
+        }
+    }
+}
\ No newline at end of file
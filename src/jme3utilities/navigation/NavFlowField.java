@@ -0,0 +1,187 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Flow field which guides any number of agents toward the nearest of a set of
+ * goal vertices in a navigation graph.
+ * <p>
+ * The field is computed by a single reverse Dijkstra search from the goals,
+ * recording each vertex's distance to the nearest goal and the 1st arc of a
+ * shortest path there. An agent arriving at a vertex simply follows
+ * {@link #nextArc(jme3utilities.navigation.NavVertex)}.
+ * <p>
+ * The field listens to its graph and repairs itself incrementally: removing
+ * an arc which isn't on the field's shortest-path tree costs nothing, and
+ * otherwise only the vertices which routed through it are recomputed. Adding
+ * an arc propagates any improvement it offers. Like NavGraph, this class
+ * isn't thread-safe.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavFlowField {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavFlowField.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * backward shortest-path tree rooted at the goals (not null)
+     */
+    final private DynamicShortestPaths paths;
+    /**
+     * goal vertices
+     */
+    final private List<NavVertex> goals = new ArrayList<>(4);
+    /**
+     * graph being navigated (not null)
+     */
+    final private NavGraph graph;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a field for a single goal and register it as a listener.
+     *
+     * @param graph graph to navigate (not null)
+     * @param goal goal vertex (member of the graph)
+     */
+    public NavFlowField(NavGraph graph, NavVertex goal) {
+        this(graph, makeList(goal));
+    }
+
+    /**
+     * Instantiate a field for a set of goals and register it as a listener.
+     *
+     * @param graph graph to navigate (not null)
+     * @param goals goal vertices (not null, not empty, members of the graph,
+     * unaffected)
+     */
+    public NavFlowField(NavGraph graph, Collection<NavVertex> goals) {
+        Validate.nonNull(graph, "graph");
+
+        this.graph = graph;
+        paths = new DynamicShortestPaths(graph, true);
+        setGoals(goals);
+        paths.attach();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Unregister this field from its graph. After detaching, the field should
+     * no longer be used.
+     */
+    public void detach() {
+        paths.detach();
+    }
+
+    /**
+     * Read the path length from the specified vertex to the nearest goal.
+     *
+     * @param vertex (member of the graph)
+     * @return path length (&ge;0) or +Infinity if no goal is reachable
+     */
+    public float distance(NavVertex vertex) {
+        graph.validateMember(vertex);
+        float result = paths.distance(vertex.getIndex());
+        return result;
+    }
+
+    /**
+     * Enumerate the goals.
+     *
+     * @return new list of members
+     */
+    public List<NavVertex> getGoals() {
+        List<NavVertex> result = new ArrayList<>(goals);
+        return result;
+    }
+
+    /**
+     * Find the arc to follow from the specified vertex.
+     *
+     * @param vertex (member of the graph)
+     * @return 1st arc of a shortest path to the nearest goal (member of the
+     * graph) or null if the vertex is a goal or no goal is reachable
+     */
+    public NavArc nextArc(NavVertex vertex) {
+        graph.validateMember(vertex);
+        NavArc result = paths.treeArc(vertex.getIndex());
+        return result;
+    }
+
+    /**
+     * Replace the goals and recompute the entire field.
+     *
+     * @param newGoals goal vertices (not null, not empty, members of the
+     * graph, unaffected)
+     */
+    public final void setGoals(Collection<NavVertex> newGoals) {
+        Validate.nonNull(newGoals, "goals");
+        if (newGoals.isEmpty()) {
+            logger.log(Level.SEVERE, "goals={0}", newGoals);
+            throw new IllegalArgumentException(
+                    "goals should not be empty");
+        }
+        for (NavVertex goal : newGoals) {
+            graph.validateMember(goal);
+        }
+
+        goals.clear();
+        goals.addAll(newGoals);
+        paths.setRoots(goals);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a single-element list.
+     *
+     * @param goal the element (not null)
+     * @return new list
+     */
+    private static List<NavVertex> makeList(NavVertex goal) {
+        Validate.nonNull(goal, "goal");
+
+        List<NavVertex> result = new ArrayList<>(1);
+        result.add(goal);
+
+        return result;
+    }
+}
\ No newline at end of file
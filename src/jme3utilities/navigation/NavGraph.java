@@ -29,15 +29,10 @@ import com.jme3.math.Vector3f;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
-import jme3utilities.math.Noise;
 
 /**
  * Graph for navigation. Its vertices represent reachable locations in the
@@ -54,16 +49,75 @@ public class NavGraph {
      */
     final private static Logger logger =
             Logger.getLogger(NavGraph.class.getName());
+    /**
+     * default width of spatial-index columns (in world units)
+     */
+    final private static float defaultCellSize = 10f;
     // *************************************************************************
     // fields
     /**
-     * list of arcs in this graph
+     * list of arcs in this graph, each at the position given by its index
      */
     final protected ArrayList<NavArc> arcs = new ArrayList<>(30);
     /**
-     * list of vertices in this graph
+     * list of vertices in this graph, each at the position given by its index
      */
     final protected ArrayList<NavVertex> vertices = new ArrayList<>(30);
+    /**
+     * cached analysis of bridges and articulation vertices (null if not yet
+     * computed or if the graph has changed since)
+     */
+    private ConnectivityAnalysis connectivity = null;
+    /**
+     * listeners to notify of modifications
+     */
+    final private List<NavGraphListener> listeners = new ArrayList<>(2);
+    /**
+     * number of modifications made to this graph since it was created
+     */
+    private long modificationCount = 0L;
+    /**
+     * width of spatial-index columns (in world units, &gt;0)
+     */
+    final private float cellSize;
+    /**
+     * index of the 1st arc added by the bulk load in progress, or -1 if none
+     * is in progress
+     */
+    private int bulkFirstArc = -1;
+    /**
+     * index of the 1st vertex added by the bulk load in progress, or -1 if
+     * none is in progress
+     */
+    private int bulkFirstVertex = -1;
+    /**
+     * spatial index of vertices and arcs, for proximity queries (null if it
+     * needs to be rebuilt before the next query)
+     */
+    private NavSpatialIndex spatialIndex;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty graph with the default spatial-index resolution.
+     */
+    public NavGraph() {
+        this(defaultCellSize);
+    }
+
+    /**
+     * Instantiate an empty graph with the specified spatial-index resolution.
+     * For best performance, the cell size should be comparable to the typical
+     * spacing between vertices.
+     *
+     * @param cellSize width of each column of the spatial index (in world
+     * units, &gt;0)
+     */
+    public NavGraph(float cellSize) {
+        Validate.positive(cellSize, "cell size");
+        this.cellSize = cellSize;
+        spatialIndex = new NavSpatialIndex(cellSize);
+    }
     // *************************************************************************
     // new methods exposed
 
@@ -83,8 +137,7 @@ public class NavGraph {
         }
 
         NavArc newArc = startVertex.addArc(endVertex);
-        boolean success = arcs.add(newArc);
-        assert success : newArc;
+        addNewArc(newArc);
 
         return newArc;
     }
@@ -109,12 +162,55 @@ public class NavGraph {
         Validate.nonNull(joints, "joints");
 
         NavArc newArc = startVertex.addArc(endVertex, joints);
-        boolean success = arcs.add(newArc);
-        assert success : newArc;
+        addNewArc(newArc);
 
         return newArc;
     }
 
+    /**
+     * Create an arc and add it to this graph without validating its
+     * endpoints, for bulk loading. The caller is responsible for ensuring
+     * that both endpoints are distinct members.
+     *
+     * @param startVertex starting point (member of this graph, distinct from
+     * endVertex)
+     * @param endVertex endpoint (member of this graph)
+     * @param joints intermediate locations along the path (unaffected) or
+     * null for a straight arc
+     * @return new member
+     */
+    NavArc addArcUnchecked(NavVertex startVertex, NavVertex endVertex,
+            Vector3f[] joints) {
+        assert contains(startVertex) : startVertex;
+        assert contains(endVertex) : endVertex;
+
+        NavArc newArc;
+        if (joints == null) {
+            newArc = startVertex.addArc(endVertex);
+        } else {
+            newArc = startVertex.addArc(endVertex, joints);
+        }
+        addNewArc(newArc);
+
+        return newArc;
+    }
+
+    /**
+     * Register a listener to be notified of modifications to this graph.
+     *
+     * @param listener (not null, not already registered)
+     */
+    public void addListener(NavGraphListener listener) {
+        Validate.nonNull(listener, "listener");
+        if (listeners.contains(listener)) {
+            logger.log(Level.SEVERE, "listener={0}", listener);
+            throw new IllegalArgumentException(
+                    "listener should not already be registered");
+        }
+
+        listeners.add(listener);
+    }
+
     /**
      * Create a vertex without any arcs and add it to this graph.
      *
@@ -127,12 +223,36 @@ public class NavGraph {
         Validate.nonNull(position, "position");
 
         NavVertex newVertex = new NavVertex(description, position);
+        newVertex.setIndex(vertices.size());
         boolean success = vertices.add(newVertex);
         assert success;
+        if (spatialIndex != null) {
+            spatialIndex.add(newVertex);
+        }
+        if (bulkFirstVertex == -1) {
+            invalidateCaches();
+            for (NavGraphListener listener : listeners) {
+                listener.vertexAdded(this, newVertex);
+            }
+        }
 
         return newVertex;
     }
 
+    /**
+     * Begin a bulk load. Until {@link #endBulkLoad()} is invoked, vertices
+     * and arcs are added without notifying listeners or maintaining the
+     * spatial index, which is rebuilt on the next proximity query instead.
+     * Arcs mustn't be removed during a bulk load.
+     */
+    void beginBulkLoad() {
+        assert bulkFirstVertex == -1 : "bulk load already in progress";
+
+        bulkFirstVertex = vertices.size();
+        bulkFirstArc = arcs.size();
+        spatialIndex = null;
+    }
+
     /**
      * Test whether a particular vertex is part of this graph.
      *
@@ -140,7 +260,123 @@ public class NavGraph {
      * @return true if it's a member, otherwise false
      */
     public boolean contains(NavVertex vertex) {
-        boolean result = vertices.contains(vertex);
+        if (vertex == null) {
+            return false;
+        }
+        int index = vertex.getIndex();
+        boolean result = index >= 0 && index < vertices.size()
+                && vertices.get(index) == vertex;
+
+        return result;
+    }
+
+    /**
+     * Test whether a particular arc is part of this graph.
+     *
+     * @param arc arc to test (or null)
+     * @return true if it's a member, otherwise false
+     */
+    public boolean contains(NavArc arc) {
+        if (arc == null) {
+            return false;
+        }
+        int index = arc.getIndex();
+        boolean result = index >= 0 && index < arcs.size()
+                && arcs.get(index) == arc;
+
+        return result;
+    }
+
+    /**
+     * Complete a bulk load: count it as a single modification, then notify
+     * listeners of each vertex and arc added since
+     * {@link #beginBulkLoad()}, vertices first.
+     */
+    void endBulkLoad() {
+        assert bulkFirstVertex != -1 : "no bulk load in progress";
+
+        int firstVertex = bulkFirstVertex;
+        int firstArc = bulkFirstArc;
+        bulkFirstVertex = -1;
+        bulkFirstArc = -1;
+
+        invalidateCaches();
+        int numVertices = vertices.size();
+        for (int index = firstVertex; index < numVertices; index++) {
+            NavVertex vertex = vertices.get(index);
+            for (NavGraphListener listener : listeners) {
+                listener.vertexAdded(this, vertex);
+            }
+        }
+        int numArcs = arcs.size();
+        for (int index = firstArc; index < numArcs; index++) {
+            NavArc arc = arcs.get(index);
+            for (NavGraphListener listener : listeners) {
+                listener.arcAdded(this, arc);
+            }
+        }
+    }
+
+    /**
+     * Increase the capacity of this graph's lists, if necessary, in
+     * preparation for bulk loading.
+     *
+     * @param numVertices total number of vertices expected (&ge;0)
+     * @param numArcs total number of arcs expected (&ge;0)
+     */
+    void ensureCapacity(int numVertices, int numArcs) {
+        vertices.ensureCapacity(numVertices);
+        arcs.ensureCapacity(numArcs);
+    }
+
+    /**
+     * Enumerate all arcs whose paths pass within the specified distance of a
+     * location.
+     *
+     * @param center world coordinates of the query (not null, unaffected)
+     * @param radius search radius (in world units, &ge;0)
+     * @param storeResult list to add members to (or null)
+     * @return storeResult if not null, otherwise a new list
+     */
+    public List<NavArc> findArcsWithin(Vector3f center, float radius,
+            List<NavArc> storeResult) {
+        Validate.nonNull(center, "center");
+        Validate.nonNegative(radius, "radius");
+        if (storeResult == null) {
+            storeResult = new ArrayList<>(10);
+        }
+
+        obtainSpatialIndex().findArcs(center, radius, storeResult);
+        return storeResult;
+    }
+
+    /**
+     * Enumerate all articulation vertices of this graph, treating an arc and
+     * its reverse as a single undirected edge. An articulation vertex is one
+     * whose removal would disconnect some pair of its neighbors. The result is
+     * computed in O(V+E) time and cached until the graph is next modified.
+     *
+     * @return new list of members
+     */
+    public List<NavVertex> findArticulationVertices() {
+        ConnectivityAnalysis analysis = analyzeConnectivity();
+        List<NavVertex> result = analysis.copyArticulationVertices();
+
+        return result;
+    }
+
+    /**
+     * Enumerate all arcs which form bridges, treating an arc and its reverse
+     * as a single undirected edge. A bridge is an edge whose removal would
+     * disconnect its endpoints. The result is computed in O(V+E) time and
+     * cached until the graph is next modified.
+     *
+     * @return new list of members
+     */
+    public List<NavArc> findBridges() {
+        ConnectivityAnalysis analysis = analyzeConnectivity();
+        List<NavArc> result = analysis.copyBridgeArcs();
+
         return result;
     }
 
@@ -170,6 +406,28 @@ public class NavGraph {
      */
     public List<NavVertex> findByHops(int minHopCount, int maxHopCount,
             NavVertex startVertex) {
+        validateMember(startVertex);
+
+        List<NavVertex> startList = new ArrayList<>(1);
+        startList.add(startVertex);
+        List<NavVertex> result = findByHops(minHopCount, maxHopCount,
+                startList);
+
+        return result;
+    }
+
+    /**
+     * Enumerate all vertices whose hop count from the nearest of several
+     * starting points lies in the specified inclusive range.
+     *
+     * @param minHopCount (&ge;0)
+     * @param maxHopCount (&ge;minHopCount)
+     * @param startVertices starting points (not null, all members of this
+     * graph, unaffected)
+     * @return new list of members
+     */
+    public List<NavVertex> findByHops(int minHopCount, int maxHopCount,
+            Collection<NavVertex> startVertices) {
         Validate.nonNegative(minHopCount, "count");
         if (minHopCount > maxHopCount) {
             logger.log(Level.SEVERE, "min={0} max={1}",
@@ -177,15 +435,15 @@ public class NavGraph {
             throw new IllegalArgumentException(
                     "min should not be greater than max");
         }
-        validateMember(startVertex);
+        Validate.nonNull(startVertices, "start vertices");
 
-        Map<NavVertex, Integer> hopData = new TreeMap<>();
-        calculateHops(startVertex, 0, hopData);
+        NavSearch search = new NavSearch(this);
+        search.computeHops(startVertices, maxHopCount);
 
         List<NavVertex> result = new ArrayList<>(30);
         for (NavVertex vertex : vertices) {
-            Integer hops = hopData.get(vertex);
-            if (hops != null && hops >= minHopCount && hops <= maxHopCount) {
+            int hops = search.hopCount(vertex);
+            if (hops >= minHopCount && hops <= maxHopCount) {
                 result.add(vertex);
             }
         }
@@ -218,16 +476,16 @@ public class NavGraph {
         validateMember(startVertex);
         Validate.nonNull(candidates, "list");
 
-        Map<NavVertex, Float> distanceData = new TreeMap<>();
-        calculateDistances(startVertex, 0f, distanceData);
+        NavSearch search = new NavSearch(this);
+        search.computeDistances(startVertex);
         /*
          * Search for the maximum distance.
          */
         NavVertex result = startVertex;
         float maxDistance = 0f;
         for (NavVertex vertex : candidates) {
-            Float distance = distanceData.get(vertex);
-            if (distance != null && distance > maxDistance) {
+            float distance = search.distance(vertex);
+            if (distance != Float.POSITIVE_INFINITY && distance > maxDistance) {
                 maxDistance = distance;
                 result = vertex;
             }
@@ -236,6 +494,85 @@ public class NavGraph {
         return result;
     }
 
+    /**
+     * Find the location on an arc path nearest to the specified location, using
+     * the spatial index.
+     *
+     * @param location world coordinates of the query (not null, unaffected)
+     * @return new instance (or null if this graph has no arcs)
+     */
+    public NavLocation findNearestArc(Vector3f location) {
+        Validate.nonNull(location, "location");
+
+        NavLocation result = obtainSpatialIndex().findNearestArc(location);
+        return result;
+    }
+
+    /**
+     * Find the vertex nearest to the specified location, using the spatial
+     * index.
+     *
+     * @param location world coordinates of the query (not null, unaffected)
+     * @return pre-existing member (or null if this graph has no vertices)
+     */
+    public NavVertex findNearestVertex(Vector3f location) {
+        Validate.nonNull(location, "location");
+
+        NavVertex result = obtainSpatialIndex().findNearestVertex(location);
+        return result;
+    }
+
+    /**
+     * Find the shortest path from one vertex to another, using A* with a
+     * straight-line heuristic. For many queries, a re-usable
+     * {@link NavSearch} is more efficient.
+     *
+     * @param startVertex starting point (member of this graph)
+     * @param goalVertex goal (member of this graph)
+     * @return new path (or null if the goal is unreachable)
+     */
+    public NavPath findPath(NavVertex startVertex, NavVertex goalVertex) {
+        validateMember(startVertex);
+        validateMember(goalVertex);
+
+        NavSearch search = new NavSearch(this);
+        NavHeuristic heuristic = new StraightLineHeuristic();
+        NavPath result = search.findPath(startVertex, goalVertex, heuristic);
+
+        return result;
+    }
+
+    /**
+     * Enumerate all vertices within the specified distance of a location.
+     *
+     * @param center world coordinates of the query (not null, unaffected)
+     * @param radius search radius (in world units, &ge;0)
+     * @param storeResult list to add members to (or null)
+     * @return storeResult if not null, otherwise a new list
+     */
+    public List<NavVertex> findVerticesWithin(Vector3f center, float radius,
+            List<NavVertex> storeResult) {
+        Validate.nonNull(center, "center");
+        Validate.nonNegative(radius, "radius");
+        if (storeResult == null) {
+            storeResult = new ArrayList<>(10);
+        }
+
+        obtainSpatialIndex().findVertices(center, radius, storeResult);
+        return storeResult;
+    }
+
+    /**
+     * Create an immutable, compact snapshot of this graph for fast queries.
+     * The snapshot is unaffected by subsequent changes to this graph.
+     *
+     * @return new instance
+     */
+    public CompactNavGraph freeze() {
+        CompactNavGraph result = new CompactNavGraph(this);
+        return result;
+    }
+
     /**
      * Enumerate all arcs.
      *
@@ -253,6 +590,29 @@ public class NavGraph {
         return result;
     }
 
+    /**
+     * Access the indexed vertex of this graph.
+     *
+     * @param index (&ge;0, &lt;numVertices)
+     * @return pre-existing member
+     */
+    NavVertex getVertex(int index) {
+        NavVertex result = vertices.get(index);
+        assert result.getIndex() == index : index;
+        return result;
+    }
+
+    /**
+     * Read the modification counter, which increases each time a vertex or
+     * arc is added or removed. Derived data tagged with an older count may be
+     * stale.
+     *
+     * @return count (&ge;0)
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
     /**
      * Enumerate all vertices.
      *
@@ -279,51 +639,127 @@ public class NavGraph {
      */
     public boolean isConnectedWithout(NavArc arc) {
         validateMember(arc);
+        /*
+         * If every arc has a reverse, answer from the (cached) bridge
+         * analysis. Otherwise, search.
+         */
+        ConnectivityAnalysis analysis = analyzeConnectivity();
+        if (analysis.isSymmetric()) {
+            boolean result = !analysis.isBridge(arc);
+            return result;
+        }
 
         NavVertex fromVertex = arc.getFromVertex();
         NavVertex toVertex = arc.getToVertex();
-        Set<NavVertex> visitedVertices = new TreeSet<>();
-        boolean result = existsPathWithout(arc, fromVertex, toVertex,
-                visitedVertices);
+        boolean result = existsPathWithout(arc, fromVertex, toVertex);
 
         return result;
     }
 
     /**
-     * Select a random arc from this graph.
+     * Count the arcs in this graph.
+     *
+     * @return number of arcs (&ge;0)
+     */
+    public int numArcs() {
+        int result = arcs.size();
+        return result;
+    }
+
+    /**
+     * Count the vertices in this graph.
+     *
+     * @return number of vertices (&ge;0)
+     */
+    public int numVertices() {
+        int result = vertices.size();
+        return result;
+    }
+
+    /**
+     * Select a random arc from this graph, with uniform probability.
      *
      * @param generator generator of uniform random values (not null)
-     * @return pre-existing member
+     * @return pre-existing member (or null if there are no arcs)
      */
     public NavArc randomArc(Random generator) {
         Validate.nonNull(generator, "generator");
-        NavArc result = (NavArc) Noise.pick(arcs, generator);
+
+        int count = arcs.size();
+        if (count == 0) {
+            return null;
+        }
+        int index = generator.nextInt(count);
+        NavArc result = arcs.get(index);
+
         return result;
     }
 
     /**
-     * Select a random vertex from this graph.
+     * Select a random vertex from this graph, with uniform probability.
      *
      * @param generator generator of uniform random values (not null)
-     * @return pre-existing member
+     * @return pre-existing member (or null if there are no vertices)
      */
     public NavVertex randomVertex(Random generator) {
         Validate.nonNull(generator, "generator");
-        NavVertex result = (NavVertex) Noise.pick(vertices, generator);
+
+        int count = vertices.size();
+        if (count == 0) {
+            return null;
+        }
+        int index = generator.nextInt(count);
+        NavVertex result = vertices.get(index);
+
         return result;
     }
 
     /**
-     * Remove the specified arc (but not its reverse) from this graph.
+     * Remove the specified arc (but not its reverse) from this graph. The
+     * last arc in the list takes its place, so the order of the remaining
+     * arcs may change.
      *
-     * @param arc arc to be removed (not null)
+     * @param arc arc to be removed (member of this graph)
      */
     public void remove(NavArc arc) {
+        validateMember(arc);
+        assert bulkFirstArc == -1 : "bulk load in progress";
+
         NavVertex fromVertex = arc.getFromVertex();
-        NavVertex toVertex = arc.getToVertex();
-        fromVertex.removeArcTo(toVertex);
-        boolean success = arcs.remove(arc);
-        assert success;
+        boolean success = fromVertex.removeArc(arc);
+        assert success : arc;
+        if (spatialIndex != null) {
+            spatialIndex.remove(arc);
+        }
+
+        int index = arc.getIndex();
+        int lastIndex = arcs.size() - 1;
+        NavArc lastArc = arcs.remove(lastIndex);
+        if (lastArc != arc) {
+            arcs.set(index, lastArc);
+            lastArc.setIndex(index);
+        }
+        arc.setIndex(-1);
+        invalidateCaches();
+        for (NavGraphListener listener : listeners) {
+            listener.arcRemoved(this, arc);
+        }
+    }
+
+    /**
+     * Unregister a listener.
+     *
+     * @param listener (not null, registered)
+     */
+    public void removeListener(NavGraphListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = listeners.remove(listener);
+        if (!success) {
+            logger.log(Level.SEVERE, "listener={0}", listener);
+            throw new IllegalArgumentException(
+                    "listener should be registered");
+        }
     }
 
     /**
@@ -361,14 +797,14 @@ public class NavGraph {
                     "starting point and goal should be distinct");
         }
 
-        Map<NavVertex, Float> distanceData = new TreeMap<>();
-        calculateDistances(endVertex, 0f, distanceData);
+        NavSearch search = new NavSearch(this);
+        search.computeDistances(endVertex);
 
         NavArc result = null;
-        float minDistance = Float.MAX_VALUE;
+        float minDistance = Float.POSITIVE_INFINITY;
         for (NavArc arc : startVertex.getArcs()) {
             NavVertex neighbor = arc.getToVertex();
-            float distance = distanceData.get(neighbor) + arc.getPathLength();
+            float distance = search.distance(neighbor) + arc.getPathLength();
             if (distance < minDistance) {
                 minDistance = distance;
                 result = arc;
@@ -384,7 +820,7 @@ public class NavGraph {
      * @param arc arc to be validated
      */
     public void validateMember(NavArc arc) {
-        if (!arcs.contains(arc)) {
+        if (!contains(arc)) {
             logger.log(Level.SEVERE, "arc={0}", arc);
             throw new IllegalArgumentException("graph should contain the arc");
         }
@@ -396,7 +832,7 @@ public class NavGraph {
      * @param vertex vertex to be validated
      */
     public void validateMember(NavVertex vertex) {
-        if (!vertices.contains(vertex)) {
+        if (!contains(vertex)) {
             logger.log(Level.SEVERE, "vertex={0}", vertex);
             throw new IllegalArgumentException(
                     "graph should contain the vertex");
@@ -406,74 +842,42 @@ public class NavGraph {
     // private methods
 
     /**
-     * Measure the minimum distance to each vertex in the graph from a fixed
-     * starting point. Note: recursive!
+     * Add a newly-created arc to the list and the spatial index, and notify
+     * listeners.
      *
-     * @param currentVertex vertex being visited (member of this graph)
-     * @param distance distance from the starting point to the current vertex
-     * (&ge;0)
-     * @param pathData distances of all vertices already visited (not null)
+     * @param newArc arc just created (not null, not yet a member)
      */
-    private void calculateDistances(NavVertex currentVertex,
-            float distance, Map<NavVertex, Float> pathData) {
-        assert vertices.contains(currentVertex) : currentVertex;
-        assert distance >= 0f : distance;
-        assert pathData != null;
-
-        if (pathData.containsKey(currentVertex)
-                && distance > pathData.get(currentVertex)) {
-            return;
+    private void addNewArc(NavArc newArc) {
+        newArc.setIndex(arcs.size());
+        boolean success = arcs.add(newArc);
+        assert success : newArc;
+        if (spatialIndex != null) {
+            spatialIndex.add(newArc);
         }
-        /*
-         * Update the distance of the current vertex.
-         */
-        pathData.put(currentVertex, distance);
-        /*
-         * Follow each arc from the current vertex.
-         */
-        for (NavArc arc : currentVertex.getArcs()) {
-            NavVertex vertex = arc.getToVertex();
-            float newDistance = distance + arc.getPathLength();
-            calculateDistances(vertex, newDistance, pathData);
+        if (bulkFirstArc == -1) {
+            invalidateCaches();
+            for (NavGraphListener listener : listeners) {
+                listener.arcAdded(this, newArc);
+            }
         }
     }
 
     /**
-     * Measure the minimum number of hops to each vertex in the graph. Note:
-     * recursive!
+     * Obtain the analysis of bridges and articulation vertices, performing it
+     * if the cached analysis is stale.
      *
-     * @param currentVertex vertex being visited (member of this graph)
-     * @param hopCount hop count from the start vertex to the current vertex
-     * (&ge;0)
-     * @param pathData hop counts of all vertices already visited (not null)
+     * @return pre-existing or new instance
      */
-    private void calculateHops(NavVertex currentVertex,
-            int hopCount, Map<NavVertex, Integer> pathData) {
-        assert vertices.contains(currentVertex) : currentVertex;
-        assert hopCount >= 0 : hopCount;
-        assert pathData != null;
-
-        if (pathData.containsKey(currentVertex)
-                && hopCount > pathData.get(currentVertex)) {
-            return;
-        }
-        /*
-         * Update the hop count of the current vertex.
-         */
-        pathData.put(currentVertex, hopCount);
-        /*
-         * Follow each arc from the current vertex.
-         */
-        int nextHopCount = hopCount + 1;
-        for (NavArc arc : currentVertex.getArcs()) {
-            NavVertex vertex = arc.getToVertex();
-            calculateHops(vertex, nextHopCount, pathData);
+    private ConnectivityAnalysis analyzeConnectivity() {
+        if (connectivity == null) {
+            connectivity = new ConnectivityAnalysis(this);
         }
+        return connectivity;
     }
 
     /**
      * Test whether there's a path between two specified vertices which avoids a
-     * specified arc. Note: recursive!
+     * specified arc, using iterative depth-first search.
      *
      * @param avoidArc arc to avoid (member of this graph)
      * @param fromVertex starting point (member of this graph)
@@ -481,31 +885,67 @@ public class NavGraph {
      * @return true if such a path exists, false if no such path exists
      */
     private boolean existsPathWithout(NavArc avoidArc, NavVertex fromVertex,
-            NavVertex toVertex, Set<NavVertex> visitedVertices) {
-        assert arcs.contains(avoidArc) : avoidArc;
-        assert vertices.contains(fromVertex) : fromVertex;
-        assert vertices.contains(toVertex) : toVertex;
-
-        if (fromVertex == toVertex) {
-            return true;
-        }
-        if (visitedVertices.contains(fromVertex)) {
-            return false;
+            NavVertex toVertex) {
+        assert contains(avoidArc) : avoidArc;
+        assert contains(fromVertex) : fromVertex;
+        assert contains(toVertex) : toVertex;
+
+        int numVertices = vertices.size();
+        boolean[] visited = new boolean[numVertices];
+        int[] stack = new int[numVertices];
+        int depth = 0;
+        stack[0] = fromVertex.getIndex();
+        visited[stack[0]] = true;
+
+        while (depth >= 0) {
+            NavVertex vertex = vertices.get(stack[depth]);
+            depth--;
+            if (vertex == toVertex) {
+                return true;
+            }
+            int numArcs = vertex.getNumArcs();
+            for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+                NavArc arc = vertex.getArc(arcIndex);
+                if (arc == avoidArc) {
+                    continue;
+                }
+                int neighborIndex = arc.getToVertex().getIndex();
+                if (!visited[neighborIndex]) {
+                    visited[neighborIndex] = true;
+                    depth++;
+                    stack[depth] = neighborIndex;
+                }
+            }
         }
+        return false;
+    }
 
-        visitedVertices.add(fromVertex);
+    /**
+     * Discard cached analyses after a change to this graph.
+     */
+    private void invalidateCaches() {
+        connectivity = null;
+        ++modificationCount;
+    }
 
-        for (NavArc arc : fromVertex.getArcs()) {
-            if (arc == avoidArc) {
-                continue;
+    /**
+     * Access the spatial index, rebuilding it in a single pass if a bulk load
+     * discarded it.
+     *
+     * @return pre-existing or new instance
+     */
+    private NavSpatialIndex obtainSpatialIndex() {
+        if (spatialIndex == null) {
+            NavSpatialIndex index = new NavSpatialIndex(cellSize);
+            for (NavVertex vertex : vertices) {
+                index.add(vertex);
             }
-            NavVertex vertex = arc.getToVertex();
-            boolean pathExists = existsPathWithout(avoidArc, vertex, toVertex,
-                    visitedVertices);
-            if (pathExists) {
-                return true;
+            for (NavArc arc : arcs) {
+                index.add(arc);
             }
+            spatialIndex = index;
         }
-        return false;
+
+        return spatialIndex;
     }
 }
\ No newline at end of file
@@ -0,0 +1,338 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Accumulator for building a navigation graph in bulk, with vertices
+ * identified by string ids.
+ * <p>
+ * Ids are resolved through a hash index, and arcs may refer to vertices
+ * before they're defined. Nothing is added to a graph until
+ * {@link #build()} or {@link #build(jme3utilities.navigation.NavGraph)},
+ * which commits everything in one batch without the per-arc membership
+ * checks of {@link NavGraph#addArc(jme3utilities.navigation.NavVertex,
+ * jme3utilities.navigation.NavVertex)}, so the total cost is linear.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavGraphBuilder {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavGraphBuilder.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * true for each vertex which has been defined, indexed by builder index
+     */
+    private boolean[] defined = new boolean[64];
+    /**
+     * joint coordinates of all arcs, packed as x, y, z triplets
+     */
+    private float[] jointCoordinates = new float[48];
+    /**
+     * vertex coordinates, packed as x, y, z triplets and indexed by 3 *
+     * builder index
+     */
+    private float[] locations = new float[192];
+    /**
+     * builder index of the origin of each arc
+     */
+    private int[] arcSources = new int[64];
+    /**
+     * builder index of the destination of each arc
+     */
+    private int[] arcTargets = new int[64];
+    /**
+     * number of joints in each arc
+     */
+    private int[] jointCounts = new int[64];
+    /**
+     * number of arcs added (&ge;0)
+     */
+    private int numArcs = 0;
+    /**
+     * number of joint coordinates used (&ge;0)
+     */
+    private int numJointCoordinates = 0;
+    /**
+     * number of distinct vertex ids seen, defined or not (&ge;0)
+     */
+    private int numIds = 0;
+    /**
+     * number of vertices defined (&ge;0)
+     */
+    private int numDefined = 0;
+    /**
+     * builder index of each vertex id
+     */
+    final private Map<String, Integer> indices = new HashMap<>(256);
+    /**
+     * vertex ids, indexed by builder index
+     */
+    private String[] ids = new String[64];
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add a straight arc between 2 vertices.
+     *
+     * @param fromId id of the starting vertex (not null)
+     * @param toId id of the destination vertex (not null, distinct from
+     * fromId)
+     */
+    public void addArc(String fromId, String toId) {
+        addArc(fromId, toId, null, 0);
+    }
+
+    /**
+     * Add a piecewise-linear arc between 2 vertices.
+     *
+     * @param fromId id of the starting vertex (not null)
+     * @param toId id of the destination vertex (not null, distinct from
+     * fromId)
+     * @param joints joint coordinates packed as x, y, z triplets (not null,
+     * unaffected)
+     * @param numJoints number of joints (&ge;0)
+     */
+    public void addArc(String fromId, String toId, float[] joints,
+            int numJoints) {
+        Validate.nonNull(fromId, "from id");
+        Validate.nonNull(toId, "to id");
+        if (fromId.equals(toId)) {
+            logger.log(Level.SEVERE, "id={0}", fromId);
+            throw new IllegalArgumentException(
+                    "endpoints should be distinct");
+        }
+        Validate.nonNegative(numJoints, "number of joints");
+        if (numJoints > 0) {
+            Validate.nonNull(joints, "joints");
+        }
+
+        if (numArcs == arcSources.length) {
+            int newLength = 2 * numArcs;
+            arcSources = Arrays.copyOf(arcSources, newLength);
+            arcTargets = Arrays.copyOf(arcTargets, newLength);
+            jointCounts = Arrays.copyOf(jointCounts, newLength);
+        }
+        arcSources[numArcs] = obtainIndex(fromId);
+        arcTargets[numArcs] = obtainIndex(toId);
+        jointCounts[numArcs] = numJoints;
+        ++numArcs;
+
+        int numFloats = 3 * numJoints;
+        int needed = numJointCoordinates + numFloats;
+        if (needed > jointCoordinates.length) {
+            int newLength = Math.max(needed, 2 * jointCoordinates.length);
+            jointCoordinates = Arrays.copyOf(jointCoordinates, newLength);
+        }
+        if (numFloats > 0) {
+            System.arraycopy(joints, 0, jointCoordinates,
+                    numJointCoordinates, numFloats);
+        }
+        numJointCoordinates = needed;
+    }
+
+    /**
+     * Define a vertex.
+     *
+     * @param id unique id, also used as the vertex description (not null, not
+     * already defined)
+     * @param x world X coordinate
+     * @param y world Y coordinate
+     * @param z world Z coordinate
+     */
+    public void addVertex(String id, float x, float y, float z) {
+        Validate.nonNull(id, "id");
+
+        int index = obtainIndex(id);
+        if (defined[index]) {
+            logger.log(Level.SEVERE, "id={0}", id);
+            throw new IllegalArgumentException(
+                    "vertex should not already be defined");
+        }
+        defined[index] = true;
+        ++numDefined;
+        locations[3 * index] = x;
+        locations[3 * index + 1] = y;
+        locations[3 * index + 2] = z;
+    }
+
+    /**
+     * Create a new graph containing the accumulated vertices and arcs.
+     *
+     * @return new graph with the default spatial-index resolution
+     */
+    public NavGraph build() {
+        NavGraph result = new NavGraph();
+        build(result);
+
+        return result;
+    }
+
+    /**
+     * Add the accumulated vertices and arcs to a graph in one batch. Vertices
+     * are added in the order of their ids' 1st appearance. The builder is
+     * unaffected.
+     *
+     * @param storeResult graph to add to (not null, modified)
+     */
+    public void build(NavGraph storeResult) {
+        Validate.nonNull(storeResult, "graph");
+        String undefinedId = findUndefined();
+        if (undefinedId != null) {
+            logger.log(Level.SEVERE, "id={0}", undefinedId);
+            throw new IllegalStateException(
+                    "an arc refers to an undefined vertex");
+        }
+
+        storeResult.beginBulkLoad();
+        try {
+            storeResult.ensureCapacity(storeResult.numVertices() + numIds,
+                    storeResult.numArcs() + numArcs);
+            NavVertex[] vertices = new NavVertex[numIds];
+            Vector3f location = new Vector3f();
+            for (int index = 0; index < numIds; index++) {
+                location.set(locations[3 * index], locations[3 * index + 1],
+                        locations[3 * index + 2]);
+                vertices[index] = storeResult.addVertex(ids[index], location);
+            }
+
+            /*
+             * Size each vertex's arc arrays for its out-degree, so that
+             * adding the arcs never grows them.
+             */
+            int[] outDegrees = new int[numIds];
+            for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+                outDegrees[arcSources[arcIndex]]++;
+            }
+            for (int index = 0; index < numIds; index++) {
+                NavVertex vertex = vertices[index];
+                vertex.ensureArcCapacity(
+                        vertex.getNumArcs() + outDegrees[index]);
+            }
+
+            int coordinateIndex = 0;
+            for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+                int numJoints = jointCounts[arcIndex];
+                Vector3f[] joints = null;
+                if (numJoints > 0) {
+                    joints = new Vector3f[numJoints];
+                    for (int jointIndex = 0; jointIndex < numJoints;
+                            jointIndex++) {
+                        joints[jointIndex] = new Vector3f(
+                                jointCoordinates[coordinateIndex],
+                                jointCoordinates[coordinateIndex + 1],
+                                jointCoordinates[coordinateIndex + 2]);
+                        coordinateIndex += 3;
+                    }
+                }
+                NavVertex from = vertices[arcSources[arcIndex]];
+                NavVertex to = vertices[arcTargets[arcIndex]];
+                storeResult.addArcUnchecked(from, to, joints);
+            }
+        } finally {
+            storeResult.endBulkLoad();
+        }
+    }
+
+    /**
+     * Find an id which is referenced by an arc but not yet defined.
+     *
+     * @return the id, or null if all referenced vertices are defined
+     */
+    public String findUndefined() {
+        if (numDefined == numIds) {
+            return null;
+        }
+        for (int index = 0; index < numIds; index++) {
+            if (!defined[index]) {
+                return ids[index];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Count the arcs added so far.
+     *
+     * @return count (&ge;0)
+     */
+    public int numArcs() {
+        return numArcs;
+    }
+
+    /**
+     * Count the vertices defined so far.
+     *
+     * @return count (&ge;0)
+     */
+    public int numVertices() {
+        return numDefined;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the builder index of a vertex id, assigning a new index if the id
+     * is new.
+     *
+     * @param id vertex id (not null)
+     * @return builder index (&ge;0)
+     */
+    private int obtainIndex(String id) {
+        Integer index = indices.get(id);
+        if (index != null) {
+            int result = index;
+            return result;
+        }
+
+        int result = numIds;
+        if (result == ids.length) {
+            int newLength = 2 * result;
+            defined = Arrays.copyOf(defined, newLength);
+            ids = Arrays.copyOf(ids, newLength);
+            locations = Arrays.copyOf(locations, 3 * newLength);
+        }
+        ids[result] = id;
+        indices.put(id, result);
+        ++numIds;
+
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,363 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.Spline3f;
+
+/**
+ * Utility methods to save and load entire navigation graphs in a compact,
+ * versioned binary format.
+ * <p>
+ * The format is columnar and big-endian: a header (magic number, version,
+ * vertex count, arc count, and joint count), then the vertex X, Y, and Z
+ * coordinates as 3 float arrays, then each vertex description as a length
+ * followed by UTF-8 bytes, then the arc origins, destinations, and joint
+ * counts as 3 int arrays, and finally the joint coordinates as x, y, z
+ * triplets.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+final public class NavGraphFile {
+    // *************************************************************************
+    // constants
+
+    /**
+     * character set for vertex descriptions
+     */
+    final private static Charset charset = Charset.forName("UTF-8");
+    /**
+     * identifying value at the start of each file ("NGF1")
+     */
+    final private static int fileMagic = 0x4e474631;
+    /**
+     * version of the file format
+     */
+    final private static int fileVersion = 1;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavGraphFile.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private NavGraphFile() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Load a graph from a file, memory-mapping its contents.
+     *
+     * @param file file to read (not null)
+     * @return new graph with the default spatial-index resolution
+     * @throws IOException if the file can't be read or isn't a valid graph
+     */
+    public static NavGraph load(File file) throws IOException {
+        Validate.nonNull(file, "file");
+
+        MappedByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L,
+                    channel.size());
+        }
+        NavGraph result = new NavGraph();
+        read(mapped, result);
+
+        return result;
+    }
+
+    /**
+     * Read a graph from a buffer, adding its vertices and arcs to the
+     * specified graph.
+     *
+     * @param buffer buffer positioned at the start of the data (not null,
+     * big-endian, position advanced)
+     * @param storeResult graph to add to (not null, modified)
+     * @throws IOException if the data aren't a valid graph
+     */
+    public static void read(ByteBuffer buffer, NavGraph storeResult)
+            throws IOException {
+        Validate.nonNull(buffer, "buffer");
+        Validate.nonNull(storeResult, "graph");
+
+        storeResult.beginBulkLoad();
+        try {
+            readUnchecked(buffer, storeResult);
+        } catch (BufferUnderflowException exception) {
+            throw new IOException("graph data are truncated", exception);
+        } finally {
+            storeResult.endBulkLoad();
+        }
+    }
+
+    /**
+     * Save a graph to a file.
+     *
+     * @param graph graph to save (not null, unaffected)
+     * @param file file to write (not null)
+     * @throws IOException if the file can't be written
+     */
+    public static void save(NavGraph graph, File file) throws IOException {
+        Validate.nonNull(graph, "graph");
+        Validate.nonNull(file, "file");
+
+        try (OutputStream stream = new FileOutputStream(file)) {
+            write(graph, stream);
+        }
+    }
+
+    /**
+     * Write a graph to a stream.
+     *
+     * @param graph graph to write (not null, unaffected)
+     * @param stream stream to write to (not null, left open)
+     * @throws IOException if the stream can't be written
+     */
+    public static void write(NavGraph graph, OutputStream stream)
+            throws IOException {
+        Validate.nonNull(graph, "graph");
+        Validate.nonNull(stream, "stream");
+
+        NavVertex[] vertices = graph.getVertices();
+        NavArc[] arcs = graph.getArcs();
+        int totalJoints = 0;
+        for (NavArc arc : arcs) {
+            totalJoints += arc.getPath().numControlPoints() - 2;
+        }
+
+        DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(stream, 65536));
+        data.writeInt(fileMagic);
+        data.writeInt(fileVersion);
+        data.writeInt(vertices.length);
+        data.writeInt(arcs.length);
+        data.writeInt(totalJoints);
+
+        for (int axis = 0; axis < 3; axis++) {
+            for (NavVertex vertex : vertices) {
+                data.writeFloat(vertex.getLocation().get(axis));
+            }
+        }
+        for (NavVertex vertex : vertices) {
+            byte[] bytes = vertex.getDescription().getBytes(charset);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+
+        for (NavArc arc : arcs) {
+            data.writeInt(arc.getFromVertex().getIndex());
+        }
+        for (NavArc arc : arcs) {
+            data.writeInt(arc.getToVertex().getIndex());
+        }
+        for (NavArc arc : arcs) {
+            data.writeInt(arc.getPath().numControlPoints() - 2);
+        }
+        Vector3f joint = new Vector3f();
+        for (NavArc arc : arcs) {
+            Spline3f path = arc.getPath();
+            int last = path.numControlPoints() - 1;
+            for (int pointIndex = 1; pointIndex < last; pointIndex++) {
+                path.getControlPoint(pointIndex, joint);
+                data.writeFloat(joint.x);
+                data.writeFloat(joint.y);
+                data.writeFloat(joint.z);
+            }
+        }
+        data.flush();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Read a bulk array of floats from a buffer.
+     *
+     * @param buffer buffer to read (not null, position advanced)
+     * @param count number of floats (&ge;0)
+     * @return new array
+     */
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] result = new float[count];
+        buffer.asFloatBuffer().get(result);
+        buffer.position(buffer.position() + 4 * count);
+
+        return result;
+    }
+
+    /**
+     * Read a bulk array of ints from a buffer.
+     *
+     * @param buffer buffer to read (not null, position advanced)
+     * @param count number of ints (&ge;0)
+     * @return new array
+     */
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] result = new int[count];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + 4 * count);
+
+        return result;
+    }
+
+    /**
+     * Read a graph from a buffer without catching underflows.
+     *
+     * @param buffer buffer positioned at the start of the data (not null,
+     * position advanced)
+     * @param storeResult graph to add to (not null, modified)
+     * @throws IOException if the data aren't a valid graph
+     */
+    private static void readUnchecked(ByteBuffer buffer,
+            NavGraph storeResult) throws IOException {
+        int magic = buffer.getInt();
+        if (magic != fileMagic) {
+            throw new IOException("data aren't a navigation graph");
+        }
+        int version = buffer.getInt();
+        if (version != fileVersion) {
+            throw new IOException("unsupported version " + version);
+        }
+        int numVertices = buffer.getInt();
+        int numArcs = buffer.getInt();
+        int totalJoints = buffer.getInt();
+        if (numVertices < 0 || numArcs < 0 || totalJoints < 0) {
+            throw new IOException("graph data are corrupt");
+        }
+        /*
+         * Check the counts against the data actually present before
+         * allocating anything: each vertex occupies at least 16 bytes
+         * (location plus description length), each arc 12 bytes, and each
+         * joint 12 bytes.
+         */
+        long minBytes = 16L * numVertices + 12L * numArcs + 12L * totalJoints;
+        if (minBytes > buffer.remaining()) {
+            throw new IOException("graph data are truncated");
+        }
+        /*
+         * Read and add the vertices.
+         */
+        storeResult.ensureCapacity(storeResult.numVertices() + numVertices,
+                storeResult.numArcs() + numArcs);
+        float[] xs = readFloats(buffer, numVertices);
+        float[] ys = readFloats(buffer, numVertices);
+        float[] zs = readFloats(buffer, numVertices);
+        NavVertex[] vertices = new NavVertex[numVertices];
+        Vector3f location = new Vector3f();
+        byte[] bytes = new byte[64];
+        for (int vertexIndex = 0; vertexIndex < numVertices; vertexIndex++) {
+            int length = buffer.getInt();
+            if (length < 0) {
+                throw new IOException("graph data are corrupt");
+            }
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, 2 * bytes.length)];
+            }
+            buffer.get(bytes, 0, length);
+            String description = new String(bytes, 0, length, charset);
+            location.set(xs[vertexIndex], ys[vertexIndex], zs[vertexIndex]);
+            vertices[vertexIndex] =
+                    storeResult.addVertex(description, location);
+        }
+        /*
+         * Read and add the arcs.
+         */
+        int[] sources = readInts(buffer, numArcs);
+        int[] targets = readInts(buffer, numArcs);
+        int[] jointCounts = readInts(buffer, numArcs);
+        float[] jointCoordinates = readFloats(buffer, 3 * totalJoints);
+        /*
+         * Size each vertex's arc arrays for its out-degree, so that adding
+         * the arcs never grows them.
+         */
+        int[] outDegrees = new int[numVertices];
+        for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+            int source = sources[arcIndex];
+            if (source < 0 || source >= numVertices) {
+                throw new IOException("graph data are corrupt");
+            }
+            outDegrees[source]++;
+        }
+        for (int vertexIndex = 0; vertexIndex < numVertices; vertexIndex++) {
+            NavVertex vertex = vertices[vertexIndex];
+            vertex.ensureArcCapacity(
+                    vertex.getNumArcs() + outDegrees[vertexIndex]);
+        }
+
+        int coordinateIndex = 0;
+        for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+            int source = sources[arcIndex];
+            int target = targets[arcIndex];
+            int numJoints = jointCounts[arcIndex];
+            if (source < 0 || source >= numVertices || target < 0
+                    || target >= numVertices || source == target
+                    || numJoints < 0 || coordinateIndex
+                    + 3L * numJoints > jointCoordinates.length) {
+                throw new IOException("graph data are corrupt");
+            }
+
+            Vector3f[] joints = null;
+            if (numJoints > 0) {
+                joints = new Vector3f[numJoints];
+                for (int jointIndex = 0; jointIndex < numJoints;
+                        jointIndex++) {
+                    joints[jointIndex] = new Vector3f(
+                            jointCoordinates[coordinateIndex],
+                            jointCoordinates[coordinateIndex + 1],
+                            jointCoordinates[coordinateIndex + 2]);
+                    coordinateIndex += 3;
+                }
+            }
+            storeResult.addArcUnchecked(vertices[source], vertices[target],
+                    joints);
+        }
+        if (coordinateIndex != jointCoordinates.length) {
+            /*
+             * The per-arc joint counts don't add up to the total.
+             */
+            throw new IOException("graph data are corrupt");
+        }
+    }
+}
\ No newline at end of file
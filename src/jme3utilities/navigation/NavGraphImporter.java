@@ -0,0 +1,347 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Utility methods to import navigation graphs from edge-list text files.
+ * <p>
+ * Each non-blank line is either a comment (starting with "#"), a vertex
+ * ("v,id,x,y,z"), or an arc ("a,fromId,toId" optionally followed by joint
+ * coordinates as x,y,z triplets). Fields are separated by commas, and
+ * surrounding whitespace is ignored. Arcs may precede the vertices they
+ * reference.
+ * <p>
+ * A background thread reads the input in chunks of lines while the calling
+ * thread parses them into a {@link NavGraphBuilder}, so I/O overlaps
+ * parsing.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+final public class NavGraphImporter {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of lines in each chunk passed between threads
+     */
+    final private static int chunkLines = 4096;
+    /**
+     * maximum number of chunks buffered between threads
+     */
+    final private static int maxChunks = 8;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavGraphImporter.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private NavGraphImporter() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Import a graph from a UTF-8 edge-list file.
+     *
+     * @param file file to read (not null)
+     * @return new graph with the default spatial-index resolution
+     * @throws IOException if the file can't be read or contains errors
+     */
+    public static NavGraph importFile(File file) throws IOException {
+        Validate.nonNull(file, "file");
+
+        NavGraphBuilder builder = new NavGraphBuilder();
+        Charset charset = Charset.forName("UTF-8");
+        try (Reader reader = new InputStreamReader(
+                new FileInputStream(file), charset)) {
+            read(reader, builder);
+        }
+        NavGraph result = builder.build();
+
+        return result;
+    }
+
+    /**
+     * Parse edge-list text into a builder.
+     *
+     * @param reader source of the text (not null, read to the end but left
+     * open)
+     * @param builder builder to add to (not null, modified)
+     * @throws IOException if the text can't be read, contains errors, or
+     * references undefined vertices
+     */
+    public static void read(Reader reader, NavGraphBuilder builder)
+            throws IOException {
+        Validate.nonNull(reader, "reader");
+        Validate.nonNull(builder, "builder");
+
+        ChunkReader chunkReader = new ChunkReader(reader);
+        Thread thread = new Thread(chunkReader, "NavGraphImporter");
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            int lineNumber = 0;
+            float[] joints = new float[12];
+            while (true) {
+                String[] chunk = chunkReader.take();
+                if (chunk.length == 0) {
+                    break;
+                }
+                for (String line : chunk) {
+                    if (line == null) {
+                        break;
+                    }
+                    ++lineNumber;
+                    joints = parseLine(line, lineNumber, builder, joints);
+                }
+            }
+        } finally {
+            /*
+             * Don't return (or throw) while the reader thread might still be
+             * using the caller's reader.
+             */
+            chunkReader.stop(thread);
+        }
+
+        String undefinedId = builder.findUndefined();
+        if (undefinedId != null) {
+            throw new IOException(
+                    "an arc refers to undefined vertex " + undefinedId);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Parse a float field.
+     *
+     * @param text text of the field (not null)
+     * @param lineNumber line number (for error messages)
+     * @return the value
+     * @throws IOException if the field isn't a valid number
+     */
+    private static float parseFloat(String text, int lineNumber)
+            throws IOException {
+        try {
+            float result = Float.parseFloat(text);
+            return result;
+        } catch (NumberFormatException exception) {
+            throw new IOException(String.format(
+                    "line %d: invalid number \"%s\"", lineNumber, text),
+                    exception);
+        }
+    }
+
+    /**
+     * Parse a single line into a builder.
+     *
+     * @param line text of the line (not null)
+     * @param lineNumber line number (for error messages)
+     * @param builder builder to add to (not null, modified)
+     * @param joints scratch array for joint coordinates (not null)
+     * @return the scratch array, or a larger replacement
+     * @throws IOException if the line contains errors
+     */
+    private static float[] parseLine(String line, int lineNumber,
+            NavGraphBuilder builder, float[] joints) throws IOException {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return joints;
+        }
+
+        String[] fields = trimmed.split(",", -1);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = fields[i].trim();
+        }
+        String kind = fields[0];
+        float[] result = joints;
+        try {
+            if (kind.equals("v") && fields.length == 5) {
+                float x = parseFloat(fields[2], lineNumber);
+                float y = parseFloat(fields[3], lineNumber);
+                float z = parseFloat(fields[4], lineNumber);
+                builder.addVertex(fields[1], x, y, z);
+
+            } else if (kind.equals("a") && fields.length >= 3
+                    && (fields.length - 3) % 3 == 0) {
+                int numFloats = fields.length - 3;
+                if (numFloats > result.length) {
+                    result = new float[numFloats];
+                }
+                for (int i = 0; i < numFloats; i++) {
+                    result[i] = parseFloat(fields[3 + i], lineNumber);
+                }
+                builder.addArc(fields[1], fields[2], result, numFloats / 3);
+
+            } else {
+                throw new IOException(String.format(
+                        "line %d: unrecognized record \"%s\"", lineNumber,
+                        trimmed));
+            }
+        } catch (IllegalArgumentException exception) {
+            throw new IOException(String.format("line %d: %s", lineNumber,
+                    exception.getMessage()), exception);
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Task to read lines in chunks on a background thread.
+     */
+    private static class ChunkReader
+            implements Runnable {
+        /**
+         * chunks read but not yet taken (an empty chunk marks the end)
+         */
+        final private BlockingQueue<String[]> chunks =
+                new ArrayBlockingQueue<>(maxChunks);
+        /**
+         * exception which ended reading, or null if none
+         */
+        private volatile IOException failure = null;
+        /**
+         * source of the text
+         */
+        final private Reader reader;
+
+        /**
+         * Instantiate a task for the specified reader.
+         *
+         * @param reader source of the text (not null)
+         */
+        ChunkReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Read chunks until the end of the input, a failure, or an
+         * interrupt.
+         */
+        @Override
+        public void run() {
+            BufferedReader lines = new BufferedReader(reader, 65536);
+            try {
+                while (true) {
+                    String[] chunk = new String[chunkLines];
+                    int count = 0;
+                    while (count < chunkLines) {
+                        String line = lines.readLine();
+                        if (line == null) {
+                            break;
+                        }
+                        chunk[count] = line;
+                        ++count;
+                    }
+                    if (count > 0) {
+                        chunks.put(chunk);
+                    }
+                    if (count < chunkLines) {
+                        break;
+                    }
+                }
+            } catch (IOException exception) {
+                failure = exception;
+            } catch (InterruptedException exception) {
+                return;
+            }
+
+            try {
+                chunks.put(new String[0]);
+            } catch (InterruptedException exception) {
+                // the consumer has given up
+            }
+        }
+
+        /**
+         * Stop the thread running this task and wait for it to terminate,
+         * discarding any chunks not yet taken.
+         *
+         * @param thread the thread running this task (not null)
+         */
+        void stop(Thread thread) {
+            thread.interrupt();
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                /*
+                 * Drain the queue so the thread can't block on a full one.
+                 */
+                chunks.clear();
+                try {
+                    thread.join(10L);
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                }
+            }
+            chunks.clear();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Take the next chunk, waiting if necessary.
+         *
+         * @return the chunk (not null, unused elements null, empty at the
+         * end)
+         * @throws IOException if reading failed or the wait was interrupted
+         */
+        String[] take() throws IOException {
+            String[] result;
+            try {
+                result = chunks.take();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("import was interrupted", exception);
+            }
+            if (result.length == 0 && failure != null) {
+                throw failure;
+            }
+
+            return result;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+/**
+ * Interface to receive notifications when a navigation graph is modified, so
+ * that derived data structures can be updated incrementally.
+ * <p>
+ * Notifications are delivered synchronously, on the thread which modified the
+ * graph, after the modification is complete.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public interface NavGraphListener {
+    /**
+     * Callback after an arc is added to the graph.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the new arc (not null)
+     */
+    void arcAdded(NavGraph graph, NavArc arc);
+
+    /**
+     * Callback after an arc is removed from the graph.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the removed arc (not null)
+     */
+    void arcRemoved(NavGraph graph, NavArc arc);
+
+    /**
+     * Callback after a vertex is added to the graph.
+     *
+     * @param graph graph which was modified (not null)
+     * @param vertex the new vertex (not null)
+     */
+    void vertexAdded(NavGraph graph, NavVertex vertex);
+}
\ No newline at end of file
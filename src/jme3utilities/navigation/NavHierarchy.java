@@ -0,0 +1,639 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Two-level hierarchy for fast shortest-path queries on large navigation
+ * graphs.
+ * <p>
+ * Vertices are partitioned into clusters by their location in a square grid
+ * on the X-Z plane. An entrance is a vertex with an arc to or from another
+ * cluster. For each entrance, the hierarchy caches a shortest-path tree
+ * restricted to the entrance's cluster. A query searches the abstract graph
+ * of entrances (linked by those cached costs and by inter-cluster arcs), then
+ * expands only the clusters along the route. Since every path decomposes into
+ * intra-cluster segments joined by inter-cluster arcs, the routes found are
+ * shortest paths.
+ * <p>
+ * The hierarchy listens to its graph: when an arc or vertex is added or
+ * removed, only the affected clusters are marked stale, and they're rebuilt
+ * at the next query.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavHierarchy
+        implements NavGraphListener {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavHierarchy.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * abstract-search scratch: parent of each vertex (vertex index, or -1 for
+     * the start vertex)
+     */
+    private int[] abstractParents = new int[0];
+    /**
+     * abstract-search scratch: inter-cluster arc by which each vertex was
+     * reached (null if reached by an intra-cluster segment)
+     */
+    private NavArc[] abstractArcs = new NavArc[0];
+    /**
+     * abstract-search scratch: best known path length to each vertex
+     */
+    private float[] abstractCosts = new float[0];
+    /**
+     * abstract-search scratch: generation stamp of each vertex
+     */
+    private int[] abstractStamps = new int[0];
+    /**
+     * clusters indexed by grid key
+     */
+    final private Map<Long, Cluster> clusters = new HashMap<>(64);
+    /**
+     * cluster of each vertex, indexed by vertex index
+     */
+    private Cluster[] vertexClusters = new Cluster[0];
+    /**
+     * current generation of the abstract search
+     */
+    private int currentStamp = 0;
+    /**
+     * width of each cluster (in world units, &gt;0)
+     */
+    final private float clusterSize;
+    /**
+     * priority queue, reused by all searches
+     */
+    final private IndexedHeap heap = new IndexedHeap(0);
+    /**
+     * graph being searched (not null)
+     */
+    final private NavGraph graph;
+    /**
+     * entrance slot of each vertex within its cluster, indexed by vertex
+     * index (-1 if not an entrance)
+     */
+    private int[] entranceSlots = new int[0];
+    /**
+     * number of inter-cluster arcs terminating at each vertex, indexed by
+     * vertex index
+     */
+    private int[] incomingCrossings = new int[0];
+    /**
+     * local index of each vertex within its cluster, indexed by vertex index
+     */
+    private int[] localIndices = new int[0];
+    /**
+     * clusters which need to be rebuilt before the next query
+     */
+    final private List<Cluster> staleClusters = new ArrayList<>(16);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a hierarchy for the specified graph and register it as a
+     * listener. Clusters are built lazily, at the 1st query.
+     *
+     * @param graph graph to search (not null)
+     * @param clusterSize width of each cluster (in world units, &gt;0)
+     */
+    public NavHierarchy(NavGraph graph, float clusterSize) {
+        Validate.nonNull(graph, "graph");
+        Validate.positive(clusterSize, "cluster size");
+
+        this.graph = graph;
+        this.clusterSize = clusterSize;
+        for (NavVertex vertex : graph.getVertices()) {
+            vertexAdded(graph, vertex);
+        }
+        for (NavArc arc : graph.getArcs()) {
+            arcAdded(graph, arc);
+        }
+        graph.addListener(this);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Unregister this hierarchy from its graph. After detaching, the
+     * hierarchy should no longer be used.
+     */
+    public void detach() {
+        graph.removeListener(this);
+    }
+
+    /**
+     * Find a shortest path from one vertex to another.
+     *
+     * @param startVertex starting point (member of the graph)
+     * @param goalVertex goal (member of the graph)
+     * @return new path (or null if the goal is unreachable)
+     */
+    public NavPath findPath(NavVertex startVertex, NavVertex goalVertex) {
+        graph.validateMember(startVertex);
+        graph.validateMember(goalVertex);
+
+        rebuildStaleClusters();
+        if (startVertex == goalVertex) {
+            List<NavArc> noArcs = Collections.emptyList();
+            NavPath result = new NavPath(startVertex, noArcs);
+            return result;
+        }
+        /*
+         * Search within the start vertex's cluster.
+         */
+        Cluster startCluster = findCluster(startVertex);
+        int numMembers = startCluster.members.size();
+        float[] startCosts = new float[numMembers];
+        NavArc[] startTree = new NavArc[numMembers];
+        startCluster.searchFrom(startVertex, startCosts, startTree, heap);
+
+        boolean found = searchAbstract(startVertex, goalVertex, startCosts);
+        if (!found) {
+            return null;
+        }
+        /*
+         * Expand the abstract route, from the goal backward.
+         */
+        List<NavArc> arcList = new ArrayList<>(40);
+        NavVertex vertex = goalVertex;
+        while (vertex != startVertex) {
+            int index = vertex.getIndex();
+            NavArc interArc = abstractArcs[index];
+            if (interArc != null) {
+                arcList.add(interArc);
+                vertex = interArc.getFromVertex();
+                continue;
+            }
+            int parentIndex = abstractParents[index];
+            Cluster cluster = findCluster(vertex);
+            NavArc[] tree;
+            NavVertex parent;
+            if (parentIndex == -1) {
+                tree = startTree;
+                parent = startVertex;
+            } else {
+                tree = cluster.trees[entranceSlots[parentIndex]];
+                parent = graph.getVertex(parentIndex);
+            }
+            while (vertex != parent) {
+                NavArc arc = tree[localIndices[vertex.getIndex()]];
+                arcList.add(arc);
+                vertex = arc.getFromVertex();
+            }
+        }
+        Collections.reverse(arcList);
+        NavPath result = new NavPath(startVertex, arcList);
+
+        return result;
+    }
+
+    /**
+     * Read the width of each cluster.
+     *
+     * @return width (in world units, &gt;0)
+     */
+    public float getClusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * Count the clusters.
+     *
+     * @return count (&ge;0)
+     */
+    public int numClusters() {
+        int result = clusters.size();
+        return result;
+    }
+
+    /**
+     * Count the entrances (vertices with arcs to or from other clusters),
+     * rebuilding any stale clusters.
+     *
+     * @return count (&ge;0)
+     */
+    public int numEntrances() {
+        rebuildStaleClusters();
+
+        int result = 0;
+        for (Cluster cluster : clusters.values()) {
+            result += cluster.entrances.size();
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // NavGraphListener methods
+
+    /**
+     * Callback after an arc is added to the graph: mark the clusters of its
+     * endpoints as stale.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the new arc (not null)
+     */
+    @Override
+    public void arcAdded(NavGraph graph, NavArc arc) {
+        NavVertex toVertex = arc.getToVertex();
+        Cluster fromCluster = findCluster(arc.getFromVertex());
+        Cluster toCluster = findCluster(toVertex);
+        if (fromCluster != toCluster) {
+            ++incomingCrossings[toVertex.getIndex()];
+        }
+        markStale(fromCluster);
+        markStale(toCluster);
+    }
+
+    /**
+     * Callback after an arc is removed from the graph: mark the clusters of
+     * its endpoints as stale.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the removed arc (not null)
+     */
+    @Override
+    public void arcRemoved(NavGraph graph, NavArc arc) {
+        NavVertex toVertex = arc.getToVertex();
+        Cluster fromCluster = findCluster(arc.getFromVertex());
+        Cluster toCluster = findCluster(toVertex);
+        if (fromCluster != toCluster) {
+            --incomingCrossings[toVertex.getIndex()];
+            assert incomingCrossings[toVertex.getIndex()] >= 0;
+        }
+        markStale(fromCluster);
+        markStale(toCluster);
+    }
+
+    /**
+     * Callback after a vertex is added to the graph: add it to its cluster
+     * and mark that cluster as stale.
+     *
+     * @param graph graph which was modified (not null)
+     * @param vertex the new vertex (not null)
+     */
+    @Override
+    public void vertexAdded(NavGraph graph, NavVertex vertex) {
+        Vector3f location = vertex.getLocation();
+        long key = clusterKey(location);
+        Cluster cluster = clusters.get(key);
+        if (cluster == null) {
+            cluster = new Cluster();
+            clusters.put(key, cluster);
+        }
+
+        int index = vertex.getIndex();
+        if (index >= vertexClusters.length) {
+            int newLength = Math.max(2 * vertexClusters.length, index + 16);
+            vertexClusters = Arrays.copyOf(vertexClusters, newLength);
+            entranceSlots = Arrays.copyOf(entranceSlots, newLength);
+            incomingCrossings = Arrays.copyOf(incomingCrossings, newLength);
+            localIndices = Arrays.copyOf(localIndices, newLength);
+        }
+        vertexClusters[index] = cluster;
+        entranceSlots[index] = -1;
+        incomingCrossings[index] = 0;
+        localIndices[index] = cluster.members.size();
+        cluster.members.add(vertex);
+        markStale(cluster);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the grid key of the cluster containing the specified
+     * location.
+     *
+     * @param location (not null, unaffected)
+     * @return key value
+     */
+    private long clusterKey(Vector3f location) {
+        long ix = (long) Math.floor(location.x / clusterSize);
+        long iz = (long) Math.floor(location.z / clusterSize);
+        long result = (ix << 32) ^ (iz & 0xffffffffL);
+
+        return result;
+    }
+
+    /**
+     * Find the cluster containing the specified vertex.
+     *
+     * @param vertex (not null)
+     * @return pre-existing instance (not null)
+     */
+    private Cluster findCluster(NavVertex vertex) {
+        Cluster result = vertexClusters[vertex.getIndex()];
+        assert result != null : vertex;
+        return result;
+    }
+
+    /**
+     * Mark a cluster as needing to be rebuilt.
+     *
+     * @param cluster (not null)
+     */
+    private void markStale(Cluster cluster) {
+        if (!cluster.stale) {
+            cluster.stale = true;
+            staleClusters.add(cluster);
+        }
+    }
+
+    /**
+     * Rebuild all stale clusters.
+     */
+    private void rebuildStaleClusters() {
+        for (Cluster cluster : staleClusters) {
+            cluster.rebuild(heap);
+        }
+        staleClusters.clear();
+    }
+
+    /**
+     * Search the abstract graph for the goal vertex using A* with a
+     * straight-line heuristic. Results are left in the abstract-search
+     * scratch arrays.
+     *
+     * @param startVertex starting point (not null)
+     * @param goalVertex goal (not null, distinct from startVertex)
+     * @param startCosts path lengths from the start vertex to the members of
+     * its cluster (not null, unaffected)
+     * @return true if the goal was reached, otherwise false
+     */
+    private boolean searchAbstract(NavVertex startVertex,
+            NavVertex goalVertex, float[] startCosts) {
+        int numVertices = graph.numVertices();
+        if (abstractCosts.length < numVertices) {
+            abstractArcs = new NavArc[numVertices];
+            abstractCosts = new float[numVertices];
+            abstractParents = new int[numVertices];
+            abstractStamps = new int[numVertices];
+            currentStamp = 0;
+        }
+        currentStamp++;
+        heap.clear();
+        heap.ensureCapacity(numVertices);
+
+        Cluster goalCluster = findCluster(goalVertex);
+        int startIndex = startVertex.getIndex();
+        int goalIndex = goalVertex.getIndex();
+        abstractStamps[startIndex] = currentStamp;
+        abstractCosts[startIndex] = 0f;
+        abstractParents[startIndex] = -1;
+        abstractArcs[startIndex] = null;
+        heap.update(startIndex, startVertex.distance(goalVertex));
+
+        while (!heap.isEmpty()) {
+            int index = heap.removeMin();
+            if (index == goalIndex) {
+                heap.clear();
+                return true;
+            }
+            NavVertex vertex = graph.getVertex(index);
+            float cost = abstractCosts[index];
+            Cluster cluster = findCluster(vertex);
+            /*
+             * Relax intra-cluster segments to entrances and to the goal.
+             */
+            float[] costs;
+            int parentIndex;
+            int slot = entranceSlots[index];
+            if (slot >= 0) {
+                costs = cluster.costs[slot];
+                parentIndex = index;
+            } else {
+                assert vertex == startVertex;
+                costs = startCosts;
+                parentIndex = -1;
+            }
+            for (NavVertex entrance : cluster.entrances) {
+                float segment = costs[localIndices[entrance.getIndex()]];
+                relax(entrance, cost + segment, parentIndex, null,
+                        goalVertex);
+            }
+            if (cluster == goalCluster) {
+                float segment = costs[localIndices[goalIndex]];
+                relax(goalVertex, cost + segment, parentIndex, null,
+                        goalVertex);
+            }
+            /*
+             * Relax inter-cluster arcs.
+             */
+            int numArcs = vertex.getNumArcs();
+            for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+                NavArc arc = vertex.getArc(arcIndex);
+                NavVertex neighbor = arc.getToVertex();
+                if (findCluster(neighbor) != cluster) {
+                    float newCost = cost + arc.getPathLength();
+                    relax(neighbor, newCost, index, arc, goalVertex);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Record a path to a vertex in the abstract search, if it's shorter than
+     * the best known path.
+     *
+     * @param vertex vertex reached (not null)
+     * @param cost length of the new path (may be +Infinity)
+     * @param parentIndex index of the previous abstract vertex (or -1 for the
+     * start vertex)
+     * @param interArc inter-cluster arc used (or null for an intra-cluster
+     * segment)
+     * @param goalVertex goal of the search (not null)
+     */
+    private void relax(NavVertex vertex, float cost, int parentIndex,
+            NavArc interArc, NavVertex goalVertex) {
+        if (cost == Float.POSITIVE_INFINITY) {
+            return;
+        }
+        int index = vertex.getIndex();
+        if (abstractStamps[index] == currentStamp) {
+            if (cost >= abstractCosts[index]) {
+                return;
+            }
+            if (!heap.contains(index)) {
+                /*
+                 * With a consistent heuristic, a settled vertex can't be
+                 * improved (except by rounding), so leave it settled.
+                 */
+                return;
+            }
+        } else {
+            abstractStamps[index] = currentStamp;
+        }
+        abstractCosts[index] = cost;
+        abstractParents[index] = parentIndex;
+        abstractArcs[index] = interArc;
+        float estimate = cost + vertex.distance(goalVertex);
+        heap.update(index, estimate);
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * A spatial cluster of vertices with cached shortest-path trees from each
+     * of its entrances.
+     */
+    private class Cluster {
+        /**
+         * true if this cluster must be rebuilt before its next use
+         */
+        boolean stale = false;
+        /**
+         * path lengths from each entrance to each member, indexed by entrance
+         * slot and local index
+         */
+        float[][] costs = new float[0][];
+        /**
+         * member vertices with arcs to or from other clusters, in slot order
+         */
+        final List<NavVertex> entrances = new ArrayList<>(8);
+        /**
+         * member vertices, in order of local index
+         */
+        final List<NavVertex> members = new ArrayList<>(16);
+        /**
+         * shortest-path trees from each entrance: the last arc of the path to
+         * each member, indexed by entrance slot and local index
+         */
+        NavArc[][] trees = new NavArc[0][];
+
+        /**
+         * Rebuild the list of entrances and their shortest-path trees.
+         *
+         * @param heap priority queue to use (not null, empty)
+         */
+        void rebuild(IndexedHeap heap) {
+            for (NavVertex vertex : entrances) {
+                entranceSlots[vertex.getIndex()] = -1;
+            }
+            entrances.clear();
+            for (NavVertex vertex : members) {
+                if (isEntrance(vertex)) {
+                    entranceSlots[vertex.getIndex()] = entrances.size();
+                    entrances.add(vertex);
+                }
+            }
+
+            int numEntrances = entrances.size();
+            int numMembers = members.size();
+            costs = new float[numEntrances][numMembers];
+            trees = new NavArc[numEntrances][numMembers];
+            for (int slot = 0; slot < numEntrances; slot++) {
+                NavVertex entrance = entrances.get(slot);
+                searchFrom(entrance, costs[slot], trees[slot], heap);
+            }
+            stale = false;
+        }
+
+        /**
+         * Perform Dijkstra's algorithm from the specified member, restricted
+         * to this cluster.
+         *
+         * @param source starting member (not null)
+         * @param storeCosts array to fill with path lengths, indexed by local
+         * index (not null, length=numMembers)
+         * @param storeTree array to fill with the last arc of each path,
+         * indexed by local index (not null, length=numMembers)
+         * @param heap priority queue to use (not null, empty)
+         */
+        void searchFrom(NavVertex source, float[] storeCosts,
+                NavArc[] storeTree, IndexedHeap heap) {
+            int numMembers = members.size();
+            assert storeCosts.length == numMembers;
+            assert storeTree.length == numMembers;
+
+            Arrays.fill(storeCosts, Float.POSITIVE_INFINITY);
+            Arrays.fill(storeTree, null);
+            heap.ensureCapacity(numMembers);
+
+            int sourceLocal = localIndices[source.getIndex()];
+            storeCosts[sourceLocal] = 0f;
+            heap.update(sourceLocal, 0f);
+            while (!heap.isEmpty()) {
+                int local = heap.removeMin();
+                NavVertex vertex = members.get(local);
+                float cost = storeCosts[local];
+                int numArcs = vertex.getNumArcs();
+                for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+                    NavArc arc = vertex.getArc(arcIndex);
+                    int neighborIndex = arc.getToVertex().getIndex();
+                    if (vertexClusters[neighborIndex] != this) {
+                        continue;
+                    }
+                    int neighbor = localIndices[neighborIndex];
+                    float newCost = cost + arc.getPathLength();
+                    if (newCost < storeCosts[neighbor]) {
+                        storeCosts[neighbor] = newCost;
+                        storeTree[neighbor] = arc;
+                        heap.update(neighbor, newCost);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Test whether the specified member has arcs to or from other
+         * clusters.
+         *
+         * @param vertex member vertex (not null)
+         * @return true if it's an entrance, otherwise false
+         */
+        private boolean isEntrance(NavVertex vertex) {
+            if (incomingCrossings[vertex.getIndex()] > 0) {
+                return true;
+            }
+            int numArcs = vertex.getNumArcs();
+            for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+                NavVertex neighbor = vertex.getArc(arcIndex).getToVertex();
+                if (vertexClusters[neighbor.getIndex()] != this) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,689 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Lazy enumeration of the loopless paths between 2 vertices of a navigation
+ * graph, in order of increasing length, using Yen's algorithm with Lawler's
+ * refinement: each path is computed only when requested, and only the spur
+ * vertices at or beyond its parent's deviation point are searched.
+ * <p>
+ * Spur searches share a shortest-path tree rooted at the goal, computed once.
+ * Whenever a spur vertex's tree path avoids the blocked arcs and vertices, it
+ * is used as the spur path without any search; otherwise the tree distances
+ * serve as an exact A* heuristic.
+ * <p>
+ * An optional diversity filter skips paths which share too much of their
+ * length with any path already returned, so agents can be spread across
+ * distinct corridors. The graph must not be modified during enumeration. Not
+ * thread-safe.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavKShortestPaths
+        implements Iterator<NavPath> {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavKShortestPaths.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * next path to return, or null if not yet computed
+     */
+    private Candidate pending = null;
+    /**
+     * true once the enumeration has run out of paths
+     */
+    private boolean exhausted = false;
+    /**
+     * maximum fraction of a returned path's length which may be shared with
+     * any previously returned path (&ge;0, &le;1)
+     */
+    private float maxOverlap = 1f;
+    /**
+     * distance from each vertex to the goal in the full graph, indexed by
+     * vertex index
+     */
+    final private float[] goalDistances;
+    /**
+     * path lengths of the current spur search, indexed by vertex index
+     */
+    final private float[] spurDistances;
+    /**
+     * queue of vertices awaiting expansion in spur searches
+     */
+    final private IndexedHeap heap;
+    /**
+     * stamp marking arcs blocked for the current spur, indexed by arc index
+     */
+    final private int[] arcBlocks;
+    /**
+     * stamp marking arcs of the returned path being compared, indexed by arc
+     * index
+     */
+    final private int[] arcMarks;
+    /**
+     * stamp marking vertices reached by the current spur search, indexed by
+     * vertex index
+     */
+    final private int[] spurStamps;
+    /**
+     * stamp marking vertices blocked for the current spur, indexed by vertex
+     * index
+     */
+    final private int[] vertexBlocks;
+    /**
+     * current value for the stamp arrays
+     */
+    private int currentStamp = 0;
+    /**
+     * maximum number of loopless paths to examine (&gt;0)
+     */
+    private int maxExamined = Integer.MAX_VALUE;
+    /**
+     * number of loopless paths examined so far (&ge;0)
+     */
+    private int numExamined = 0;
+    /**
+     * modification count of the graph when enumeration began
+     */
+    final private long modificationCount;
+    /**
+     * 1st arc of each vertex's shortest path to the goal, indexed by vertex
+     * index (null for the goal or where the goal is unreachable)
+     */
+    final private NavArc[] goalArcs;
+    /**
+     * arc by which each vertex was reached in the current spur search,
+     * indexed by vertex index
+     */
+    final private NavArc[] spurArcs;
+    /**
+     * graph being searched (not null)
+     */
+    final private NavGraph graph;
+    /**
+     * loopless paths found so far, in order of increasing length
+     */
+    final private List<Candidate> examined = new ArrayList<>(8);
+    /**
+     * paths returned so far, for the diversity filter
+     */
+    final private List<Candidate> returned = new ArrayList<>(8);
+    /**
+     * goal vertex (not null)
+     */
+    final private NavVertex goal;
+    /**
+     * starting vertex (not null)
+     */
+    final private NavVertex start;
+    /**
+     * candidates for the next loopless path, shortest first
+     */
+    final private PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+    /**
+     * all candidates ever queued, to avoid duplicates
+     */
+    final private Set<Candidate> seen = new HashSet<>(64);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an enumeration of the paths between the specified vertices.
+     * A shortest-path tree to the goal is computed immediately.
+     *
+     * @param graph graph to search (not null)
+     * @param start starting vertex (member of the graph)
+     * @param goal goal vertex (member of the graph)
+     */
+    public NavKShortestPaths(NavGraph graph, NavVertex start, NavVertex goal) {
+        Validate.nonNull(graph, "graph");
+        graph.validateMember(start);
+        graph.validateMember(goal);
+
+        this.graph = graph;
+        this.start = start;
+        this.goal = goal;
+        modificationCount = graph.getModificationCount();
+
+        int numVertices = graph.numVertices();
+        int numArcs = graph.numArcs();
+        goalDistances = new float[numVertices];
+        goalArcs = new NavArc[numVertices];
+        spurDistances = new float[numVertices];
+        spurArcs = new NavArc[numVertices];
+        spurStamps = new int[numVertices];
+        vertexBlocks = new int[numVertices];
+        arcBlocks = new int[numArcs];
+        arcMarks = new int[numArcs];
+        heap = new IndexedHeap(numVertices);
+
+        computeGoalTree();
+        /*
+         * The 1st path is the tree path from the start.
+         */
+        NavArc[] firstArcs = followTree(start);
+        if (firstArcs != null) {
+            Candidate first = new Candidate(firstArcs, 0);
+            candidates.add(first);
+            seen.add(first);
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the number of loopless paths examined so far, including any
+     * rejected by the diversity filter.
+     *
+     * @return count (&ge;0)
+     */
+    public int numExamined() {
+        return numExamined;
+    }
+
+    /**
+     * Alter the maximum number of loopless paths to examine. Once the limit
+     * is reached, the enumeration ends even if more paths exist. Useful to
+     * bound the work when the diversity filter rejects many paths.
+     *
+     * @param newLimit number of paths (&gt;0)
+     */
+    public void setMaxExamined(int newLimit) {
+        Validate.positive(newLimit, "new limit");
+        maxExamined = newLimit;
+    }
+
+    /**
+     * Alter the diversity filter. A path is skipped if the total length of
+     * the arcs it shares with any previously returned path exceeds the
+     * specified fraction of its own length.
+     *
+     * @param fraction maximum shared fraction (&ge;0, &le;1, default=1,
+     * meaning no filtering)
+     */
+    public void setMaxOverlap(float fraction) {
+        Validate.fraction(fraction, "fraction");
+        maxOverlap = fraction;
+    }
+    // *************************************************************************
+    // Iterator methods
+
+    /**
+     * Test whether another path is available, computing it if necessary.
+     *
+     * @return true if available, otherwise false
+     */
+    @Override
+    public boolean hasNext() {
+        if (graph.getModificationCount() != modificationCount) {
+            throw new ConcurrentModificationException();
+        }
+
+        while (pending == null && !exhausted) {
+            Candidate path = nextLoopless();
+            if (path == null) {
+                exhausted = true;
+            } else if (isDiverse(path)) {
+                pending = path;
+            }
+        }
+
+        boolean result = (pending != null);
+        return result;
+    }
+
+    /**
+     * Compute the next-shortest path which passes the diversity filter.
+     *
+     * @return new path from the start to the goal
+     */
+    @Override
+    public NavPath next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        returned.add(pending);
+        List<NavArc> arcList = Arrays.asList(pending.arcs);
+        NavPath result = new NavPath(start, arcList);
+        pending = null;
+
+        return result;
+    }
+
+    /**
+     * Unsupported operation.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("paths can't be removed");
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Begin a new stamp for the stamp arrays.
+     */
+    private void advanceStamp() {
+        currentStamp++;
+        if (currentStamp == 0) {
+            /*
+             * The stamp has wrapped around: invalidate all entries.
+             */
+            Arrays.fill(arcBlocks, 0);
+            Arrays.fill(arcMarks, 0);
+            Arrays.fill(spurStamps, 0);
+            Arrays.fill(vertexBlocks, 0);
+            currentStamp = 1;
+        }
+    }
+
+    /**
+     * Compute the shortest-path tree to the goal, using Dijkstra's algorithm
+     * over incoming arcs.
+     */
+    private void computeGoalTree() {
+        int numVertices = graph.numVertices();
+        NavArc[] arcs = graph.getArcs();
+        /*
+         * Collect each vertex's incoming arcs, in compressed form.
+         */
+        int[] firstIncoming = new int[numVertices + 1];
+        for (NavArc arc : arcs) {
+            firstIncoming[arc.getToVertex().getIndex() + 1]++;
+        }
+        for (int index = 0; index < numVertices; index++) {
+            firstIncoming[index + 1] += firstIncoming[index];
+        }
+        int[] fill = Arrays.copyOf(firstIncoming, numVertices);
+        NavArc[] incoming = new NavArc[arcs.length];
+        for (NavArc arc : arcs) {
+            int toIndex = arc.getToVertex().getIndex();
+            incoming[fill[toIndex]] = arc;
+            fill[toIndex]++;
+        }
+
+        Arrays.fill(goalDistances, Float.POSITIVE_INFINITY);
+        int goalIndex = goal.getIndex();
+        goalDistances[goalIndex] = 0f;
+        heap.update(goalIndex, 0f);
+        while (!heap.isEmpty()) {
+            int index = heap.removeMin();
+            float baseDistance = goalDistances[index];
+            for (int i = firstIncoming[index]; i < firstIncoming[index + 1];
+                    i++) {
+                NavArc arc = incoming[i];
+                int fromIndex = arc.getFromVertex().getIndex();
+                float newDistance = baseDistance + arc.getPathLength();
+                if (newDistance < goalDistances[fromIndex]) {
+                    goalDistances[fromIndex] = newDistance;
+                    goalArcs[fromIndex] = arc;
+                    heap.update(fromIndex, newDistance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Follow the goal tree from the specified vertex.
+     *
+     * @param vertex starting vertex (not null)
+     * @return new array of arcs, or null if the goal is unreachable
+     */
+    private NavArc[] followTree(NavVertex vertex) {
+        int index = vertex.getIndex();
+        if (goalDistances[index] == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+
+        List<NavArc> arcList = new ArrayList<>(20);
+        NavVertex current = vertex;
+        while (current != goal) {
+            NavArc arc = goalArcs[current.getIndex()];
+            arcList.add(arc);
+            current = arc.getToVertex();
+        }
+        NavArc[] result = new NavArc[arcList.size()];
+        arcList.toArray(result);
+
+        return result;
+    }
+
+    /**
+     * Test whether a path passes the diversity filter.
+     *
+     * @param path path to test (not null)
+     * @return true if it passes, otherwise false
+     */
+    private boolean isDiverse(Candidate path) {
+        if (maxOverlap >= 1f) {
+            return true;
+        }
+
+        float maxShared = maxOverlap * path.length;
+        for (Candidate other : returned) {
+            advanceStamp();
+            for (NavArc arc : other.arcs) {
+                arcMarks[arc.getIndex()] = currentStamp;
+            }
+            float shared = 0f;
+            for (NavArc arc : path.arcs) {
+                if (arcMarks[arc.getIndex()] == currentStamp) {
+                    shared += arc.getPathLength();
+                }
+            }
+            if (shared > maxShared) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Find the next loopless path in order of length, generating candidates
+     * from the previous one.
+     *
+     * @return the path, or null if there are no more
+     */
+    private Candidate nextLoopless() {
+        if (numExamined >= maxExamined) {
+            return null;
+        }
+        if (!examined.isEmpty()) {
+            Candidate previous = examined.get(examined.size() - 1);
+            spurFrom(previous);
+        }
+
+        Candidate result = candidates.poll();
+        if (result != null) {
+            examined.add(result);
+            numExamined++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the shortest path from the spur vertex to the goal which avoids
+     * the blocked arcs and vertices, preferring the goal tree's path.
+     *
+     * @param spurVertex starting vertex (not null, not blocked)
+     * @return new array of arcs, or null if the goal is unreachable
+     */
+    private NavArc[] searchSpur(NavVertex spurVertex) {
+        int spurIndex = spurVertex.getIndex();
+        if (goalDistances[spurIndex] == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+        /*
+         * If the tree path is unobstructed, it's optimal.
+         */
+        boolean obstructed = false;
+        NavVertex vertex = spurVertex;
+        while (vertex != goal) {
+            NavArc arc = goalArcs[vertex.getIndex()];
+            vertex = arc.getToVertex();
+            if (arcBlocks[arc.getIndex()] == currentStamp
+                    || vertexBlocks[vertex.getIndex()] == currentStamp) {
+                obstructed = true;
+                break;
+            }
+        }
+        if (!obstructed) {
+            NavArc[] result = followTree(spurVertex);
+            return result;
+        }
+        /*
+         * A* search, using the tree distances as the heuristic.
+         */
+        int goalIndex = goal.getIndex();
+        spurStamps[spurIndex] = currentStamp;
+        spurDistances[spurIndex] = 0f;
+        spurArcs[spurIndex] = null;
+        heap.update(spurIndex, goalDistances[spurIndex]);
+        boolean reached = false;
+        while (!heap.isEmpty()) {
+            int index = heap.removeMin();
+            if (index == goalIndex) {
+                reached = true;
+                break;
+            }
+            NavVertex current = graph.getVertex(index);
+            float baseDistance = spurDistances[index];
+            int numArcs = current.getNumArcs();
+            for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+                NavArc arc = current.getArc(arcIndex);
+                if (arcBlocks[arc.getIndex()] == currentStamp) {
+                    continue;
+                }
+                int neighborIndex = arc.getToVertex().getIndex();
+                float estimate = goalDistances[neighborIndex];
+                if (vertexBlocks[neighborIndex] == currentStamp
+                        || estimate == Float.POSITIVE_INFINITY) {
+                    continue;
+                }
+                float newDistance = baseDistance + arc.getPathLength();
+                if (spurStamps[neighborIndex] != currentStamp
+                        || newDistance < spurDistances[neighborIndex]) {
+                    spurStamps[neighborIndex] = currentStamp;
+                    spurDistances[neighborIndex] = newDistance;
+                    spurArcs[neighborIndex] = arc;
+                    heap.update(neighborIndex, newDistance + estimate);
+                }
+            }
+        }
+        heap.clear();
+        if (!reached) {
+            return null;
+        }
+
+        List<NavArc> arcList = new ArrayList<>(20);
+        vertex = goal;
+        while (vertex != spurVertex) {
+            NavArc arc = spurArcs[vertex.getIndex()];
+            arcList.add(arc);
+            vertex = arc.getFromVertex();
+        }
+        int numArcs = arcList.size();
+        NavArc[] result = new NavArc[numArcs];
+        for (int i = 0; i < numArcs; i++) {
+            result[i] = arcList.get(numArcs - 1 - i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Generate candidates which deviate from the specified path at or beyond
+     * its own deviation point.
+     *
+     * @param path the most recently examined path (not null)
+     */
+    private void spurFrom(Candidate path) {
+        NavArc[] pathArcs = path.arcs;
+        for (int spur = path.deviation; spur < pathArcs.length; spur++) {
+            advanceStamp();
+            /*
+             * Block the root path's vertices, and the next arc of every
+             * examined path which shares this root.
+             */
+            NavVertex vertex = start;
+            for (int i = 0; i < spur; i++) {
+                vertexBlocks[vertex.getIndex()] = currentStamp;
+                vertex = pathArcs[i].getToVertex();
+            }
+            for (Candidate other : examined) {
+                if (other.arcs.length > spur
+                        && other.sharesRoot(pathArcs, spur)) {
+                    arcBlocks[other.arcs[spur].getIndex()] = currentStamp;
+                }
+            }
+
+            NavArc[] spurPath = searchSpur(vertex);
+            if (spurPath != null) {
+                NavArc[] arcs = new NavArc[spur + spurPath.length];
+                System.arraycopy(pathArcs, 0, arcs, 0, spur);
+                System.arraycopy(spurPath, 0, arcs, spur, spurPath.length);
+                Candidate candidate = new Candidate(arcs, spur);
+                if (seen.add(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Loopless path from the start to the goal, ordered by length and then by
+     * number of arcs. Equality is based on the identities of the arcs.
+     */
+    private static class Candidate
+            implements Comparable<Candidate> {
+        /**
+         * total length (&ge;0)
+         */
+        final private float length;
+        /**
+         * index of the 1st arc which differs from the parent path
+         */
+        final private int deviation;
+        /**
+         * hash code, based on arc identities
+         */
+        final private int hash;
+        /**
+         * arcs in path order (not null)
+         */
+        final private NavArc[] arcs;
+
+        /**
+         * Instantiate a candidate.
+         *
+         * @param arcs arcs in path order (not null, alias created)
+         * @param deviation index of the 1st arc which differs from the parent
+         * path (&ge;0)
+         */
+        Candidate(NavArc[] arcs, int deviation) {
+            this.arcs = arcs;
+            this.deviation = deviation;
+
+            float sum = 0f;
+            int h = 1;
+            for (NavArc arc : arcs) {
+                sum += arc.getPathLength();
+                h = 31 * h + System.identityHashCode(arc);
+            }
+            length = sum;
+            hash = h;
+        }
+
+        /**
+         * Test whether this path begins with the specified root.
+         *
+         * @param rootArcs array containing the root (not null, unaffected)
+         * @param rootLength number of arcs in the root (&ge;0, &le;length of
+         * this path)
+         * @return true if the roots are identical, otherwise false
+         */
+        boolean sharesRoot(NavArc[] rootArcs, int rootLength) {
+            for (int i = 0; i < rootLength; i++) {
+                if (arcs[i] != rootArcs[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Compare by length, then by number of arcs.
+         *
+         * @param other (not null)
+         * @return negative if this path comes first, positive if the other
+         * does, 0 if tied
+         */
+        @Override
+        public int compareTo(Candidate other) {
+            int result = Float.compare(length, other.length);
+            if (result == 0) {
+                result = Integer.compare(arcs.length, other.arcs.length);
+            }
+            return result;
+        }
+
+        /**
+         * Compare for equality based on arc identities.
+         *
+         * @param otherObject (unaffected)
+         * @return true if the paths use the same arcs in the same order
+         */
+        @Override
+        public boolean equals(Object otherObject) {
+            if (this == otherObject) {
+                return true;
+            } else if (!(otherObject instanceof Candidate)) {
+                return false;
+            }
+            Candidate other = (Candidate) otherObject;
+            if (hash != other.hash || arcs.length != other.arcs.length) {
+                return false;
+            }
+            boolean result = other.sharesRoot(arcs, arcs.length);
+
+            return result;
+        }
+
+        /**
+         * Generate the hash code for this path.
+         *
+         * @return value for use in hashing
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Immutable location on an arc of a navigation graph, as found by a proximity
+ * query.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavLocation {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavLocation.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * distance from the query point to this location (in world units, &ge;0)
+     */
+    final private float distance;
+    /**
+     * distance along the arc's path from its starting vertex (in world units,
+     * &ge;0)
+     */
+    final private float pathDistance;
+    /**
+     * arc containing this location (not null)
+     */
+    final private NavArc arc;
+    /**
+     * world coordinates of this location (not null)
+     */
+    final private Vector3f location;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a location on the specified arc.
+     *
+     * @param arc arc containing the location (not null)
+     * @param pathDistance distance along the arc's path (&ge;0)
+     * @param location world coordinates (not null, unaffected)
+     * @param distance distance from the query point (&ge;0)
+     */
+    public NavLocation(NavArc arc, float pathDistance, Vector3f location,
+            float distance) {
+        Validate.nonNull(arc, "arc");
+        Validate.nonNegative(pathDistance, "path distance");
+        Validate.nonNull(location, "location");
+        Validate.nonNegative(distance, "distance");
+
+        this.arc = arc;
+        this.pathDistance = pathDistance;
+        this.location = location.clone();
+        this.distance = distance;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Access the arc containing this location.
+     *
+     * @return pre-existing instance
+     */
+    public NavArc getArc() {
+        return arc;
+    }
+
+    /**
+     * Read the distance from the query point to this location.
+     *
+     * @return distance (in world units, &ge;0)
+     */
+    public float getDistance() {
+        return distance;
+    }
+
+    /**
+     * Copy the world coordinates of this location.
+     *
+     * @return new vector
+     */
+    public Vector3f getLocation() {
+        return location.clone();
+    }
+
+    /**
+     * Read the distance along the arc's path from its starting vertex, suitable
+     * for {@link NavArc#pathLocation(float)}.
+     *
+     * @return distance (in world units, &ge;0)
+     */
+    public float getPathDistance() {
+        return pathDistance;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Format this location as a text string.
+     *
+     * @return description (not null)
+     */
+    @Override
+    public String toString() {
+        String result = String.format("%s at %f", arc.toString(),
+                pathDistance);
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,256 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Immutable path through a navigation graph: an ordered sequence of contiguous
+ * arcs, together with the cumulative path length at the end of each arc.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavPath {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavPath.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * arcs in path order (not null)
+     */
+    final private NavArc[] arcs;
+    /**
+     * path length from the start to the end of each arc (each &gt;0, in
+     * increasing order)
+     */
+    final private float[] cumulativeLengths;
+    /**
+     * vertex at which this path starts (not null)
+     */
+    final private NavVertex startVertex;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a path from a starting vertex and a sequence of arcs.
+     *
+     * @param startVertex starting point (not null)
+     * @param arcList arcs in path order (not null, each arc must begin where
+     * the previous one ended, unaffected)
+     */
+    public NavPath(NavVertex startVertex, List<NavArc> arcList) {
+        Validate.nonNull(startVertex, "start vertex");
+        Validate.nonNull(arcList, "arc list");
+
+        this.startVertex = startVertex;
+        int numArcs = arcList.size();
+        arcs = new NavArc[numArcs];
+        cumulativeLengths = new float[numArcs];
+
+        NavVertex vertex = startVertex;
+        float sumLength = 0f;
+        for (int index = 0; index < numArcs; index++) {
+            NavArc arc = arcList.get(index);
+            if (arc.getFromVertex() != vertex) {
+                logger.log(Level.SEVERE, "index={0} arc={1}",
+                        new Object[]{index, arc});
+                throw new IllegalArgumentException(
+                        "arcs should be contiguous");
+            }
+            arcs[index] = arc;
+            sumLength += arc.getPathLength();
+            cumulativeLengths[index] = sumLength;
+            vertex = arc.getToVertex();
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Find the index of the arc which contains the point at the specified
+     * distance from the start of this path.
+     *
+     * @param distance distance from the start (&ge;0)
+     * @return index of the arc (&ge;0, &lt;numArcs) or -1 if this path is
+     * empty
+     */
+    public int findArcIndex(float distance) {
+        Validate.nonNegative(distance, "distance");
+
+        int numArcs = arcs.length;
+        if (numArcs == 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(cumulativeLengths, distance);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index >= numArcs) {
+            index = numArcs - 1;
+        }
+
+        return index;
+    }
+
+    /**
+     * Access the indexed arc of this path.
+     *
+     * @param index index of the arc (&ge;0, &lt;numArcs)
+     * @return pre-existing instance
+     */
+    public NavArc getArc(int index) {
+        Validate.nonNegative(index, "index");
+        NavArc result = arcs[index];
+        return result;
+    }
+
+    /**
+     * Copy the arcs of this path.
+     *
+     * @return new array of pre-existing instances, in path order
+     */
+    public NavArc[] getArcs() {
+        NavArc[] result = arcs.clone();
+        return result;
+    }
+
+    /**
+     * Read the path length from the start of this path to the end of the
+     * indexed arc.
+     *
+     * @param index index of the arc (&ge;0, &lt;numArcs)
+     * @return cumulative length (&gt;0, world units)
+     */
+    public float getCumulativeLength(int index) {
+        Validate.nonNegative(index, "index");
+        float result = cumulativeLengths[index];
+        return result;
+    }
+
+    /**
+     * Access the vertex at which this path ends.
+     *
+     * @return pre-existing instance
+     */
+    public NavVertex getEndVertex() {
+        int numArcs = arcs.length;
+        if (numArcs == 0) {
+            return startVertex;
+        }
+        NavVertex result = arcs[numArcs - 1].getToVertex();
+
+        return result;
+    }
+
+    /**
+     * Access the vertex at which this path starts.
+     *
+     * @return pre-existing instance
+     */
+    public NavVertex getStartVertex() {
+        return startVertex;
+    }
+
+    /**
+     * Read the total path length (cost) of this path.
+     *
+     * @return length (&ge;0, world units)
+     */
+    public float getTotalLength() {
+        int numArcs = arcs.length;
+        if (numArcs == 0) {
+            return 0f;
+        }
+        float result = cumulativeLengths[numArcs - 1];
+
+        return result;
+    }
+
+    /**
+     * Count the arcs in this path.
+     *
+     * @return number of arcs (&ge;0)
+     */
+    public int numArcs() {
+        int result = arcs.length;
+        return result;
+    }
+
+    /**
+     * Compute the location at the specified distance along this path.
+     *
+     * @param distance distance from the start (&ge;0)
+     * @return new vector in world coordinates
+     */
+    public Vector3f pathLocation(float distance) {
+        Validate.nonNegative(distance, "distance");
+
+        int index = findArcIndex(distance);
+        if (index == -1) {
+            Vector3f result = startVertex.getLocation();
+            return result;
+        }
+        float arcStart = 0f;
+        if (index > 0) {
+            arcStart = cumulativeLengths[index - 1];
+        }
+        float arcDistance = Math.max(0f, distance - arcStart);
+        Vector3f result = arcs[index].pathLocation(arcDistance);
+
+        return result;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Format this path as a text string.
+     *
+     * @return description (not null)
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(40);
+        builder.append(startVertex);
+        for (NavArc arc : arcs) {
+            builder.append(" -> ");
+            builder.append(arc.getToVertex());
+        }
+        String result = builder.toString();
+
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,299 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.Spline3f;
+
+/**
+ * Cursor which walks an agent along a navigation path, parameterized by
+ * distance traveled.
+ * <p>
+ * The path's polyline is flattened into primitive arrays at construction, and
+ * the follower remembers its current segment, so advancing by small steps
+ * takes constant time and sampling allocates nothing when the caller supplies
+ * storage.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavPathFollower {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavPathFollower.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * distance traveled from the start of the path (&ge;0,
+     * &le;totalLength)
+     */
+    private float distance = 0f;
+    /**
+     * distance from the start of the path to each point, indexed by point
+     */
+    final private float[] pointDistances;
+    /**
+     * world coordinates of each point, packed as x, y, z triplets
+     */
+    final private float[] points;
+    /**
+     * total length of the polyline (&ge;0)
+     */
+    final private float totalLength;
+    /**
+     * index of the arc containing each segment, indexed by segment
+     */
+    final private int[] segmentArcs;
+    /**
+     * index of the current segment (&ge;0, &lt;max(1, numSegments))
+     */
+    private int segment = 0;
+    /**
+     * path being followed (not null)
+     */
+    final private NavPath path;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a follower at the start of the specified path.
+     *
+     * @param path path to follow (not null)
+     */
+    public NavPathFollower(NavPath path) {
+        Validate.nonNull(path, "path");
+        this.path = path;
+        /*
+         * Count the control points, then flatten them, skipping any point
+         * which doesn't strictly increase the distance, including those
+         * whose distance is lost to rounding.
+         */
+        int numArcs = path.numArcs();
+        int maxPoints = 1;
+        for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+            maxPoints += path.getArc(arcIndex).getPath().numControlPoints() - 1;
+        }
+        float[] xyz = new float[3 * maxPoints];
+        float[] lengths = new float[maxPoints];
+        int[] arcIndices = new int[maxPoints];
+
+        Vector3f start = path.getStartVertex().getLocation();
+        xyz[0] = start.x;
+        xyz[1] = start.y;
+        xyz[2] = start.z;
+        int numPoints = 1;
+        float sumLength = 0f;
+        Vector3f point = new Vector3f();
+        for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+            Spline3f spline = path.getArc(arcIndex).getPath();
+            int numControlPoints = spline.numControlPoints();
+            for (int pointIndex = 1; pointIndex < numControlPoints;
+                    pointIndex++) {
+                spline.getControlPoint(pointIndex, point);
+                int previous = 3 * (numPoints - 1);
+                float dx = point.x - xyz[previous];
+                float dy = point.y - xyz[previous + 1];
+                float dz = point.z - xyz[previous + 2];
+                float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+                float newSum = sumLength + length;
+                if (newSum > sumLength) {
+                    sumLength = newSum;
+                    xyz[3 * numPoints] = point.x;
+                    xyz[3 * numPoints + 1] = point.y;
+                    xyz[3 * numPoints + 2] = point.z;
+                    lengths[numPoints] = sumLength;
+                    arcIndices[numPoints - 1] = arcIndex;
+                    ++numPoints;
+                }
+            }
+        }
+
+        points = Arrays.copyOf(xyz, 3 * numPoints);
+        pointDistances = Arrays.copyOf(lengths, numPoints);
+        segmentArcs = Arrays.copyOf(arcIndices, Math.max(1, numPoints - 1));
+        totalLength = sumLength;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Advance along the path by the specified distance, stopping at the end.
+     *
+     * @param delta distance to travel (&ge;0)
+     * @return distance remaining to the end of the path (&ge;0)
+     */
+    public float advance(float delta) {
+        Validate.nonNegative(delta, "delta");
+
+        distance = Math.min(distance + delta, totalLength);
+        seekForward();
+        float result = totalLength - distance;
+
+        return result;
+    }
+
+    /**
+     * Copy the direction of travel at the current location.
+     *
+     * @param storeResult (modified if not null)
+     * @return unit vector (either storeResult or a new instance) or a zero
+     * vector if the path has zero length
+     */
+    public Vector3f copyDirection(Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        if (pointDistances.length < 2) {
+            result.set(0f, 0f, 0f);
+            return result;
+        }
+        int i0 = 3 * segment;
+        float dt = pointDistances[segment + 1] - pointDistances[segment];
+        float x = (points[i0 + 3] - points[i0]) / dt;
+        float y = (points[i0 + 4] - points[i0 + 1]) / dt;
+        float z = (points[i0 + 5] - points[i0 + 2]) / dt;
+        result.set(x, y, z);
+
+        return result;
+    }
+
+    /**
+     * Copy the current location.
+     *
+     * @param storeResult (modified if not null)
+     * @return world coordinates (either storeResult or a new instance)
+     */
+    public Vector3f copyLocation(Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int i0 = 3 * segment;
+        if (pointDistances.length < 2) {
+            result.set(points[0], points[1], points[2]);
+            return result;
+        }
+        float t0 = pointDistances[segment];
+        float dt = pointDistances[segment + 1] - t0;
+        float fraction = (distance - t0) / dt;
+        float x = points[i0] + fraction * (points[i0 + 3] - points[i0]);
+        float y = points[i0 + 1]
+                + fraction * (points[i0 + 4] - points[i0 + 1]);
+        float z = points[i0 + 2]
+                + fraction * (points[i0 + 5] - points[i0 + 2]);
+        result.set(x, y, z);
+
+        return result;
+    }
+
+    /**
+     * Access the arc containing the current location.
+     *
+     * @return pre-existing arc, or null if the path has zero length
+     */
+    public NavArc getArc() {
+        if (pointDistances.length < 2) {
+            return null;
+        }
+        int arcIndex = segmentArcs[segment];
+        NavArc result = path.getArc(arcIndex);
+
+        return result;
+    }
+
+    /**
+     * Read the distance traveled from the start of the path.
+     *
+     * @return distance (&ge;0, &le;totalLength)
+     */
+    public float getDistance() {
+        return distance;
+    }
+
+    /**
+     * Access the path being followed.
+     *
+     * @return pre-existing instance
+     */
+    public NavPath getPath() {
+        return path;
+    }
+
+    /**
+     * Read the total length of the path.
+     *
+     * @return length (&ge;0)
+     */
+    public float getTotalLength() {
+        return totalLength;
+    }
+
+    /**
+     * Test whether the end of the path has been reached.
+     *
+     * @return true if at the end, otherwise false
+     */
+    public boolean isFinished() {
+        boolean result = distance >= totalLength;
+        return result;
+    }
+
+    /**
+     * Jump to the specified distance from the start of the path.
+     *
+     * @param newDistance distance (&ge;0, clamped to totalLength)
+     */
+    public void setDistance(float newDistance) {
+        Validate.nonNegative(newDistance, "new distance");
+
+        distance = Math.min(newDistance, totalLength);
+        if (Math.abs(distance - pointDistances[segment]) > 0f) {
+            int lastSegment = pointDistances.length - 2;
+            int index = Arrays.binarySearch(pointDistances, distance);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            segment = Math.max(0, Math.min(index, lastSegment));
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Advance the segment cursor until it contains the current distance.
+     */
+    private void seekForward() {
+        int lastSegment = pointDistances.length - 2;
+        while (segment < lastSegment
+                && distance > pointDistances[segment + 1]) {
+            ++segment;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,340 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Thread-safe service to answer path queries against the latest published
+ * snapshot of a navigation graph.
+ * <p>
+ * Queries run on an executor, each worker thread reusing its own search
+ * workspace, so no per-query storage is allocated beyond the result paths.
+ * Every query (or batch) uses the snapshot which was current when it was
+ * submitted. Publishing a new snapshot is a single atomic write, so it never
+ * blocks or disturbs queries already in progress.
+ * <p>
+ * NavGraph itself is not thread-safe: the thread which edits a graph should
+ * also be the one to publish its snapshots.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavQueryService {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of queries in each task of a batch
+     */
+    final private static int queriesPerTask = 32;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavQueryService.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * latest published snapshot (not null)
+     */
+    final private AtomicReference<CompactNavGraph> snapshot;
+    /**
+     * executor which runs the queries (not null)
+     */
+    final private ExecutorService executor;
+    /**
+     * true if this service created its executor, false if it was supplied
+     */
+    final private boolean ownsExecutor;
+    /**
+     * A* heuristic shared by all queries (stateless, not null)
+     */
+    final private NavHeuristic heuristic = new StraightLineHeuristic();
+    /**
+     * search workspace of each worker thread
+     */
+    final private ThreadLocal<CompactSearch> workspace =
+            new ThreadLocal<>();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a service for the specified graph with its own fixed pool
+     * of worker threads, one per available processor. Invoke
+     * {@link #shutdown()} to release the threads.
+     *
+     * @param graph graph to snapshot (not null)
+     */
+    public NavQueryService(NavGraph graph) {
+        Validate.nonNull(graph, "graph");
+
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        this.executor = Executors.newFixedThreadPool(numThreads);
+        this.ownsExecutor = true;
+        this.snapshot = new AtomicReference<>(graph.freeze());
+    }
+
+    /**
+     * Instantiate a service for the specified graph using the specified
+     * executor. The executor remains the caller's responsibility.
+     *
+     * @param graph graph to snapshot (not null)
+     * @param executor executor to run queries (not null)
+     */
+    public NavQueryService(NavGraph graph, ExecutorService executor) {
+        Validate.nonNull(graph, "graph");
+        Validate.nonNull(executor, "executor");
+
+        this.executor = executor;
+        this.ownsExecutor = false;
+        this.snapshot = new AtomicReference<>(graph.freeze());
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Access the current snapshot.
+     *
+     * @return pre-existing instance
+     */
+    public CompactNavGraph getSnapshot() {
+        CompactNavGraph result = snapshot.get();
+        return result;
+    }
+
+    /**
+     * Take a new snapshot of the specified graph and make it current for all
+     * subsequent queries. Queries already submitted are unaffected. Invoke
+     * from the thread which edits the graph.
+     *
+     * @param graph graph to snapshot (not null)
+     */
+    public void publish(NavGraph graph) {
+        Validate.nonNull(graph, "graph");
+
+        CompactNavGraph newSnapshot = graph.freeze();
+        snapshot.set(newSnapshot);
+    }
+
+    /**
+     * Make the specified snapshot current for all subsequent queries.
+     *
+     * @param newSnapshot snapshot to publish (not null)
+     */
+    public void publish(CompactNavGraph newSnapshot) {
+        Validate.nonNull(newSnapshot, "snapshot");
+        snapshot.set(newSnapshot);
+    }
+
+    /**
+     * Release the worker threads, if this service created them. Queries
+     * already submitted still run to completion.
+     */
+    public void shutdown() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Solve a batch of path queries in parallel, blocking until all are
+     * complete.
+     *
+     * @param starts starting vertex of each query (not null, no null
+     * elements)
+     * @param goals goal vertex of each query (not null, no null elements,
+     * same size as starts)
+     * @return new list of shortest paths, in query order, each null if its
+     * goal is unreachable or either vertex isn't in the snapshot
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<NavPath> solveBatch(List<NavVertex> starts,
+            List<NavVertex> goals) throws InterruptedException {
+        List<Future<NavPath[]>> futures = submitBatch(starts, goals);
+
+        int numQueries = starts.size();
+        List<NavPath> result = new ArrayList<>(numQueries);
+        for (Future<NavPath[]> future : futures) {
+            NavPath[] paths = getResult(future);
+            for (NavPath path : paths) {
+                result.add(path);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Submit a single path query.
+     *
+     * @param start starting vertex (not null)
+     * @param goal goal vertex (not null)
+     * @return future for the shortest path, which is null if the goal is
+     * unreachable or either vertex isn't in the snapshot
+     */
+    public Future<NavPath> submit(final NavVertex start,
+            final NavVertex goal) {
+        Validate.nonNull(start, "start");
+        Validate.nonNull(goal, "goal");
+
+        final CompactNavGraph pinned = snapshot.get();
+        Callable<NavPath> task = new Callable<NavPath>() {
+            @Override
+            public NavPath call() {
+                NavPath result = solve(pinned, start, goal);
+                return result;
+            }
+        };
+        Future<NavPath> result = executor.submit(task);
+
+        return result;
+    }
+
+    /**
+     * Submit a batch of path queries, divided into tasks which run in
+     * parallel.
+     *
+     * @param starts starting vertex of each query (not null, no null
+     * elements)
+     * @param goals goal vertex of each query (not null, no null elements,
+     * same size as starts)
+     * @return new list of futures, one per task; concatenating their arrays
+     * yields the paths in query order
+     */
+    public List<Future<NavPath[]>> submitBatch(List<NavVertex> starts,
+            List<NavVertex> goals) {
+        Validate.nonNull(starts, "starts");
+        Validate.nonNull(goals, "goals");
+        int numQueries = starts.size();
+        if (goals.size() != numQueries) {
+            logger.log(Level.SEVERE, "starts.size()={0} goals.size()={1}",
+                    new Object[]{numQueries, goals.size()});
+            throw new IllegalArgumentException(
+                    "starts and goals should have the same size");
+        }
+
+        final CompactNavGraph pinned = snapshot.get();
+        final NavVertex[] startArray = new NavVertex[numQueries];
+        final NavVertex[] goalArray = new NavVertex[numQueries];
+        for (int queryIndex = 0; queryIndex < numQueries; queryIndex++) {
+            startArray[queryIndex] = starts.get(queryIndex);
+            goalArray[queryIndex] = goals.get(queryIndex);
+            Validate.nonNull(startArray[queryIndex], "start");
+            Validate.nonNull(goalArray[queryIndex], "goal");
+        }
+
+        int numTasks = (numQueries + queriesPerTask - 1) / queriesPerTask;
+        List<Future<NavPath[]>> result = new ArrayList<>(numTasks);
+        for (int taskIndex = 0; taskIndex < numTasks; taskIndex++) {
+            final int first = taskIndex * queriesPerTask;
+            final int end = Math.min(first + queriesPerTask, numQueries);
+            Callable<NavPath[]> task = new Callable<NavPath[]>() {
+                @Override
+                public NavPath[] call() {
+                    NavPath[] paths = new NavPath[end - first];
+                    for (int i = first; i < end; i++) {
+                        paths[i - first] =
+                                solve(pinned, startArray[i], goalArray[i]);
+                    }
+                    return paths;
+                }
+            };
+            Future<NavPath[]> future = executor.submit(task);
+            result.add(future);
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Wait for a batch task and return its result, rethrowing any failure
+     * unchecked.
+     *
+     * @param future future of the task (not null)
+     * @return the task's result
+     */
+    private static NavPath[] getResult(Future<NavPath[]> future)
+            throws InterruptedException {
+        try {
+            NavPath[] result = future.get();
+            return result;
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Solve a single query using the calling thread's search workspace.
+     *
+     * @param graph snapshot to search (not null)
+     * @param start starting vertex (not null)
+     * @param goal goal vertex (not null)
+     * @return new path (or null)
+     */
+    private NavPath solve(CompactNavGraph graph, NavVertex start,
+            NavVertex goal) {
+        assert graph != null;
+        assert start != null;
+        assert goal != null;
+
+        int startId = graph.findVertex(start);
+        int goalId = graph.findVertex(goal);
+        if (startId == -1 || goalId == -1) {
+            return null;
+        }
+
+        CompactSearch search = workspace.get();
+        if (search == null || search.getGraph() != graph) {
+            search = new CompactSearch(graph);
+            workspace.set(search);
+        }
+        float length = search.findPath(startId, goalId, heuristic);
+        if (length == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+        NavPath result = search.toNavPath(goalId);
+
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,492 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Least-recently-used cache of shortest routes for a navigation graph,
+ * bounded by both entry count and estimated memory.
+ * <p>
+ * The cache listens to its graph and invalidates precisely: removing an arc
+ * evicts only the cached routes which use it, adding an arc (which may create
+ * shortcuts) clears the cache, and adding a vertex (which has no arcs yet)
+ * invalidates nothing. As a safety net, the cache also compares the graph's
+ * modification counter before each lookup.
+ * <p>
+ * Unreachable goals are cached too. Like NavGraph, this class isn't
+ * thread-safe.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavRouteCache
+        implements NavGraphListener {
+    // *************************************************************************
+    // constants
+
+    /**
+     * estimated memory per cached route, excluding its arcs (in bytes)
+     */
+    final private static int entryBytes = 160;
+    /**
+     * estimated memory per arc of a cached route (in bytes)
+     */
+    final private static int arcBytes = 16;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavRouteCache.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * cached routes in access order, eldest first
+     */
+    final private LinkedHashMap<RouteKey, NavPath> routes;
+    /**
+     * keys of the cached routes which use each arc
+     */
+    final private Map<NavArc, Set<RouteKey>> routesByArc =
+            new IdentityHashMap<>(64);
+    /**
+     * estimated memory used by cached routes (in bytes)
+     */
+    private long usedBytes = 0L;
+    /**
+     * number of routes evicted to respect the bounds
+     */
+    private long evictionCount = 0L;
+    /**
+     * number of lookups answered from the cache
+     */
+    private long hitCount = 0L;
+    /**
+     * number of routes discarded because the graph changed
+     */
+    private long invalidationCount = 0L;
+    /**
+     * number of lookups which required a search
+     */
+    private long missCount = 0L;
+    /**
+     * modification count of the graph when the cache was last validated
+     */
+    private long validatedCount;
+    /**
+     * maximum estimated memory for cached routes (in bytes, &gt;0)
+     */
+    final private long maxBytes;
+    /**
+     * maximum number of cached routes (&gt;0)
+     */
+    final private int maxRoutes;
+    /**
+     * heuristic for searches (not null)
+     */
+    final private NavHeuristic heuristic;
+    /**
+     * graph being searched (not null)
+     */
+    final private NavGraph graph;
+    /**
+     * search engine for cache misses (not null)
+     */
+    final private NavSearch search;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a cache for the specified graph and register it as a
+     * listener.
+     *
+     * @param graph graph to search (not null)
+     * @param heuristic A* heuristic for searches (not null)
+     * @param maxRoutes maximum number of cached routes (&gt;0)
+     * @param maxBytes maximum estimated memory for cached routes (in bytes,
+     * &gt;0)
+     */
+    public NavRouteCache(NavGraph graph, NavHeuristic heuristic,
+            int maxRoutes, long maxBytes) {
+        Validate.nonNull(graph, "graph");
+        Validate.nonNull(heuristic, "heuristic");
+        Validate.positive(maxRoutes, "max routes");
+        Validate.positive(maxBytes, "max bytes");
+
+        this.graph = graph;
+        this.heuristic = heuristic;
+        this.maxRoutes = maxRoutes;
+        this.maxBytes = maxBytes;
+        routes = new LinkedHashMap<>(16, 0.75f, true);
+        search = new NavSearch(graph);
+        validatedCount = graph.getModificationCount();
+        graph.addListener(this);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Discard all cached routes. Statistics are unaffected.
+     */
+    public void clear() {
+        routes.clear();
+        routesByArc.clear();
+        usedBytes = 0L;
+    }
+
+    /**
+     * Unregister this cache from its graph and discard all cached routes.
+     * After detaching, the cache should no longer be used.
+     */
+    public void detach() {
+        graph.removeListener(this);
+        clear();
+    }
+
+    /**
+     * Find a shortest path from one vertex to another, using a cached route
+     * if possible.
+     *
+     * @param startVertex starting point (member of the graph)
+     * @param goalVertex goal (member of the graph)
+     * @return shortest path (possibly shared with other callers, since paths
+     * are immutable) or null if the goal is unreachable
+     */
+    public NavPath findPath(NavVertex startVertex, NavVertex goalVertex) {
+        graph.validateMember(startVertex);
+        graph.validateMember(goalVertex);
+
+        long count = graph.getModificationCount();
+        if (count != validatedCount) {
+            invalidationCount += routes.size();
+            clear();
+            validatedCount = count;
+        }
+
+        RouteKey key = new RouteKey(startVertex, goalVertex);
+        NavPath result = routes.get(key);
+        if (result != null || routes.containsKey(key)) {
+            ++hitCount;
+            return result;
+        }
+
+        ++missCount;
+        result = search.findPath(startVertex, goalVertex, heuristic);
+        add(key, result);
+
+        return result;
+    }
+
+    /**
+     * Read the number of routes evicted to respect the size and memory
+     * bounds.
+     *
+     * @return count (&ge;0)
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Read the number of lookups answered from the cache.
+     *
+     * @return count (&ge;0)
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Read the number of cached routes discarded because the graph changed.
+     *
+     * @return count (&ge;0)
+     */
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Read the number of lookups which required a search.
+     *
+     * @return count (&ge;0)
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Estimate the memory used by cached routes.
+     *
+     * @return number of bytes (&ge;0)
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Calculate the fraction of lookups answered from the cache.
+     *
+     * @return fraction (&ge;0, &le;1) or 0 if there have been no lookups
+     */
+    public float hitRatio() {
+        long lookups = hitCount + missCount;
+        if (lookups == 0L) {
+            return 0f;
+        }
+        float result = hitCount / (float) lookups;
+
+        return result;
+    }
+
+    /**
+     * Count the cached routes.
+     *
+     * @return count (&ge;0, &le;maxRoutes)
+     */
+    public int numRoutes() {
+        int result = routes.size();
+        return result;
+    }
+
+    /**
+     * Reset all statistics to zero.
+     */
+    public void resetStatistics() {
+        evictionCount = 0L;
+        hitCount = 0L;
+        invalidationCount = 0L;
+        missCount = 0L;
+    }
+    // *************************************************************************
+    // NavGraphListener methods
+
+    /**
+     * Callback after an arc is added to the graph: since the arc might
+     * shorten any route (or connect unreachable goals), discard all routes.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the new arc (not null)
+     */
+    @Override
+    public void arcAdded(NavGraph graph, NavArc arc) {
+        invalidationCount += routes.size();
+        clear();
+        validatedCount = graph.getModificationCount();
+    }
+
+    /**
+     * Callback after an arc is removed from the graph: discard the routes
+     * which use it.
+     *
+     * @param graph graph which was modified (not null)
+     * @param arc the removed arc (not null)
+     */
+    @Override
+    public void arcRemoved(NavGraph graph, NavArc arc) {
+        Set<RouteKey> keys = routesByArc.get(arc);
+        if (keys != null) {
+            List<RouteKey> keyList = new ArrayList<>(keys);
+            for (RouteKey key : keyList) {
+                discard(key);
+                ++invalidationCount;
+            }
+        }
+        validatedCount = graph.getModificationCount();
+    }
+
+    /**
+     * Callback after a vertex is added to the graph: since the vertex has no
+     * arcs yet, no cached route is affected.
+     *
+     * @param graph graph which was modified (not null)
+     * @param vertex the new vertex (not null)
+     */
+    @Override
+    public void vertexAdded(NavGraph graph, NavVertex vertex) {
+        validatedCount = graph.getModificationCount();
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Describe this cache and its statistics.
+     *
+     * @return descriptive string of text (not null)
+     */
+    @Override
+    public String toString() {
+        String result = String.format(
+                "routes=%d bytes=%d hits=%d misses=%d evictions=%d "
+                + "invalidations=%d",
+                routes.size(), usedBytes, hitCount, missCount,
+                evictionCount, invalidationCount);
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Add a route to the cache, evicting the least-recently used routes as
+     * needed to respect the bounds.
+     *
+     * @param key key of the route (not null, not already cached)
+     * @param path route (may be null)
+     */
+    private void add(RouteKey key, NavPath path) {
+        assert !routes.containsKey(key);
+
+        key.path = path;
+        routes.put(key, path);
+        usedBytes += estimateBytes(path);
+        if (path != null) {
+            int numArcs = path.numArcs();
+            for (int index = 0; index < numArcs; index++) {
+                NavArc arc = path.getArc(index);
+                Set<RouteKey> keys = routesByArc.get(arc);
+                if (keys == null) {
+                    keys = new HashSet<>(4);
+                    routesByArc.put(arc, keys);
+                }
+                keys.add(key);
+            }
+        }
+
+        Iterator<RouteKey> eldest = routes.keySet().iterator();
+        while (routes.size() > maxRoutes
+                || usedBytes > maxBytes && routes.size() > 1) {
+            RouteKey evictKey = eldest.next();
+            eldest.remove();
+            unindex(evictKey);
+            ++evictionCount;
+        }
+    }
+
+    /**
+     * Discard the specified route from the cache.
+     *
+     * @param key key of the route (not null, cached)
+     */
+    private void discard(RouteKey key) {
+        assert routes.containsKey(key);
+
+        routes.remove(key);
+        unindex(key);
+    }
+
+    /**
+     * Estimate the memory used by a cached route.
+     *
+     * @param path route (may be null)
+     * @return number of bytes (&gt;0)
+     */
+    private static long estimateBytes(NavPath path) {
+        long result = entryBytes;
+        if (path != null) {
+            result += arcBytes * path.numArcs();
+        }
+        return result;
+    }
+
+    /**
+     * Remove a route (already removed from the map) from the arc index and
+     * the memory estimate.
+     *
+     * @param key key of the route (not null)
+     */
+    private void unindex(RouteKey key) {
+        NavPath path = key.path;
+        usedBytes -= estimateBytes(path);
+        if (path != null) {
+            int numArcs = path.numArcs();
+            for (int index = 0; index < numArcs; index++) {
+                NavArc arc = path.getArc(index);
+                Set<RouteKey> keys = routesByArc.get(arc);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        routesByArc.remove(arc);
+                    }
+                }
+            }
+        }
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Cache key identifying a (start, goal) pair by vertex identity.
+     */
+    private static class RouteKey {
+        /**
+         * goal vertex
+         */
+        final NavVertex goal;
+        /**
+         * starting vertex
+         */
+        final NavVertex start;
+        /**
+         * cached route for this key (set when the route is added)
+         */
+        NavPath path;
+
+        /**
+         * Instantiate a key.
+         *
+         * @param start starting vertex (not null)
+         * @param goal goal vertex (not null)
+         */
+        RouteKey(NavVertex start, NavVertex goal) {
+            this.start = start;
+            this.goal = goal;
+        }
+
+        @Override
+        public boolean equals(Object otherObject) {
+            boolean result = false;
+            if (otherObject instanceof RouteKey) {
+                RouteKey otherKey = (RouteKey) otherObject;
+                result = start == otherKey.start && goal == otherKey.goal;
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 31 * System.identityHashCode(start)
+                    + System.identityHashCode(goal);
+            return hash;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,599 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Precomputed all-pairs routing table for a compact navigation graph: for
+ * every (from, to) pair of vertices, the 1st arc of a shortest path and the
+ * path length. Once built (or loaded), route queries take time proportional to
+ * the length of the route.
+ * <p>
+ * Next hops are stored as 16-bit offsets into the origin's arc list, so the
+ * table occupies 6 bytes per vertex pair. It suits graphs with up to a few
+ * thousand vertices. Tables are built in parallel (one Dijkstra search per
+ * origin) and may be saved to a versioned binary file which is
+ * memory-mapped when loaded.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavRoutingTable {
+    // *************************************************************************
+    // constants
+
+    /**
+     * identifying value at the start of each table file ("NRT1")
+     */
+    final private static int fileMagic = 0x4e525431;
+    /**
+     * version of the file format
+     */
+    final private static int fileVersion = 1;
+    /**
+     * size of the file header (in bytes)
+     */
+    final private static int headerBytes = 24;
+    /**
+     * largest supported number of vertices
+     */
+    final public static int maxVertices = 16384;
+    /**
+     * number of origins processed by each leaf task of a build
+     */
+    final private static int originsPerTask = 16;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavRoutingTable.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * snapshot to which this table applies (not null)
+     */
+    final private CompactNavGraph graph;
+    /**
+     * shortest-path length for each (from, to) pair, indexed by
+     * from * numVertices + to (+Infinity if unreachable)
+     */
+    final private FloatBuffer distances;
+    /**
+     * number of vertices in the snapshot (&ge;0, &le;maxVertices)
+     */
+    final private int numVertices;
+    /**
+     * offset of the 1st arc of a shortest path within the origin's arcs, for
+     * each (from, to) pair, indexed by from * numVertices + to (-1 if
+     * unreachable or from == to)
+     */
+    final private ShortBuffer nextHops;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a table with the specified contents.
+     *
+     * @param graph snapshot to which the table applies (not null)
+     * @param nextHops next-hop offsets (not null)
+     * @param distances path lengths (not null)
+     */
+    private NavRoutingTable(CompactNavGraph graph, ShortBuffer nextHops,
+            FloatBuffer distances) {
+        assert graph != null;
+        assert nextHops != null;
+        assert distances != null;
+
+        this.graph = graph;
+        this.numVertices = graph.numVertices();
+        this.nextHops = nextHops;
+        this.distances = distances;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Build a routing table for the specified snapshot, using a temporary
+     * fork-join pool with one worker per available processor.
+     *
+     * @param graph snapshot to route (not null, numVertices&le;maxVertices)
+     * @return new instance
+     */
+    public static NavRoutingTable build(CompactNavGraph graph) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            NavRoutingTable result = build(graph, pool);
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Build a routing table for the specified snapshot, using the specified
+     * fork-join pool.
+     *
+     * @param graph snapshot to route (not null, numVertices&le;maxVertices)
+     * @param pool pool to execute the searches (not null)
+     * @return new instance
+     */
+    public static NavRoutingTable build(CompactNavGraph graph,
+            ForkJoinPool pool) {
+        Validate.nonNull(graph, "graph");
+        Validate.nonNull(pool, "pool");
+        int numVertices = graph.numVertices();
+        if (numVertices > maxVertices) {
+            logger.log(Level.SEVERE, "numVertices={0}", numVertices);
+            throw new IllegalArgumentException("graph has too many vertices");
+        }
+        for (int vertexId = 0; vertexId < numVertices; vertexId++) {
+            int numArcs = graph.endArc(vertexId) - graph.firstArc(vertexId);
+            if (numArcs > Short.MAX_VALUE) {
+                logger.log(Level.SEVERE, "numArcs={0}", numArcs);
+                throw new IllegalArgumentException(
+                        "vertex has too many arcs");
+            }
+        }
+
+        int numCells = numVertices * numVertices;
+        short[] hopArray = new short[numCells];
+        float[] distanceArray = new float[numCells];
+        BuildTask task = new BuildTask(graph, 0, numVertices, hopArray,
+                distanceArray);
+        pool.invoke(task);
+
+        ShortBuffer hops = ShortBuffer.wrap(hopArray);
+        FloatBuffer lengths = FloatBuffer.wrap(distanceArray);
+        NavRoutingTable result = new NavRoutingTable(graph, hops, lengths);
+
+        return result;
+    }
+
+    /**
+     * Copy the arc ids of a shortest route between two vertices.
+     *
+     * @param fromId id of the starting vertex (&ge;0, &lt;numVertices)
+     * @param toId id of the goal vertex (&ge;0, &lt;numVertices)
+     * @param storeArcIds array to fill with arc ids in route order (not null)
+     * @return number of arcs in the route (&ge;0) or -1 if the goal is
+     * unreachable
+     */
+    public int copyRoute(int fromId, int toId, int[] storeArcIds) {
+        graph.validateVertex(fromId, "from id");
+        graph.validateVertex(toId, "to id");
+        Validate.nonNull(storeArcIds, "storage");
+
+        if (fromId != toId && nextArc(fromId, toId) == -1) {
+            return -1;
+        }
+        int count = 0;
+        for (int vertexId = fromId; vertexId != toId;) {
+            int arcId = nextArc(vertexId, toId);
+            if (count >= storeArcIds.length) {
+                logger.log(Level.SEVERE, "length={0}", storeArcIds.length);
+                throw new IllegalArgumentException("storage is too small");
+            }
+            storeArcIds[count] = arcId;
+            count++;
+            vertexId = graph.arcTarget(arcId);
+        }
+
+        return count;
+    }
+
+    /**
+     * Read the shortest-path length between two vertices.
+     *
+     * @param fromId id of the starting vertex (&ge;0, &lt;numVertices)
+     * @param toId id of the goal vertex (&ge;0, &lt;numVertices)
+     * @return path length (&ge;0) or +Infinity if the goal is unreachable
+     */
+    public float distance(int fromId, int toId) {
+        graph.validateVertex(fromId, "from id");
+        graph.validateVertex(toId, "to id");
+
+        float result = distances.get(fromId * numVertices + toId);
+        return result;
+    }
+
+    /**
+     * Access the snapshot to which this table applies.
+     *
+     * @return pre-existing instance
+     */
+    public CompactNavGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Load a table from a file, memory-mapping its contents. The file must
+     * have been saved from a table for an identical graph.
+     *
+     * @param file file to read (not null)
+     * @param graph snapshot to which the table applies (not null)
+     * @return new instance
+     * @throws IOException if the file can't be read or doesn't match the
+     * graph
+     */
+    public static NavRoutingTable load(File file, CompactNavGraph graph)
+            throws IOException {
+        Validate.nonNull(file, "file");
+        Validate.nonNull(graph, "graph");
+
+        int numVertices = graph.numVertices();
+        long numCells = (long) numVertices * numVertices;
+        long hopBytes = paddedHopBytes(numCells);
+        long expectedSize = headerBytes + hopBytes + 4L * numCells;
+
+        MappedByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size != expectedSize) {
+                throw new IOException(String.format(
+                        "%s has size %d, expected %d", file, size,
+                        expectedSize));
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        }
+
+        int magic = mapped.getInt(0);
+        int version = mapped.getInt(4);
+        int fileVertices = mapped.getInt(8);
+        int fileArcs = mapped.getInt(12);
+        long fingerprint = mapped.getLong(16);
+        if (magic != fileMagic) {
+            throw new IOException(file + " isn't a routing table");
+        }
+        if (version != fileVersion) {
+            throw new IOException(String.format(
+                    "%s has unsupported version %d", file, version));
+        }
+        if (fileVertices != numVertices || fileArcs != graph.numArcs()
+                || fingerprint != fingerprint(graph)) {
+            throw new IOException(file + " doesn't match the graph");
+        }
+
+        mapped.position(headerBytes);
+        mapped.limit(headerBytes + (int) (2L * numCells));
+        ShortBuffer hops = mapped.slice().asShortBuffer();
+        mapped.limit((int) expectedSize);
+        mapped.position(headerBytes + (int) hopBytes);
+        FloatBuffer lengths = mapped.slice().asFloatBuffer();
+
+        NavRoutingTable result = new NavRoutingTable(graph, hops, lengths);
+        return result;
+    }
+
+    /**
+     * Find the 1st arc of a shortest route between two vertices.
+     *
+     * @param fromId id of the starting vertex (&ge;0, &lt;numVertices)
+     * @param toId id of the goal vertex (&ge;0, &lt;numVertices)
+     * @return arc id (&ge;0) or -1 if the goal is unreachable or identical to
+     * the start
+     */
+    public int nextArc(int fromId, int toId) {
+        graph.validateVertex(fromId, "from id");
+        graph.validateVertex(toId, "to id");
+
+        int offset = nextHops.get(fromId * numVertices + toId);
+        if (offset < 0) {
+            return -1;
+        }
+        int result = graph.firstArc(fromId) + offset;
+
+        return result;
+    }
+
+    /**
+     * Construct a shortest route between two vertices.
+     *
+     * @param fromVertex starting vertex (in the snapshot)
+     * @param toVertex goal vertex (in the snapshot)
+     * @return new path (or null if the goal is unreachable)
+     */
+    public NavPath route(NavVertex fromVertex, NavVertex toVertex) {
+        int fromId = graph.findVertex(fromVertex);
+        graph.validateVertex(fromId, "from vertex");
+        int toId = graph.findVertex(toVertex);
+        graph.validateVertex(toId, "to vertex");
+
+        if (fromId != toId && nextArc(fromId, toId) == -1) {
+            return null;
+        }
+        List<NavArc> arcList = new ArrayList<>(20);
+        for (int vertexId = fromId; vertexId != toId;) {
+            int arcId = nextArc(vertexId, toId);
+            arcList.add(graph.getArc(arcId));
+            vertexId = graph.arcTarget(arcId);
+        }
+        NavPath result = new NavPath(fromVertex, arcList);
+
+        return result;
+    }
+
+    /**
+     * Save this table to a file in a versioned binary format suitable for
+     * {@link #load(java.io.File, jme3utilities.navigation.CompactNavGraph)}.
+     *
+     * @param file file to write (not null)
+     * @throws IOException if the file can't be written
+     */
+    public void save(File file) throws IOException {
+        Validate.nonNull(file, "file");
+
+        long numCells = (long) numVertices * numVertices;
+        long hopBytes = paddedHopBytes(numCells);
+        int chunkCells = 4096;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * chunkCells);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            channel.truncate(0L);
+            buffer.putInt(fileMagic);
+            buffer.putInt(fileVersion);
+            buffer.putInt(numVertices);
+            buffer.putInt(graph.numArcs());
+            buffer.putLong(fingerprint(graph));
+            writeBuffer(channel, buffer);
+
+            for (long cell = 0L; cell < numCells; cell++) {
+                buffer.putShort(nextHops.get((int) cell));
+                if (!buffer.hasRemaining()) {
+                    writeBuffer(channel, buffer);
+                }
+            }
+            if (hopBytes > 2L * numCells) {
+                buffer.putShort((short) 0);
+            }
+            writeBuffer(channel, buffer);
+
+            for (long cell = 0L; cell < numCells; cell++) {
+                buffer.putFloat(distances.get((int) cell));
+                if (!buffer.hasRemaining()) {
+                    writeBuffer(channel, buffer);
+                }
+            }
+            writeBuffer(channel, buffer);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Compute a fingerprint of a snapshot's topology and vertex descriptions,
+     * to detect stale table files.
+     *
+     * @param graph snapshot (not null)
+     * @return hash value
+     */
+    private static long fingerprint(CompactNavGraph graph) {
+        long result = 17L;
+        int numVertices = graph.numVertices();
+        for (int vertexId = 0; vertexId < numVertices; vertexId++) {
+            String description = graph.getVertex(vertexId).getDescription();
+            result = 31L * result + description.hashCode();
+            result = 31L * result + graph.firstArc(vertexId);
+        }
+        int numArcs = graph.numArcs();
+        for (int arcId = 0; arcId < numArcs; arcId++) {
+            result = 31L * result + graph.arcTarget(arcId);
+            result = 31L * result
+                    + Float.floatToIntBits(graph.arcLength(arcId));
+        }
+
+        return result;
+    }
+
+    /**
+     * Calculate the number of bytes occupied by next-hop data in a table
+     * file, including padding to align the distance data.
+     *
+     * @param numCells number of vertex pairs (&ge;0)
+     * @return number of bytes (&ge;0, a multiple of 4)
+     */
+    private static long paddedHopBytes(long numCells) {
+        long result = 2L * numCells;
+        if (result % 4L != 0L) {
+            result += 2L;
+        }
+        return result;
+    }
+
+    /**
+     * Write the contents of a buffer to a channel and clear the buffer.
+     *
+     * @param channel channel to write (not null)
+     * @param buffer buffer to write (not null)
+     */
+    private static void writeBuffer(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Fork-join task to compute the rows of a routing table for a range of
+     * origins.
+     */
+    private static class BuildTask
+            extends RecursiveAction {
+
+        /**
+         * version for serialization
+         */
+        final private static long serialVersionUID = 1L;
+        /**
+         * snapshot being routed
+         */
+        final private CompactNavGraph graph;
+        /**
+         * path lengths, indexed by from * numVertices + to
+         */
+        final private float[] distances;
+        /**
+         * id of the 1st origin in the range
+         */
+        final private int firstOrigin;
+        /**
+         * id just past the last origin in the range
+         */
+        final private int endOrigin;
+        /**
+         * next-hop offsets, indexed by from * numVertices + to
+         */
+        final private short[] nextHops;
+
+        /**
+         * Instantiate a task for a range of origins.
+         *
+         * @param graph snapshot being routed (not null)
+         * @param firstOrigin id of the 1st origin in the range
+         * @param endOrigin id just past the last origin in the range
+         * @param nextHops array to fill with next-hop offsets (not null)
+         * @param distances array to fill with path lengths (not null)
+         */
+        BuildTask(CompactNavGraph graph, int firstOrigin, int endOrigin,
+                short[] nextHops, float[] distances) {
+            this.graph = graph;
+            this.firstOrigin = firstOrigin;
+            this.endOrigin = endOrigin;
+            this.nextHops = nextHops;
+            this.distances = distances;
+        }
+
+        /**
+         * Compute the rows for this task's range, splitting it if it's large.
+         */
+        @Override
+        protected void compute() {
+            int count = endOrigin - firstOrigin;
+            if (count > originsPerTask) {
+                int middle = firstOrigin + count / 2;
+                invokeAll(new BuildTask(graph, firstOrigin, middle, nextHops,
+                        distances),
+                        new BuildTask(graph, middle, endOrigin, nextHops,
+                        distances));
+                return;
+            }
+
+            int numVertices = graph.numVertices();
+            CompactSearch search = new CompactSearch(graph);
+            int[] firstArcs = new int[numVertices];
+            int[] stack = new int[numVertices];
+            for (int origin = firstOrigin; origin < endOrigin; origin++) {
+                search.computeDistances(origin);
+                computeRow(search, origin, firstArcs, stack);
+            }
+        }
+
+        /**
+         * Fill one row of the table from a completed shortest-path search.
+         * The 1st arc of each path is found by walking up the shortest-path
+         * tree only as far as the nearest vertex already resolved, so the row
+         * takes O(V) time.
+         *
+         * @param search completed search from the origin (not null)
+         * @param origin id of the origin
+         * @param firstArcs scratch array for the 1st arc of each path (not
+         * null)
+         * @param stack scratch array for the tree walk (not null)
+         */
+        private void computeRow(CompactSearch search, int origin,
+                int[] firstArcs, int[] stack) {
+            int numVertices = graph.numVertices();
+            int rowBase = origin * numVertices;
+            final int unresolved = -2;
+            for (int vertexId = 0; vertexId < numVertices; vertexId++) {
+                firstArcs[vertexId] = unresolved;
+            }
+            firstArcs[origin] = -1;
+
+            for (int target = 0; target < numVertices; target++) {
+                float distance = search.distance(target);
+                distances[rowBase + target] = distance;
+                if (distance == Float.POSITIVE_INFINITY) {
+                    firstArcs[target] = -1;
+                    continue;
+                }
+                /*
+                 * Walk up the tree to a resolved vertex, then resolve
+                 * the vertices on the way back down.
+                 */
+                int depth = 0;
+                int vertexId = target;
+                while (firstArcs[vertexId] == unresolved) {
+                    stack[depth] = vertexId;
+                    depth++;
+                    int arcId = search.predecessor(vertexId);
+                    int parent = graph.arcSource(arcId);
+                    if (parent == origin) {
+                        firstArcs[vertexId] = arcId;
+                        depth--;
+                        break;
+                    }
+                    vertexId = parent;
+                }
+                while (depth > 0) {
+                    depth--;
+                    int child = stack[depth];
+                    int arcId = search.predecessor(child);
+                    firstArcs[child] = firstArcs[graph.arcSource(arcId)];
+                }
+            }
+
+            int originBase = graph.firstArc(origin);
+            for (int target = 0; target < numVertices; target++) {
+                int arcId = firstArcs[target];
+                short offset = -1;
+                if (arcId >= 0) {
+                    offset = (short) (arcId - originBase);
+                }
+                nextHops[rowBase + target] = offset;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,410 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Search engine for a navigation graph: shortest paths using Dijkstra's
+ * algorithm and A*, backed by an indexed binary heap and running in O(E log V)
+ * time, plus multi-source breadth-first hop counts in O(V+E) time. Scratch arrays
+ * are retained between searches, so an instance should be re-used for many
+ * queries. Not thread-safe.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavSearch {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavSearch.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * best-known distance to each vertex, indexed by vertex (valid only where
+     * the corresponding stamp is current)
+     */
+    private float[] distances = new float[0];
+    /**
+     * stamp of the search which last reached each vertex, indexed by vertex
+     */
+    private int[] stamps = new int[0];
+    /**
+     * stamp of the current/most recent search
+     */
+    private int currentStamp = 0;
+    /**
+     * hop count of each vertex, indexed by vertex (valid only where the
+     * corresponding stamp is current)
+     */
+    private int[] hopCounts = new int[0];
+    /**
+     * FIFO queue of vertex indices for breadth-first searches
+     */
+    private int[] queue = new int[0];
+    /**
+     * true if the most recent search measured distances, false if it counted
+     * hops
+     */
+    private boolean measuredDistances = false;
+    /**
+     * queue of vertices awaiting expansion
+     */
+    final private IndexedHeap heap = new IndexedHeap(0);
+    /**
+     * arc by which each vertex was reached, indexed by vertex (valid only where
+     * the corresponding stamp is current)
+     */
+    private NavArc[] predecessors = new NavArc[0];
+    /**
+     * graph being searched (not null)
+     */
+    final private NavGraph graph;
+    /**
+     * starting point of the most recent exhaustive search (or null if the most
+     * recent search was goal-directed)
+     */
+    private NavVertex origin = null;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an engine for the specified graph.
+     *
+     * @param graph graph to search (not null)
+     */
+    public NavSearch(NavGraph graph) {
+        Validate.nonNull(graph, "graph");
+        this.graph = graph;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Measure the minimum distance from a starting point to every vertex in
+     * the graph, using Dijkstra's algorithm. Results are available from
+     * {@link #distance(jme3utilities.navigation.NavVertex)} and
+     * {@link #pathTo(jme3utilities.navigation.NavVertex)} until the next
+     * search.
+     *
+     * @param startVertex starting point (member of the graph)
+     */
+    public void computeDistances(NavVertex startVertex) {
+        graph.validateMember(startVertex);
+
+        search(startVertex, null, null);
+        origin = startVertex;
+    }
+
+    /**
+     * Measure the minimum number of hops from the nearest of several starting
+     * points to every vertex within the specified limit, using a
+     * multi-source breadth-first search in O(V+E) time. Results are available
+     * from {@link #hopCount(jme3utilities.navigation.NavVertex)} until the
+     * next search.
+     *
+     * @param startVertices starting points (not null, all members of the
+     * graph, unaffected)
+     * @param maxHopCount maximum hop count to explore (&ge;0)
+     */
+    public void computeHops(Collection<NavVertex> startVertices,
+            int maxHopCount) {
+        Validate.nonNull(startVertices, "start vertices");
+        Validate.nonNegative(maxHopCount, "max hop count");
+        for (NavVertex startVertex : startVertices) {
+            graph.validateMember(startVertex);
+        }
+
+        prepare();
+        origin = null;
+        measuredDistances = false;
+        int tail = 0;
+        for (NavVertex startVertex : startVertices) {
+            int startIndex = startVertex.getIndex();
+            if (stamps[startIndex] != currentStamp) {
+                stamps[startIndex] = currentStamp;
+                hopCounts[startIndex] = 0;
+                predecessors[startIndex] = null;
+                queue[tail] = startIndex;
+                tail++;
+            }
+        }
+        /*
+         * Breadth-first: each vertex is enqueued at most once.
+         */
+        int head = 0;
+        while (head < tail) {
+            int index = queue[head];
+            head++;
+            int nextHopCount = hopCounts[index] + 1;
+            if (nextHopCount > maxHopCount) {
+                continue;
+            }
+            NavVertex vertex = graph.getVertex(index);
+            int numArcs = vertex.getNumArcs();
+            for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+                NavArc arc = vertex.getArc(arcIndex);
+                int neighborIndex = arc.getToVertex().getIndex();
+                if (stamps[neighborIndex] != currentStamp) {
+                    stamps[neighborIndex] = currentStamp;
+                    hopCounts[neighborIndex] = nextHopCount;
+                    predecessors[neighborIndex] = arc;
+                    queue[tail] = neighborIndex;
+                    tail++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the distance to a vertex calculated by the most recent search.
+     * After an exhaustive search, this is the minimum distance from the
+     * starting point.
+     *
+     * @param vertex vertex to look up (member of the graph)
+     * @return distance (&ge;0) or +Infinity if the vertex wasn't reached
+     */
+    public float distance(NavVertex vertex) {
+        graph.validateMember(vertex);
+
+        if (!measuredDistances) {
+            throw new IllegalStateException("no distance search performed");
+        }
+        int index = vertex.getIndex();
+        if (index >= stamps.length || stamps[index] != currentStamp) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float result = distances[index];
+
+        return result;
+    }
+
+    /**
+     * Find the shortest path from one vertex to another, using Dijkstra's
+     * algorithm with early termination.
+     *
+     * @param startVertex starting point (member of the graph)
+     * @param goalVertex goal (member of the graph)
+     * @return new path (or null if the goal is unreachable)
+     */
+    public NavPath findPath(NavVertex startVertex, NavVertex goalVertex) {
+        NavPath result = findPath(startVertex, goalVertex, null);
+        return result;
+    }
+
+    /**
+     * Find the shortest path from one vertex to another, using A* with the
+     * specified heuristic.
+     *
+     * @param startVertex starting point (member of the graph)
+     * @param goalVertex goal (member of the graph)
+     * @param heuristic estimator of remaining cost (or null for Dijkstra's
+     * algorithm)
+     * @return new path (or null if the goal is unreachable)
+     */
+    public NavPath findPath(NavVertex startVertex, NavVertex goalVertex,
+            NavHeuristic heuristic) {
+        graph.validateMember(startVertex);
+        graph.validateMember(goalVertex);
+
+        origin = null;
+        search(startVertex, goalVertex, heuristic);
+        NavPath result = buildPath(startVertex, goalVertex);
+
+        return result;
+    }
+
+    /**
+     * Access the graph being searched.
+     *
+     * @return pre-existing instance
+     */
+    public NavGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Read the hop count of a vertex calculated by the most recent call to
+     * {@link #computeHops(java.util.Collection, int)}.
+     *
+     * @param vertex vertex to look up (member of the graph)
+     * @return number of hops (&ge;0) or -1 if the vertex wasn't reached
+     */
+    public int hopCount(NavVertex vertex) {
+        graph.validateMember(vertex);
+        if (measuredDistances) {
+            throw new IllegalStateException("no hop search performed");
+        }
+
+        int index = vertex.getIndex();
+        if (index >= stamps.length || stamps[index] != currentStamp) {
+            return -1;
+        }
+        int result = hopCounts[index];
+
+        return result;
+    }
+
+    /**
+     * Construct the shortest path to a vertex from the starting point of the
+     * most recent call to
+     * {@link #computeDistances(jme3utilities.navigation.NavVertex)}.
+     *
+     * @param goalVertex goal (member of the graph)
+     * @return new path (or null if the goal is unreachable)
+     */
+    public NavPath pathTo(NavVertex goalVertex) {
+        graph.validateMember(goalVertex);
+        if (origin == null) {
+            throw new IllegalStateException(
+                    "computeDistances() should be invoked first");
+        }
+
+        NavPath result = buildPath(origin, goalVertex);
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Construct a path by following predecessor arcs back from the goal.
+     *
+     * @param startVertex starting point of the search (not null)
+     * @param goalVertex goal (not null)
+     * @return new path (or null if the goal wasn't reached)
+     */
+    private NavPath buildPath(NavVertex startVertex, NavVertex goalVertex) {
+        assert startVertex != null;
+        assert goalVertex != null;
+
+        int goalIndex = goalVertex.getIndex();
+        if (stamps[goalIndex] != currentStamp) {
+            return null;
+        }
+
+        List<NavArc> arcList = new ArrayList<>(20);
+        NavVertex vertex = goalVertex;
+        while (vertex != startVertex) {
+            NavArc arc = predecessors[vertex.getIndex()];
+            assert arc != null : vertex;
+            arcList.add(arc);
+            vertex = arc.getFromVertex();
+        }
+        Collections.reverse(arcList);
+        NavPath result = new NavPath(startVertex, arcList);
+
+        return result;
+    }
+
+    /**
+     * Size the scratch arrays for the current graph and begin a new stamp.
+     */
+    private void prepare() {
+        int numVertices = graph.numVertices();
+        if (stamps.length < numVertices) {
+            distances = Arrays.copyOf(distances, numVertices);
+            predecessors = Arrays.copyOf(predecessors, numVertices);
+            stamps = Arrays.copyOf(stamps, numVertices);
+            hopCounts = new int[numVertices];
+            queue = new int[numVertices];
+            heap.ensureCapacity(numVertices);
+        }
+
+        currentStamp++;
+        if (currentStamp == 0) {
+            /*
+             * The stamp has wrapped around: invalidate all entries.
+             */
+            Arrays.fill(stamps, 0);
+            currentStamp = 1;
+        }
+    }
+
+    /**
+     * Perform a best-first search from the specified starting point.
+     *
+     * @param startVertex starting point (member of the graph)
+     * @param goalVertex goal (member of the graph) or null for an exhaustive
+     * search
+     * @param heuristic estimator of remaining cost (or null for Dijkstra's
+     * algorithm)
+     */
+    private void search(NavVertex startVertex, NavVertex goalVertex,
+            NavHeuristic heuristic) {
+        assert startVertex != null;
+        assert goalVertex != null || heuristic == null;
+
+        prepare();
+        measuredDistances = true;
+        int startIndex = startVertex.getIndex();
+        stamps[startIndex] = currentStamp;
+        distances[startIndex] = 0f;
+        predecessors[startIndex] = null;
+        heap.update(startIndex, 0f);
+
+        while (!heap.isEmpty()) {
+            int index = heap.removeMin();
+            NavVertex vertex = graph.getVertex(index);
+            if (vertex == goalVertex) {
+                break;
+            }
+            /*
+             * Relax each arc from the current vertex.
+             */
+            float baseDistance = distances[index];
+            int numArcs = vertex.getNumArcs();
+            for (int arcIndex = 0; arcIndex < numArcs; arcIndex++) {
+                NavArc arc = vertex.getArc(arcIndex);
+                NavVertex neighbor = arc.getToVertex();
+                int neighborIndex = neighbor.getIndex();
+                float newDistance = baseDistance + arc.getPathLength();
+                if (stamps[neighborIndex] != currentStamp
+                        || newDistance < distances[neighborIndex]) {
+                    stamps[neighborIndex] = currentStamp;
+                    distances[neighborIndex] = newDistance;
+                    predecessors[neighborIndex] = arc;
+                    float priority = newDistance;
+                    if (heuristic != null) {
+                        priority += heuristic.estimate(neighbor, goalVertex);
+                    }
+                    heap.update(neighborIndex, priority);
+                }
+            }
+        }
+
+        heap.clear();
+    }
+}
\ No newline at end of file
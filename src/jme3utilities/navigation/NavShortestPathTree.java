@@ -0,0 +1,172 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Shortest-path tree from a single source vertex, kept up to date as its
+ * navigation graph changes.
+ * <p>
+ * The tree listens to its graph and repairs itself in the style of the
+ * Ramalingam-Reps algorithm: removing an arc which isn't in the tree costs
+ * nothing; removing a tree arc recomputes only the subtree below it, seeded
+ * from the arcs entering that subtree; and adding an arc propagates any
+ * improvement it offers. Like NavGraph, this class isn't thread-safe.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class NavShortestPathTree {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavShortestPathTree.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * forward shortest-path tree rooted at the source (not null)
+     */
+    final private DynamicShortestPaths paths;
+    /**
+     * graph being searched (not null)
+     */
+    final private NavGraph graph;
+    /**
+     * source vertex (member of the graph)
+     */
+    private NavVertex source;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a tree from the specified source and register it as a
+     * listener.
+     *
+     * @param graph graph to search (not null)
+     * @param source source vertex (member of the graph)
+     */
+    public NavShortestPathTree(NavGraph graph, NavVertex source) {
+        Validate.nonNull(graph, "graph");
+
+        this.graph = graph;
+        paths = new DynamicShortestPaths(graph, false);
+        setSource(source);
+        paths.attach();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Unregister this tree from its graph. After detaching, the tree should
+     * no longer be used.
+     */
+    public void detach() {
+        paths.detach();
+    }
+
+    /**
+     * Read the path length from the source to the specified vertex.
+     *
+     * @param vertex (member of the graph)
+     * @return path length (&ge;0) or +Infinity if unreachable
+     */
+    public float distance(NavVertex vertex) {
+        graph.validateMember(vertex);
+        float result = paths.distance(vertex.getIndex());
+        return result;
+    }
+
+    /**
+     * Access the source vertex.
+     *
+     * @return the pre-existing member
+     */
+    public NavVertex getSource() {
+        return source;
+    }
+
+    /**
+     * Construct a shortest path from the source to the specified vertex.
+     *
+     * @param goalVertex goal (member of the graph)
+     * @return new path (or null if the goal is unreachable)
+     */
+    public NavPath pathTo(NavVertex goalVertex) {
+        graph.validateMember(goalVertex);
+
+        int goalIndex = goalVertex.getIndex();
+        if (paths.distance(goalIndex) == Float.POSITIVE_INFINITY) {
+            return null;
+        }
+        List<NavArc> arcList = new ArrayList<>(20);
+        NavVertex vertex = goalVertex;
+        while (vertex != source) {
+            NavArc arc = paths.treeArc(vertex.getIndex());
+            arcList.add(arc);
+            vertex = arc.getFromVertex();
+        }
+        Collections.reverse(arcList);
+        NavPath result = new NavPath(source, arcList);
+
+        return result;
+    }
+
+    /**
+     * Find the last arc of a shortest path from the source to the specified
+     * vertex.
+     *
+     * @param vertex (member of the graph)
+     * @return the pre-existing arc, or null if the vertex is the source or
+     * unreachable
+     */
+    public NavArc predecessor(NavVertex vertex) {
+        graph.validateMember(vertex);
+        NavArc result = paths.treeArc(vertex.getIndex());
+        return result;
+    }
+
+    /**
+     * Alter the source and recompute the entire tree.
+     *
+     * @param newSource source vertex (member of the graph)
+     */
+    public final void setSource(NavVertex newSource) {
+        graph.validateMember(newSource);
+
+        source = newSource;
+        List<NavVertex> roots = new ArrayList<>(1);
+        roots.add(newSource);
+        paths.setRoots(roots);
+    }
+}
\ No newline at end of file
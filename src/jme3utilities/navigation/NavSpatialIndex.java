@@ -0,0 +1,773 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.math.Spline3f;
+
+/**
+ * Uniform-grid spatial index over the vertices and arc segments of a
+ * navigation graph, for proximity queries. The grid partitions the X-Z plane
+ * into square columns; distances are measured in three dimensions.
+ * <p>
+ * Cells are stored in an open-addressing hash table keyed by primitive longs,
+ * so queries don't allocate (aside from their results). Each arc segment is
+ * added to exactly the cells its X-Z projection crosses. Per-arc data are
+ * kept in arrays indexed by arc index, mirroring the graph's arc list.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+class NavSpatialIndex {
+    // *************************************************************************
+    // constants
+
+    /**
+     * initial capacity of the cell table (power of 2)
+     */
+    final private static int initialTableSize = 64;
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavSpatialIndex.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * stamp of the last findArcs() query to report each arc, indexed by arc
+     * index
+     */
+    private int[] arcStamps = new int[16];
+    /**
+     * cells of the hash table (null where unused)
+     */
+    private Cell[] cells = new Cell[initialTableSize];
+    /**
+     * width of each grid column (in world units, &gt;0)
+     */
+    final private float cellSize;
+    /**
+     * number of indexed arcs (&ge;0)
+     */
+    private int numArcs = 0;
+    /**
+     * number of cells in the hash table (&ge;0)
+     */
+    private int numCells = 0;
+    /**
+     * stamp of the most recent findArcs() query
+     */
+    private int queryStamp = 0;
+    /**
+     * range of X cell coordinates in use (min &gt; max if the index is empty)
+     */
+    private int minCellX = Integer.MAX_VALUE, maxCellX = Integer.MIN_VALUE;
+    /**
+     * range of Z cell coordinates in use (min &gt; max if the index is empty)
+     */
+    private int minCellZ = Integer.MAX_VALUE, maxCellZ = Integer.MIN_VALUE;
+    /**
+     * scratch array for the cells of a ring (only the 1st N elements are
+     * valid, where N is the value returned by gatherRing())
+     */
+    private Cell[] ringCells = new Cell[8];
+    /**
+     * keys of the hash table, parallel to cells
+     */
+    private long[] keys = new long[initialTableSize];
+    /**
+     * segments of each indexed arc, indexed by arc index (only the 1st
+     * numArcs elements are valid)
+     */
+    private Segment[][] arcSegments = new Segment[16][];
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty index with the specified column width.
+     *
+     * @param cellSize width of each grid column (in world units, &gt;0)
+     */
+    NavSpatialIndex(float cellSize) {
+        assert cellSize > 0f : cellSize;
+        this.cellSize = cellSize;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add an arc to this index.
+     *
+     * @param arc arc to add (not null, not already indexed, index equal to
+     * the number of arcs already indexed)
+     */
+    void add(NavArc arc) {
+        assert arc.getIndex() == numArcs : arc.getIndex();
+
+        Spline3f path = arc.getPath();
+        int numPoints = path.numControlPoints();
+        Segment[] segments = new Segment[numPoints - 1];
+        Vector3f start = path.getControlPoint(0, null);
+        Vector3f end = new Vector3f();
+        float pathDistance = 0f;
+        for (int index = 1; index < numPoints; index++) {
+            path.getControlPoint(index, end);
+            Segment segment = new Segment(arc, pathDistance, start, end);
+            segments[index - 1] = segment;
+            pathDistance += segment.length;
+            traverse(segment, true);
+            start.set(end);
+        }
+
+        if (numArcs == arcSegments.length) {
+            int newLength = 2 * numArcs;
+            arcSegments = Arrays.copyOf(arcSegments, newLength);
+            arcStamps = Arrays.copyOf(arcStamps, newLength);
+        }
+        arcSegments[numArcs] = segments;
+        numArcs++;
+    }
+
+    /**
+     * Add a vertex to this index.
+     *
+     * @param vertex vertex to add (not null, not already indexed)
+     */
+    void add(NavVertex vertex) {
+        Vector3f location = vertex.getLocation();
+        int cellX = cellCoordinate(location.x);
+        int cellZ = cellCoordinate(location.z);
+        Cell cell = obtainCell(cellX, cellZ);
+        cell.vertices.add(vertex);
+        cell.vertexLocations.add(location);
+    }
+
+    /**
+     * Find all arcs with some part of their paths within the specified
+     * distance of a location.
+     *
+     * @param center query location (not null, unaffected)
+     * @param radius search radius (in world units, &ge;0)
+     * @param storeResult list to add arcs to (not null)
+     */
+    void findArcs(Vector3f center, float radius, List<NavArc> storeResult) {
+        int x0 = Math.max(cellCoordinate(center.x - radius), minCellX);
+        int x1 = Math.min(cellCoordinate(center.x + radius), maxCellX);
+        int z0 = Math.max(cellCoordinate(center.z - radius), minCellZ);
+        int z1 = Math.min(cellCoordinate(center.z + radius), maxCellZ);
+        float radiusSquared = radius * radius;
+        ++queryStamp;
+        if (queryStamp == 0) {
+            /*
+             * The stamp wrapped around, so old stamps might match.
+             */
+            Arrays.fill(arcStamps, 0);
+            queryStamp = 1;
+        }
+
+        for (int cellX = x0; cellX <= x1; cellX++) {
+            for (int cellZ = z0; cellZ <= z1; cellZ++) {
+                Cell cell = findCell(cellX, cellZ);
+                if (cell == null) {
+                    continue;
+                }
+                int numSegments = cell.segments.size();
+                for (int index = 0; index < numSegments; index++) {
+                    Segment segment = cell.segments.get(index);
+                    int arcIndex = segment.arc.getIndex();
+                    if (arcStamps[arcIndex] == queryStamp) {
+                        continue;
+                    }
+                    float fraction = segment.closestFraction(center);
+                    float dsq = segment.distanceSquared(center, fraction);
+                    if (dsq <= radiusSquared) {
+                        arcStamps[arcIndex] = queryStamp;
+                        storeResult.add(segment.arc);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the location on an arc path nearest to the specified location.
+     *
+     * @param location query location (not null, unaffected)
+     * @return new instance (or null if no arcs are indexed)
+     */
+    NavLocation findNearestArc(Vector3f location) {
+        int queryX = cellCoordinate(location.x);
+        int queryZ = cellCoordinate(location.z);
+        int maxRing = maxRing(queryX, queryZ);
+
+        Segment bestSegment = null;
+        float bestFraction = 0f;
+        float bestDsq = Float.POSITIVE_INFINITY;
+        for (int ring = minRing(queryX, queryZ); ring <= maxRing; ring++) {
+            float clearance = (ring - 1) * cellSize;
+            if (clearance > 0f && clearance * clearance >= bestDsq) {
+                break;
+            }
+            int numRingCells = gatherRing(queryX, queryZ, ring);
+            for (int ringIndex = 0; ringIndex < numRingCells; ringIndex++) {
+                Cell cell = ringCells[ringIndex];
+                int numSegments = cell.segments.size();
+                for (int index = 0; index < numSegments; index++) {
+                    Segment segment = cell.segments.get(index);
+                    float fraction = segment.closestFraction(location);
+                    float dsq = segment.distanceSquared(location,
+                            fraction);
+                    if (dsq < bestDsq) {
+                        bestDsq = dsq;
+                        bestSegment = segment;
+                        bestFraction = fraction;
+                    }
+                }
+            }
+        }
+
+        if (bestSegment == null) {
+            return null;
+        }
+        Vector3f closest = bestSegment.interpolate(bestFraction);
+        float pathDistance = bestSegment.startDistance
+                + bestFraction * bestSegment.length;
+        float distance = (float) Math.sqrt(bestDsq);
+        NavLocation result = new NavLocation(bestSegment.arc, pathDistance,
+                closest, distance);
+
+        return result;
+    }
+
+    /**
+     * Find the vertex nearest to the specified location.
+     *
+     * @param location query location (not null, unaffected)
+     * @return pre-existing vertex (or null if no vertices are indexed)
+     */
+    NavVertex findNearestVertex(Vector3f location) {
+        int queryX = cellCoordinate(location.x);
+        int queryZ = cellCoordinate(location.z);
+        int maxRing = maxRing(queryX, queryZ);
+
+        NavVertex bestVertex = null;
+        float bestDsq = Float.POSITIVE_INFINITY;
+        for (int ring = minRing(queryX, queryZ); ring <= maxRing; ring++) {
+            float clearance = (ring - 1) * cellSize;
+            if (clearance > 0f && clearance * clearance >= bestDsq) {
+                break;
+            }
+            int numRingCells = gatherRing(queryX, queryZ, ring);
+            for (int ringIndex = 0; ringIndex < numRingCells; ringIndex++) {
+                Cell cell = ringCells[ringIndex];
+                int numVertices = cell.vertices.size();
+                for (int index = 0; index < numVertices; index++) {
+                    Vector3f vertexLocation =
+                            cell.vertexLocations.get(index);
+                    float dsq = vertexLocation.distanceSquared(location);
+                    if (dsq < bestDsq) {
+                        bestDsq = dsq;
+                        bestVertex = cell.vertices.get(index);
+                    }
+                }
+            }
+        }
+
+        return bestVertex;
+    }
+
+    /**
+     * Find all vertices within the specified distance of a location.
+     *
+     * @param center query location (not null, unaffected)
+     * @param radius search radius (in world units, &ge;0)
+     * @param storeResult list to add vertices to (not null)
+     */
+    void findVertices(Vector3f center, float radius,
+            List<NavVertex> storeResult) {
+        int x0 = Math.max(cellCoordinate(center.x - radius), minCellX);
+        int x1 = Math.min(cellCoordinate(center.x + radius), maxCellX);
+        int z0 = Math.max(cellCoordinate(center.z - radius), minCellZ);
+        int z1 = Math.min(cellCoordinate(center.z + radius), maxCellZ);
+        float radiusSquared = radius * radius;
+
+        for (int cellX = x0; cellX <= x1; cellX++) {
+            for (int cellZ = z0; cellZ <= z1; cellZ++) {
+                Cell cell = findCell(cellX, cellZ);
+                if (cell == null) {
+                    continue;
+                }
+                int numVertices = cell.vertices.size();
+                for (int index = 0; index < numVertices; index++) {
+                    Vector3f location = cell.vertexLocations.get(index);
+                    if (location.distanceSquared(center) <= radiusSquared) {
+                        storeResult.add(cell.vertices.get(index));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove an arc from this index. The last indexed arc takes its place,
+     * mirroring the removal from the graph's arc list, so this must be
+     * invoked before the graph re-indexes its arcs.
+     *
+     * @param arc arc to remove (not null, indexed)
+     */
+    void remove(NavArc arc) {
+        int index = arc.getIndex();
+        assert index >= 0 && index < numArcs : index;
+        Segment[] segments = arcSegments[index];
+        assert segments[0].arc == arc : arc;
+
+        for (Segment segment : segments) {
+            traverse(segment, false);
+        }
+
+        numArcs--;
+        arcSegments[index] = arcSegments[numArcs];
+        arcSegments[numArcs] = null;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Calculate the grid coordinate of the column containing the specified
+     * world coordinate.
+     *
+     * @param worldCoordinate X or Z world coordinate
+     * @return cell coordinate
+     */
+    private int cellCoordinate(float worldCoordinate) {
+        int result = (int) Math.floor(worldCoordinate / cellSize);
+        return result;
+    }
+
+    /**
+     * Find the cell with the specified coordinates.
+     *
+     * @param cellX X cell coordinate
+     * @param cellZ Z cell coordinate
+     * @return pre-existing instance (or null if not found)
+     */
+    private Cell findCell(int cellX, int cellZ) {
+        long key = key(cellX, cellZ);
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            Cell cell = cells[slot];
+            if (cell == null) {
+                return null;
+            } else if (keys[slot] == key) {
+                return cell;
+            }
+        }
+    }
+
+    /**
+     * Gather the cells in use in the specified square ring around a query
+     * cell.
+     *
+     * @param queryX X cell coordinate of the query
+     * @param queryZ Z cell coordinate of the query
+     * @param ring Chebyshev distance from the query cell (&ge;0)
+     * @return number of cells gathered into ringCells (&ge;0)
+     */
+    private int gatherRing(int queryX, int queryZ, int ring) {
+        int count = 0;
+        int x0 = Math.max(queryX - ring, minCellX);
+        int x1 = Math.min(queryX + ring, maxCellX);
+        for (int cellX = x0; cellX <= x1; cellX++) {
+            int zStart, zEnd, zStep;
+            if (cellX == queryX - ring || cellX == queryX + ring) {
+                /*
+                 * a side of the ring: every cell in range
+                 */
+                zStart = Math.max(queryZ - ring, minCellZ);
+                zEnd = Math.min(queryZ + ring, maxCellZ);
+                zStep = 1;
+            } else {
+                /*
+                 * the interior of the ring: only the top and bottom cells
+                 */
+                zStart = queryZ - ring;
+                zEnd = queryZ + ring;
+                zStep = 2 * ring;
+            }
+            for (int cellZ = zStart; cellZ <= zEnd; cellZ += zStep) {
+                if (cellZ < minCellZ || cellZ > maxCellZ) {
+                    continue;
+                }
+                Cell cell = findCell(cellX, cellZ);
+                if (cell != null) {
+                    if (count == ringCells.length) {
+                        ringCells = Arrays.copyOf(ringCells, 2 * count);
+                    }
+                    ringCells[count] = cell;
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Calculate the hash-table slot for the specified key.
+     *
+     * @param key cell key
+     * @return hash value
+     */
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        int result = (int) (mixed >>> 32) ^ (int) mixed;
+
+        return result;
+    }
+
+    /**
+     * Pack a pair of cell coordinates into a key.
+     *
+     * @param cellX X cell coordinate
+     * @param cellZ Z cell coordinate
+     * @return key value
+     */
+    private static long key(int cellX, int cellZ) {
+        long result = ((long) cellX << 32) | (cellZ & 0xffffffffL);
+        return result;
+    }
+
+    /**
+     * Calculate the ring beyond which no cells are in use.
+     *
+     * @param queryX X cell coordinate of the query
+     * @param queryZ Z cell coordinate of the query
+     * @return ring number (or -1 if the index is empty)
+     */
+    private int maxRing(int queryX, int queryZ) {
+        if (minCellX > maxCellX) {
+            return -1;
+        }
+        long dx = Math.max(Math.abs((long) queryX - minCellX),
+                Math.abs((long) queryX - maxCellX));
+        long dz = Math.max(Math.abs((long) queryZ - minCellZ),
+                Math.abs((long) queryZ - maxCellZ));
+        int result = (int) Math.min(Math.max(dx, dz), Integer.MAX_VALUE - 1);
+
+        return result;
+    }
+
+    /**
+     * Calculate the innermost ring which might contain cells in use.
+     *
+     * @param queryX X cell coordinate of the query
+     * @param queryZ Z cell coordinate of the query
+     * @return ring number (&ge;0)
+     */
+    private int minRing(int queryX, int queryZ) {
+        long dx = Math.max(0L, Math.max((long) minCellX - queryX,
+                (long) queryX - maxCellX));
+        long dz = Math.max(0L, Math.max((long) minCellZ - queryZ,
+                (long) queryZ - maxCellZ));
+        int result = (int) Math.min(Math.max(dx, dz), Integer.MAX_VALUE - 1);
+
+        return result;
+    }
+
+    /**
+     * Find or create the cell with the specified coordinates.
+     *
+     * @param cellX X cell coordinate
+     * @param cellZ Z cell coordinate
+     * @return pre-existing or new instance
+     */
+    private Cell obtainCell(int cellX, int cellZ) {
+        Cell result = findCell(cellX, cellZ);
+        if (result != null) {
+            return result;
+        }
+
+        if (2 * (numCells + 1) > keys.length) {
+            resizeTable(2 * keys.length);
+        }
+        result = new Cell();
+        long key = key(cellX, cellZ);
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (cells[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        cells[slot] = result;
+        numCells++;
+
+        minCellX = Math.min(minCellX, cellX);
+        maxCellX = Math.max(maxCellX, cellX);
+        minCellZ = Math.min(minCellZ, cellZ);
+        maxCellZ = Math.max(maxCellZ, cellZ);
+
+        return result;
+    }
+
+    /**
+     * Rehash all cells into a larger table.
+     *
+     * @param newSize new table size (power of 2)
+     */
+    private void resizeTable(int newSize) {
+        Cell[] oldCells = cells;
+        long[] oldKeys = keys;
+        cells = new Cell[newSize];
+        keys = new long[newSize];
+        int mask = newSize - 1;
+        for (int oldSlot = 0; oldSlot < oldCells.length; oldSlot++) {
+            Cell cell = oldCells[oldSlot];
+            if (cell != null) {
+                long key = oldKeys[oldSlot];
+                int slot = hash(key) & mask;
+                while (cells[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                cells[slot] = cell;
+            }
+        }
+    }
+
+    /**
+     * Add a segment to (or remove it from) every cell its X-Z projection
+     * crosses, walking the grid with a supercover DDA: where the segment
+     * passes exactly through a grid corner, both cells beside the corner are
+     * included.
+     *
+     * @param segment segment to process (not null)
+     * @param add true to add the segment, false to remove it
+     */
+    private void traverse(Segment segment, boolean add) {
+        int cellX = cellCoordinate(segment.x0);
+        int cellZ = cellCoordinate(segment.z0);
+        int endX = cellCoordinate(segment.x1);
+        int endZ = cellCoordinate(segment.z1);
+        float dx = segment.x1 - segment.x0;
+        float dz = segment.z1 - segment.z0;
+        int stepX = Integer.signum(endX - cellX);
+        int stepZ = Integer.signum(endZ - cellZ);
+        /*
+         * tMax = parameter value at the next grid line crossed on each axis,
+         * tDelta = parameter increment between grid lines on each axis
+         */
+        float tMaxX = Float.POSITIVE_INFINITY;
+        float tDeltaX = Float.POSITIVE_INFINITY;
+        if (stepX != 0) {
+            float boundary = (stepX > 0) ? cellX + 1 : cellX;
+            tMaxX = (boundary * cellSize - segment.x0) / dx;
+            tDeltaX = cellSize / Math.abs(dx);
+        }
+        float tMaxZ = Float.POSITIVE_INFINITY;
+        float tDeltaZ = Float.POSITIVE_INFINITY;
+        if (stepZ != 0) {
+            float boundary = (stepZ > 0) ? cellZ + 1 : cellZ;
+            tMaxZ = (boundary * cellSize - segment.z0) / dz;
+            tDeltaZ = cellSize / Math.abs(dz);
+        }
+
+        visit(cellX, cellZ, segment, add);
+        /*
+         * Count the remaining steps so that rounding can neither overshoot
+         * the end cell nor loop forever.
+         */
+        int remainingX = Math.abs(endX - cellX);
+        int remainingZ = Math.abs(endZ - cellZ);
+        while (remainingX > 0 || remainingZ > 0) {
+            if (remainingZ == 0 || remainingX > 0 && tMaxX < tMaxZ) {
+                cellX += stepX;
+                tMaxX += tDeltaX;
+                remainingX--;
+            } else if (remainingX == 0 || tMaxZ < tMaxX) {
+                cellZ += stepZ;
+                tMaxZ += tDeltaZ;
+                remainingZ--;
+            } else {
+                /*
+                 * The segment passes through a corner: include both cells
+                 * beside it.
+                 */
+                visit(cellX + stepX, cellZ, segment, add);
+                visit(cellX, cellZ + stepZ, segment, add);
+                cellX += stepX;
+                cellZ += stepZ;
+                tMaxX += tDeltaX;
+                tMaxZ += tDeltaZ;
+                remainingX--;
+                remainingZ--;
+            }
+            visit(cellX, cellZ, segment, add);
+        }
+    }
+
+    /**
+     * Add a segment to (or remove it from) the cell with the specified
+     * coordinates.
+     *
+     * @param cellX X cell coordinate
+     * @param cellZ Z cell coordinate
+     * @param segment segment to process (not null)
+     * @param add true to add the segment, false to remove it
+     */
+    private void visit(int cellX, int cellZ, Segment segment, boolean add) {
+        if (add) {
+            Cell cell = obtainCell(cellX, cellZ);
+            cell.segments.add(segment);
+        } else {
+            Cell cell = findCell(cellX, cellZ);
+            boolean success = cell.segments.remove(segment);
+            assert success;
+        }
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Contents of a single grid column.
+     */
+    private static class Cell {
+        /**
+         * straight segments of arc paths which cross this column
+         */
+        final List<Segment> segments = new ArrayList<>(4);
+        /**
+         * locations of the vertices, parallel to the vertices list
+         */
+        final List<Vector3f> vertexLocations = new ArrayList<>(2);
+        /**
+         * vertices located in this column
+         */
+        final List<NavVertex> vertices = new ArrayList<>(2);
+    }
+
+    /**
+     * A straight segment of an arc's path.
+     */
+    private static class Segment {
+        /**
+         * arc whose path contains this segment
+         */
+        final NavArc arc;
+        /**
+         * length of this segment (in world units, &ge;0)
+         */
+        final float length;
+        /**
+         * distance along the arc's path to the start of this segment
+         */
+        final float startDistance;
+        /**
+         * world coordinates of the start
+         */
+        final float x0, y0, z0;
+        /**
+         * world coordinates of the end
+         */
+        final float x1, y1, z1;
+
+        /**
+         * Instantiate a segment.
+         *
+         * @param arc arc whose path contains the segment (not null)
+         * @param startDistance distance along the path to the start (&ge;0)
+         * @param start location of the start (not null, unaffected)
+         * @param end location of the end (not null, unaffected)
+         */
+        Segment(NavArc arc, float startDistance, Vector3f start,
+                Vector3f end) {
+            this.arc = arc;
+            this.startDistance = startDistance;
+            x0 = start.x;
+            y0 = start.y;
+            z0 = start.z;
+            x1 = end.x;
+            y1 = end.y;
+            z1 = end.z;
+            length = start.distance(end);
+        }
+
+        /**
+         * Calculate the fraction of the way along this segment of the point
+         * closest to a query location.
+         *
+         * @param location query location (not null, unaffected)
+         * @return fraction (&ge;0, &le;1)
+         */
+        float closestFraction(Vector3f location) {
+            float dx = x1 - x0;
+            float dy = y1 - y0;
+            float dz = z1 - z0;
+            float lengthSquared = dx * dx + dy * dy + dz * dz;
+            if (lengthSquared == 0f) {
+                return 0f;
+            }
+            float dot = (location.x - x0) * dx + (location.y - y0) * dy
+                    + (location.z - z0) * dz;
+            float result = dot / lengthSquared;
+            result = Math.max(0f, Math.min(1f, result));
+
+            return result;
+        }
+
+        /**
+         * Calculate the squared distance from a query location to the point at
+         * the specified fraction along this segment.
+         *
+         * @param location query location (not null, unaffected)
+         * @param fraction (&ge;0, &le;1)
+         * @return squared distance (&ge;0)
+         */
+        float distanceSquared(Vector3f location, float fraction) {
+            float dx = x0 + fraction * (x1 - x0) - location.x;
+            float dy = y0 + fraction * (y1 - y0) - location.y;
+            float dz = z0 + fraction * (z1 - z0) - location.z;
+            float result = dx * dx + dy * dy + dz * dz;
+
+            return result;
+        }
+
+        /**
+         * Calculate the location at the specified fraction along this
+         * segment.
+         *
+         * @param fraction (&ge;0, &le;1)
+         * @return new vector
+         */
+        Vector3f interpolate(float fraction) {
+            Vector3f result = new Vector3f(x0 + fraction * (x1 - x0),
+                    y0 + fraction * (y1 - y0), z0 + fraction * (z1 - z0));
+            return result;
+        }
+    }
+}
\ No newline at end of file
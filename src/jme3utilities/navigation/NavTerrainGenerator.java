@@ -0,0 +1,655 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import com.jme3.math.Vector3f;
+import com.jme3.terrain.heightmap.AbstractHeightMap;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Generator for navigation graphs which cover terrain described by a square
+ * height map.
+ * <p>
+ * Each height sample becomes a candidate vertex, linked to its 8 neighbors
+ * wherever the slope between them doesn't exceed a limit. The links are
+ * computed tile-by-tile in a fork-join pool; links which cross a tile border
+ * are computed by both tiles from the shared height array, so the tiles stitch
+ * together without a separate pass. Samples which merely continue a straight
+ * line (exactly 2 links, in opposite directions) are then folded into jointed
+ * arcs, and samples without any links are omitted.
+ * <p>
+ * Chain folding alone is lossless but seldom reduces much: on open terrain
+ * nearly every sample has 8 links, so nearly every sample remains a vertex
+ * with 8 arcs. For a real reduction, specify a decimation stride greater
+ * than 1. Then every "open" sample (one which, like all 8 of its neighbors,
+ * has all 8 links) is dropped unless it lies on the lattice of every
+ * stride-th column and row. Arcs run straight through dropped samples, which
+ * become joints, so paths still follow the terrain heights exactly, but
+ * agents can turn only at the remaining vertices. As a result, shortest paths
+ * through open regions may be slightly longer than on the full grid. Samples
+ * near obstacles and steep slopes keep full resolution.
+ * <p>
+ * The terrain is centered on the origin, like a TerrainQuad: the sample in
+ * column c, row r lies at X=(c - (size-1)/2)*spacing, Z=(r -
+ * (size-1)/2)*spacing.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+final public class NavTerrainGenerator {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of link directions per sample
+     */
+    final private static int numDirections = 8;
+    /**
+     * width and depth of each tile (in samples)
+     */
+    final private static int tileSize = 64;
+    /**
+     * column offset for each link direction
+     */
+    final private static int[] columnSteps = {1, 1, 0, -1, -1, -1, 0, 1};
+    /**
+     * row offset for each link direction
+     */
+    final private static int[] rowSteps = {0, 1, 1, 1, 0, -1, -1, -1};
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(NavTerrainGenerator.class.getName());
+    // *************************************************************************
+    // fields
+    /**
+     * arcs emitted by each tile, indexed by tile
+     */
+    final private ArcBatch[] batches;
+    /**
+     * maximum rise per unit of horizontal distance (&ge;0)
+     */
+    final private float maxSlope;
+    /**
+     * distance between adjacent samples (in world units, &gt;0)
+     */
+    final private float spacing;
+    /**
+     * height of each sample, indexed by row * size + column
+     */
+    final private float[] heights;
+    /**
+     * number of samples on each side of the height map (&ge;1)
+     */
+    final private int size;
+    /**
+     * spacing of the lattice of open samples retained as vertices (in
+     * samples, &ge;1, 1 means no decimation)
+     */
+    final private int stride;
+    /**
+     * number of tiles in each row of tiles (&ge;1)
+     */
+    final private int tilesPerRow;
+    /**
+     * bitmask of traversable link directions, indexed by sample
+     */
+    final private int[] links;
+    /**
+     * vertex index of each sample, or -1 if the sample is not a vertex
+     */
+    final private int[] vertexIndices;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a generator for the specified height map.
+     *
+     * @param heights height of each sample (not null, length=size*size)
+     * @param size number of samples on each side (&ge;1)
+     * @param spacing distance between adjacent samples (&gt;0)
+     * @param maxSlope maximum rise per unit of horizontal distance (&ge;0)
+     * @param stride spacing of the lattice of open samples retained as
+     * vertices (&ge;1)
+     */
+    private NavTerrainGenerator(float[] heights, int size, float spacing,
+            float maxSlope, int stride) {
+        assert heights.length == size * size : size;
+        assert spacing > 0f : spacing;
+        assert maxSlope >= 0f : maxSlope;
+        assert stride >= 1 : stride;
+
+        this.heights = heights;
+        this.size = size;
+        this.spacing = spacing;
+        this.maxSlope = maxSlope;
+        this.stride = stride;
+
+        tilesPerRow = (size + tileSize - 1) / tileSize;
+        batches = new ArcBatch[tilesPerRow * tilesPerRow];
+        links = new int[size * size];
+        vertexIndices = new int[size * size];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Generate a navigation graph for the specified height map, using a
+     * temporary fork-join pool with one worker per available processor.
+     *
+     * @param heightMap height map to cover (not null, unaffected)
+     * @param spacing distance between adjacent samples (in world units, &gt;0)
+     * @param maxSlope maximum rise per unit of horizontal distance (&ge;0)
+     * @return new graph
+     */
+    public static NavGraph generate(AbstractHeightMap heightMap,
+            float spacing, float maxSlope) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            NavGraph result = generate(heightMap, spacing, maxSlope, pool);
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Generate a navigation graph for the specified height map, using the
+     * specified fork-join pool.
+     *
+     * @param heightMap height map to cover (not null, unaffected)
+     * @param spacing distance between adjacent samples (in world units, &gt;0)
+     * @param maxSlope maximum rise per unit of horizontal distance (&ge;0)
+     * @param pool pool to execute the tiles (not null)
+     * @return new graph
+     */
+    public static NavGraph generate(AbstractHeightMap heightMap,
+            float spacing, float maxSlope, ForkJoinPool pool) {
+        Validate.nonNull(heightMap, "height map");
+
+        float[] heights = heightMap.getHeightMap();
+        int size = heightMap.getSize();
+        NavGraph result = generate(heights, size, spacing, maxSlope, pool);
+
+        return result;
+    }
+
+    /**
+     * Generate a navigation graph for the specified height map, using the
+     * specified fork-join pool, with the specified decimation of open
+     * regions.
+     *
+     * @param heightMap height map to cover (not null, unaffected)
+     * @param spacing distance between adjacent samples (in world units, &gt;0)
+     * @param maxSlope maximum rise per unit of horizontal distance (&ge;0)
+     * @param stride spacing of the lattice of open samples retained as
+     * vertices (in samples, &ge;1, 1 means no decimation)
+     * @param pool pool to execute the tiles (not null)
+     * @return new graph
+     */
+    public static NavGraph generate(AbstractHeightMap heightMap,
+            float spacing, float maxSlope, int stride, ForkJoinPool pool) {
+        Validate.nonNull(heightMap, "height map");
+
+        float[] heights = heightMap.getHeightMap();
+        int size = heightMap.getSize();
+        NavGraph result =
+                generate(heights, size, spacing, maxSlope, stride, pool);
+
+        return result;
+    }
+
+    /**
+     * Generate a navigation graph for the specified array of heights, using
+     * the specified fork-join pool, without decimation.
+     *
+     * @param heights height of each sample, indexed by row * size + column
+     * (not null, length=size*size, unaffected)
+     * @param size number of samples on each side (&ge;1)
+     * @param spacing distance between adjacent samples (in world units, &gt;0)
+     * @param maxSlope maximum rise per unit of horizontal distance (&ge;0)
+     * @param pool pool to execute the tiles (not null)
+     * @return new graph
+     */
+    public static NavGraph generate(float[] heights, int size, float spacing,
+            float maxSlope, ForkJoinPool pool) {
+        NavGraph result = generate(heights, size, spacing, maxSlope, 1, pool);
+        return result;
+    }
+
+    /**
+     * Generate a navigation graph for the specified array of heights, using
+     * the specified fork-join pool, with the specified decimation of open
+     * regions.
+     *
+     * @param heights height of each sample, indexed by row * size + column
+     * (not null, length=size*size, unaffected)
+     * @param size number of samples on each side (&ge;1)
+     * @param spacing distance between adjacent samples (in world units, &gt;0)
+     * @param maxSlope maximum rise per unit of horizontal distance (&ge;0)
+     * @param stride spacing of the lattice of open samples retained as
+     * vertices (in samples, &ge;1, 1 means no decimation)
+     * @param pool pool to execute the tiles (not null)
+     * @return new graph
+     */
+    public static NavGraph generate(float[] heights, int size, float spacing,
+            float maxSlope, int stride, ForkJoinPool pool) {
+        Validate.nonNull(heights, "heights");
+        Validate.positive(size, "size");
+        Validate.positive(spacing, "spacing");
+        Validate.nonNegative(maxSlope, "max slope");
+        Validate.positive(stride, "stride");
+        Validate.nonNull(pool, "pool");
+        if (heights.length != size * size) {
+            logger.log(Level.SEVERE, "length={0} size={1}",
+                    new Object[]{heights.length, size});
+            throw new IllegalArgumentException(
+                    "heights should have size*size elements");
+        }
+
+        NavTerrainGenerator generator = new NavTerrainGenerator(heights, size,
+                spacing, maxSlope, stride);
+        int numTiles = generator.batches.length;
+        pool.invoke(new TileTask(generator, false, 0, numTiles));
+        int numVertices = generator.assignVertices();
+        pool.invoke(new TileTask(generator, true, 0, numTiles));
+        NavGraph result = generator.assemble(numVertices);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a graph from the assigned vertices and the emitted arcs, in tile
+     * order.
+     *
+     * @param numVertices number of vertices assigned (&ge;0)
+     * @return new graph
+     */
+    private NavGraph assemble(int numVertices) {
+        int numArcs = 0;
+        for (ArcBatch batch : batches) {
+            numArcs += batch.numArcs;
+        }
+
+        NavGraph result = new NavGraph(spacing);
+        result.ensureCapacity(numVertices, numArcs);
+        NavVertex[] vertices = new NavVertex[numVertices];
+        Vector3f location = new Vector3f();
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                int sample = row * size + column;
+                int vertexIndex = vertexIndices[sample];
+                if (vertexIndex >= 0) {
+                    locate(sample, location);
+                    String description = column + "," + row;
+                    vertices[vertexIndex] =
+                            result.addVertex(description, location);
+                }
+            }
+        }
+
+        for (ArcBatch batch : batches) {
+            int jointOffset = 0;
+            for (int arcIndex = 0; arcIndex < batch.numArcs; arcIndex++) {
+                NavVertex start = vertices[batch.starts[arcIndex]];
+                NavVertex end = vertices[batch.ends[arcIndex]];
+                int numJoints = batch.jointCounts[arcIndex];
+                Vector3f[] joints = null;
+                if (numJoints > 0) {
+                    joints = new Vector3f[numJoints];
+                    for (int jointIndex = 0; jointIndex < numJoints;
+                            jointIndex++) {
+                        int sample = batch.jointSamples[jointOffset];
+                        joints[jointIndex] = locate(sample, null);
+                        jointOffset++;
+                    }
+                }
+                result.addArcUnchecked(start, end, joints);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Assign vertex indices, in row-major order, to every sample which has
+     * links and is neither a pass-through nor decimated.
+     *
+     * @return number of vertices assigned (&ge;0)
+     */
+    private int assignVertices() {
+        int result = 0;
+        int numSamples = size * size;
+        for (int sample = 0; sample < numSamples; sample++) {
+            int mask = links[sample];
+            if (mask == 0 || isPassThrough(mask) || isDecimated(sample)) {
+                vertexIndices[sample] = -1;
+            } else {
+                vertexIndices[sample] = result;
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Compute the link mask of every sample in a tile.
+     *
+     * @param tile index of the tile (&ge;0, &lt;numTiles)
+     */
+    private void computeLinks(int tile) {
+        int firstColumn = (tile % tilesPerRow) * tileSize;
+        int firstRow = (tile / tilesPerRow) * tileSize;
+        int endColumn = Math.min(firstColumn + tileSize, size);
+        int endRow = Math.min(firstRow + tileSize, size);
+        float straightRise = maxSlope * spacing;
+        float diagonalRise = straightRise * (float) Math.sqrt(2.0);
+
+        for (int row = firstRow; row < endRow; row++) {
+            for (int column = firstColumn; column < endColumn; column++) {
+                int sample = row * size + column;
+                float height = heights[sample];
+                int mask = 0;
+                for (int direction = 0; direction < numDirections;
+                        direction++) {
+                    int neighborColumn = column + columnSteps[direction];
+                    int neighborRow = row + rowSteps[direction];
+                    if (neighborColumn < 0 || neighborColumn >= size
+                            || neighborRow < 0 || neighborRow >= size) {
+                        continue;
+                    }
+                    int neighbor = neighborRow * size + neighborColumn;
+                    float rise = Math.abs(heights[neighbor] - height);
+                    float maxRise = (direction % 2 == 0)
+                            ? straightRise : diagonalRise;
+                    if (rise <= maxRise) {
+                        mask |= 1 << direction;
+                    }
+                }
+                links[sample] = mask;
+            }
+        }
+    }
+
+    /**
+     * Emit the arcs which originate from vertices in a tile. Each arc follows
+     * its direction through any pass-through or decimated samples (which
+     * become joints) until it reaches another vertex.
+     *
+     * @param tile index of the tile (&ge;0, &lt;numTiles)
+     */
+    private void emitArcs(int tile) {
+        int firstColumn = (tile % tilesPerRow) * tileSize;
+        int firstRow = (tile / tilesPerRow) * tileSize;
+        int endColumn = Math.min(firstColumn + tileSize, size);
+        int endRow = Math.min(firstRow + tileSize, size);
+        ArcBatch batch = new ArcBatch();
+
+        for (int row = firstRow; row < endRow; row++) {
+            for (int column = firstColumn; column < endColumn; column++) {
+                int sample = row * size + column;
+                int startIndex = vertexIndices[sample];
+                if (startIndex < 0) {
+                    continue;
+                }
+                int mask = links[sample];
+                for (int direction = 0; direction < numDirections;
+                        direction++) {
+                    if ((mask & (1 << direction)) == 0) {
+                        continue;
+                    }
+                    int step = rowSteps[direction] * size
+                            + columnSteps[direction];
+                    int numJoints = 0;
+                    int current = sample + step;
+                    while (vertexIndices[current] < 0) {
+                        assert (links[current] & (1 << direction)) != 0;
+                        batch.addJoint(current);
+                        numJoints++;
+                        current += step;
+                    }
+                    batch.addArc(startIndex, vertexIndices[current],
+                            numJoints);
+                }
+            }
+        }
+
+        batches[tile] = batch;
+    }
+
+    /**
+     * Test whether a sample should be dropped by decimation: it's open (it
+     * and all 8 of its neighbors have all 8 links) and it lies off the
+     * lattice. Any arc which reaches an open sample can continue straight
+     * through it, so dropping it never strands an arc.
+     *
+     * @param sample index of the sample (&ge;0, &lt;size*size)
+     * @return true if decimated, otherwise false
+     */
+    private boolean isDecimated(int sample) {
+        int column = sample % size;
+        int row = sample / size;
+        if (column % stride == 0 && row % stride == 0) {
+            return false;
+        }
+
+        int allLinks = (1 << numDirections) - 1;
+        if (links[sample] != allLinks) {
+            return false;
+        }
+        /*
+         * A sample with all 8 links can't lie on the edge of the map,
+         * so all its neighbors exist.
+         */
+        for (int direction = 0; direction < numDirections; direction++) {
+            int neighbor = sample + rowSteps[direction] * size
+                    + columnSteps[direction];
+            if (links[neighbor] != allLinks) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Test whether a link mask describes a pass-through sample: exactly 2
+     * links, in opposite directions.
+     *
+     * @param mask bitmask of link directions
+     * @return true if pass-through, otherwise false
+     */
+    private static boolean isPassThrough(int mask) {
+        for (int direction = 0; direction < numDirections / 2; direction++) {
+            int opposite = direction + numDirections / 2;
+            if (mask == ((1 << direction) | (1 << opposite))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Calculate the world coordinates of a sample.
+     *
+     * @param sample index of the sample (&ge;0, &lt;size*size)
+     * @param storeResult (modified if not null)
+     * @return world coordinates (either storeResult or a new instance)
+     */
+    private Vector3f locate(int sample, Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        float half = 0.5f * (size - 1);
+        float x = (sample % size - half) * spacing;
+        float z = (sample / size - half) * spacing;
+        result.set(x, heights[sample], z);
+
+        return result;
+    }
+    // *************************************************************************
+    // nested classes
+
+    /**
+     * Growable list of arcs emitted by a single tile, identified by vertex
+     * index, with joints identified by sample.
+     */
+    private static class ArcBatch {
+        /**
+         * vertex index of the destination of each arc
+         */
+        private int[] ends = new int[256];
+        /**
+         * number of joints in each arc
+         */
+        private int[] jointCounts = new int[256];
+        /**
+         * sample of each joint, in arc order
+         */
+        private int[] jointSamples = new int[64];
+        /**
+         * number of arcs in this batch (&ge;0)
+         */
+        private int numArcs = 0;
+        /**
+         * number of joints in this batch (&ge;0)
+         */
+        private int numJoints = 0;
+        /**
+         * vertex index of the origin of each arc
+         */
+        private int[] starts = new int[256];
+
+        /**
+         * Append an arc whose joints have already been appended.
+         *
+         * @param start vertex index of the origin (&ge;0)
+         * @param end vertex index of the destination (&ge;0)
+         * @param arcJoints number of joints in the arc (&ge;0)
+         */
+        void addArc(int start, int end, int arcJoints) {
+            if (numArcs == starts.length) {
+                int newCapacity = 2 * numArcs;
+                starts = Arrays.copyOf(starts, newCapacity);
+                ends = Arrays.copyOf(ends, newCapacity);
+                jointCounts = Arrays.copyOf(jointCounts, newCapacity);
+            }
+            starts[numArcs] = start;
+            ends[numArcs] = end;
+            jointCounts[numArcs] = arcJoints;
+            numArcs++;
+        }
+
+        /**
+         * Append a joint to the arc under construction.
+         *
+         * @param sample index of the joint's sample (&ge;0)
+         */
+        void addJoint(int sample) {
+            if (numJoints == jointSamples.length) {
+                jointSamples = Arrays.copyOf(jointSamples, 2 * numJoints);
+            }
+            jointSamples[numJoints] = sample;
+            numJoints++;
+        }
+    }
+
+    /**
+     * Fork-join task to process a range of tiles, in one of the 2 parallel
+     * phases of generation.
+     */
+    private static class TileTask
+            extends RecursiveAction {
+
+        /**
+         * version for serialization
+         */
+        final private static long serialVersionUID = 1L;
+        /**
+         * true to emit arcs, false to compute links
+         */
+        final private boolean emitArcs;
+        /**
+         * generator being executed
+         */
+        final private NavTerrainGenerator generator;
+        /**
+         * index of the 1st tile in the range
+         */
+        final private int firstTile;
+        /**
+         * index just past the last tile in the range
+         */
+        final private int endTile;
+
+        /**
+         * Instantiate a task for a range of tiles.
+         *
+         * @param generator generator being executed (not null)
+         * @param emitArcs true to emit arcs, false to compute links
+         * @param firstTile index of the 1st tile in the range
+         * @param endTile index just past the last tile in the range
+         */
+        TileTask(NavTerrainGenerator generator, boolean emitArcs,
+                int firstTile, int endTile) {
+            this.generator = generator;
+            this.emitArcs = emitArcs;
+            this.firstTile = firstTile;
+            this.endTile = endTile;
+        }
+
+        /**
+         * Process this task's range of tiles, splitting it if it contains
+         * more than one.
+         */
+        @Override
+        protected void compute() {
+            int count = endTile - firstTile;
+            if (count > 1) {
+                int middle = firstTile + count / 2;
+                invokeAll(new TileTask(generator, emitArcs, firstTile, middle),
+                        new TileTask(generator, emitArcs, middle, endTile));
+                return;
+            }
+
+            if (count == 1) {
+                if (emitArcs) {
+                    generator.emitArcs(firstTile);
+                } else {
+                    generator.computeLinks(firstTile);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
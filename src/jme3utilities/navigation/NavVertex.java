@@ -30,7 +30,7 @@ import com.jme3.export.JmeImporter;
 import com.jme3.export.Savable;
 import com.jme3.math.Vector3f;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -57,13 +57,47 @@ public class NavVertex
     // *************************************************************************
     // fields
     /**
-     * list of arcs which originate from this vertex
+     * arcs which originate from this vertex, sorted by increasing azimuth
+     * (clockwise as seen from above, only the 1st numArcs elements are valid)
      */
-    private ArrayList<NavArc> arcs = new ArrayList<>(4);
+    private NavArc[] arcs = new NavArc[4];
+    /**
+     * azimuth of each arc's starting direction (radians CW from +X, between
+     * -Pi and Pi), indexed by arc position
+     */
+    private float[] azimuths = new float[4];
+    /**
+     * X-component of each arc's horizontal starting direction, indexed by arc
+     * position
+     */
+    private float[] horizontalXs = new float[4];
+    /**
+     * Z-component of each arc's horizontal starting direction, indexed by arc
+     * position
+     */
+    private float[] horizontalZs = new float[4];
+    /**
+     * components of each arc's 3-D starting direction, packed as x, y, z
+     * triplets in arc-position order
+     */
+    private float[] startDirections = new float[12];
+    /**
+     * largest magnitude of the Y-component among the arcs' starting
+     * directions (&ge;0, &le;1)
+     */
+    private float maxAbsSlope = 0f;
+    /**
+     * number of arcs which originate from this vertex (&ge;0)
+     */
+    private int numArcs = 0;
     /**
      * textual description of this vertex (not null)
      */
     private String description;
+    /**
+     * index of this vertex in its graph (&ge;0) or -1 if not yet assigned
+     */
+    private int index = -1;
     /**
      * world coordinates of this vertex (not null)
      */
@@ -87,8 +121,9 @@ public class NavVertex
     // new methods exposed
 
     /**
-     * Create a straight arc and add it to this vertex. Arcs should ideally be
-     * added in left-to-right order (clockwise as seen from above).
+     * Create a straight arc and add it to this vertex. Arcs are kept in
+     * left-to-right order (clockwise as seen from above) regardless of the
+     * order in which they're added.
      *
      * @param endpoint destination vertex (not null, not this)
      * @return new instance
@@ -100,7 +135,7 @@ public class NavVertex
         }
 
         NavArc newArc = new NavArc(this, endpoint);
-        arcs.add(newArc);
+        insert(newArc);
 
         return newArc;
     }
@@ -121,11 +156,43 @@ public class NavVertex
         Validate.nonNull(joints, "joints");
 
         NavArc newArc = new NavArc(this, endpoint, joints);
-        arcs.add(newArc);
+        insert(newArc);
 
         return newArc;
     }
 
+    /**
+     * Compute the straight-line distance from this vertex to another vertex.
+     *
+     * @param otherVertex (not null, unaffected)
+     * @return distance (in world units, &ge;0)
+     */
+    public float distance(NavVertex otherVertex) {
+        Validate.nonNull(otherVertex, "other vertex");
+
+        float result = location.distance(otherVertex.location);
+        return result;
+    }
+
+    /**
+     * Increase the capacity of this vertex's arc arrays, if necessary, so
+     * that the specified number of arcs fit without further growth. Useful
+     * when the out-degree is known in advance, as during bulk loading.
+     *
+     * @param minCapacity number of arcs to provide for (&ge;0)
+     */
+    void ensureArcCapacity(int minCapacity) {
+        assert minCapacity >= 0 : minCapacity;
+
+        if (minCapacity > arcs.length) {
+            arcs = Arrays.copyOf(arcs, minCapacity);
+            azimuths = Arrays.copyOf(azimuths, minCapacity);
+            horizontalXs = Arrays.copyOf(horizontalXs, minCapacity);
+            horizontalZs = Arrays.copyOf(horizontalZs, minCapacity);
+            startDirections = Arrays.copyOf(startDirections, 3 * minCapacity);
+        }
+    }
+
     /**
      * Find the arc with a specified endpoint.
      *
@@ -138,7 +205,8 @@ public class NavVertex
             throw new IllegalArgumentException("endpoint should be distinct");
         }
 
-        for (NavArc arc : arcs) {
+        for (int position = 0; position < numArcs; position++) {
+            NavArc arc = arcs[position];
             if (arc.getToVertex() == endpoint) {
                 return arc;
             }
@@ -148,10 +216,12 @@ public class NavVertex
 
     /**
      * Find the arc whose starting direction is most similar to the specified
-     * direction.
+     * direction. Arcs are visited outward from the nearest azimuth, and the
+     * walk stops as soon as no remaining arc could do better, so for nearly
+     * level arcs only a few are examined.
      *
      * @param direction not null, positive length, unaffected
-     * @return pre-existing instance
+     * @return pre-existing instance, or null if this vertex has no arcs
      */
     public NavArc findLeastTurn(Vector3f direction) {
         Validate.nonNull(direction, "direction");
@@ -160,14 +230,47 @@ public class NavVertex
             throw new IllegalArgumentException(
                     "direction should have positive length");
         }
+        if (numArcs == 0) {
+            return null;
+        }
+        /*
+         * An arc's dot product can't exceed the dot product of its horizontal
+         * direction with the horizontal part of the input direction (when
+         * positive) plus this slope allowance.
+         */
+        float slopeBound = maxAbsSlope * Math.abs(direction.y);
+        float azimuth = (float) Math.atan2(direction.z, direction.x);
+        int right = MyMath.modulo(ceilingPosition(azimuth), numArcs);
+        int left = MyMath.modulo(right - 1, numArcs);
 
         NavArc result = null;
-        float maxDot = -2f * direction.length();
-        for (NavArc arc : arcs) {
-            Vector3f arcDirection = arc.getStartDirection();
-            float dot = arcDirection.dot(direction);
+        float maxDot = Float.NEGATIVE_INFINITY;
+        for (int numVisited = 0; numVisited < numArcs; numVisited++) {
+            float leftHorizontal = horizontalXs[left] * direction.x
+                    + horizontalZs[left] * direction.z;
+            float rightHorizontal = horizontalXs[right] * direction.x
+                    + horizontalZs[right] * direction.z;
+            int position;
+            float horizontalDot;
+            if (rightHorizontal >= leftHorizontal) {
+                position = right;
+                horizontalDot = rightHorizontal;
+                right = MyMath.modulo(right + 1, numArcs);
+            } else {
+                position = left;
+                horizontalDot = leftHorizontal;
+                left = MyMath.modulo(left - 1, numArcs);
+            }
+            if (Math.max(horizontalDot, 0f) + slopeBound < maxDot) {
+                break;
+            }
+
+            int i0 = 3 * position;
+            float dot = startDirections[i0] * direction.x
+                    + startDirections[i0 + 1] * direction.y
+                    + startDirections[i0 + 2] * direction.z;
             if (dot > maxDot) {
-                result = arc;
+                result = arcs[position];
                 maxDot = dot;
             }
         }
@@ -176,11 +279,12 @@ public class NavVertex
     }
 
     /**
-     * Find the arc whose starting direction is most similar to the specified
-     * direction.
+     * Find the arc whose horizontal starting direction is most similar to the
+     * specified direction. Since horizontal directions are unit vectors, this
+     * is the arc with the nearest azimuth, found by binary search.
      *
      * @param direction not null, positive length
-     * @return pre-existing instance
+     * @return pre-existing instance, or null if this vertex has no arcs
      */
     public NavArc findLeastTurn(VectorXZ direction) {
         Validate.nonNull(direction, "direction");
@@ -189,24 +293,28 @@ public class NavVertex
             throw new IllegalArgumentException(
                     "direction should have positive length");
         }
-
-        NavArc result = null;
-        float maxDot = -2f * direction.length();
-        for (NavArc arc : arcs) {
-            VectorXZ horizontalDirection = arc.getHorizontalDirection();
-            float dot = horizontalDirection.dot(direction);
-            if (dot > maxDot) {
-                result = arc;
-                maxDot = dot;
-            }
+        if (numArcs == 0) {
+            return null;
         }
+        /*
+         * Only the arcs on either side of the azimuth need to be compared.
+         */
+        float x = direction.getX();
+        float z = direction.getZ();
+        float azimuth = (float) Math.atan2(z, x);
+        int right = MyMath.modulo(ceilingPosition(azimuth), numArcs);
+        int left = MyMath.modulo(right - 1, numArcs);
+        float leftDot = horizontalXs[left] * x + horizontalZs[left] * z;
+        float rightDot = horizontalXs[right] * x + horizontalZs[right] * z;
+        int position = (leftDot > rightDot) ? left : right;
+        NavArc result = arcs[position];
 
         return result;
     }
 
     /**
      * Find the arc at a specified list-offset relative to the specified base
-     * arc.
+     * arc. Positive offsets turn clockwise as seen from above.
      *
      * @param baseArc (not null, from this vertex)
      * @param listOffset
@@ -215,25 +323,36 @@ public class NavVertex
     public NavArc findNextArc(NavArc baseArc, int listOffset) {
         Validate.nonNull(baseArc, "base arc");
 
-        int baseIndex = arcs.indexOf(baseArc);
+        int baseIndex = findPosition(baseArc);
         assert baseIndex != -1 : baseArc;
-        int limit = arcs.size();
-        int index = MyMath.modulo(baseIndex + listOffset, limit);
-        NavArc result = arcs.get(index);
+        int index = MyMath.modulo(baseIndex + listOffset, numArcs);
+        NavArc result = arcs[index];
 
         return result;
     }
 
     /**
-     * Copy the list of arcs which originate from this vertex.
+     * Access the indexed arc which originates from this vertex.
+     *
+     * @param arcIndex index into the list of arcs (&ge;0, &lt;numArcs)
+     * @return pre-existing instance
+     */
+    NavArc getArc(int arcIndex) {
+        assert arcIndex >= 0 : arcIndex;
+        assert arcIndex < numArcs : arcIndex;
+
+        NavArc result = arcs[arcIndex];
+        return result;
+    }
+
+    /**
+     * Copy the list of arcs which originate from this vertex, in clockwise
+     * order as seen from above.
      *
      * @return new array of existing instances
      */
     public NavArc[] getArcs() {
-        int size = arcs.size();
-        NavArc[] result = new NavArc[size];
-        arcs.toArray(result);
-
+        NavArc[] result = Arrays.copyOf(arcs, numArcs);
         return result;
     }
 
@@ -247,6 +366,15 @@ public class NavVertex
         return description;
     }
 
+    /**
+     * Read the index of this vertex in its graph.
+     *
+     * @return index (&ge;0) or -1 if not yet assigned
+     */
+    int getIndex() {
+        return index;
+    }
+
     /**
      * Copy the world coordinates of the vertex.
      *
@@ -262,8 +390,7 @@ public class NavVertex
      * @return number of arcs (&ge;0)
      */
     public int getNumArcs() {
-        int result = arcs.size();
-        return result;
+        return numArcs;
     }
 
     /**
@@ -276,14 +403,33 @@ public class NavVertex
         assert endpoint != null;
         assert endpoint != this : endpoint;
 
-        for (NavArc arc : arcs) {
-            if (arc.getToVertex() == endpoint) {
+        for (int position = 0; position < numArcs; position++) {
+            if (arcs[position].getToVertex() == endpoint) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Remove the specified arc, matching by identity rather than by equals(),
+     * so that parallel arcs to the same endpoint are told apart.
+     *
+     * @param arc arc to remove (not null)
+     * @return true if successful, false if not found
+     */
+    boolean removeArc(NavArc arc) {
+        assert arc != null;
+
+        int position = findPosition(arc);
+        if (position == -1) {
+            return false;
+        }
+        removeAt(position);
+
+        return true;
+    }
+
     /**
      * Remove the arc with the specified endpoint, if any.
      *
@@ -294,14 +440,24 @@ public class NavVertex
         assert endpoint != null;
         assert endpoint != this : endpoint;
 
-        for (NavArc arc : arcs) {
-            if (arc.getToVertex() == endpoint) {
-                arcs.remove(arc);
+        for (int position = 0; position < numArcs; position++) {
+            if (arcs[position].getToVertex() == endpoint) {
+                removeAt(position);
                 return true;
             }
         }
         return false;
     }
+
+    /**
+     * Alter the index of this vertex in its graph.
+     *
+     * @param newIndex (&ge;0)
+     */
+    void setIndex(int newIndex) {
+        assert newIndex >= 0 : newIndex;
+        index = newIndex;
+    }
     // *************************************************************************
     // Comparable methods
 
@@ -391,4 +547,123 @@ public class NavVertex
             throws IOException {
         throw new UnsupportedOperationException("Not supported yet.");
     }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the position of the first arc whose azimuth is not less than the
+     * specified value.
+     *
+     * @param azimuth radians CW from +X
+     * @return position (&ge;0, &le;numArcs)
+     */
+    private int ceilingPosition(float azimuth) {
+        int low = 0;
+        int high = numArcs;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (azimuths[middle] < azimuth) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Find the position of the specified arc in the sorted arrays.
+     *
+     * @param arc (not null)
+     * @return position (&ge;0, &lt;numArcs) or -1 if not found
+     */
+    private int findPosition(NavArc arc) {
+        assert arc != null;
+
+        float azimuth = arc.getHorizontalDirection().azimuth();
+        for (int position = ceilingPosition(azimuth); position < numArcs;
+                position++) {
+            if (arcs[position] == arc) {
+                return position;
+            } else if (azimuths[position] > azimuth) {
+                break;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Insert a new arc into the sorted arrays, growing them if necessary.
+     *
+     * @param newArc (not null, from this vertex)
+     */
+    private void insert(NavArc newArc) {
+        assert newArc != null;
+        assert newArc.getFromVertex() == this : newArc;
+
+        if (numArcs == arcs.length) {
+            ensureArcCapacity(2 * numArcs);
+        }
+
+        VectorXZ horizontal = newArc.getHorizontalDirection();
+        float azimuth = horizontal.azimuth();
+        int position = ceilingPosition(azimuth);
+        /*
+         * Keep arcs with equal azimuths in insertion order.
+         */
+        while (position < numArcs && azimuths[position] == azimuth) {
+            position++;
+        }
+        int numMoved = numArcs - position;
+        System.arraycopy(arcs, position, arcs, position + 1, numMoved);
+        System.arraycopy(azimuths, position, azimuths, position + 1, numMoved);
+        System.arraycopy(horizontalXs, position, horizontalXs, position + 1,
+                numMoved);
+        System.arraycopy(horizontalZs, position, horizontalZs, position + 1,
+                numMoved);
+        System.arraycopy(startDirections, 3 * position, startDirections,
+                3 * position + 3, 3 * numMoved);
+
+        Vector3f direction = newArc.getStartDirection();
+        arcs[position] = newArc;
+        azimuths[position] = azimuth;
+        horizontalXs[position] = horizontal.getX();
+        horizontalZs[position] = horizontal.getZ();
+        startDirections[3 * position] = direction.x;
+        startDirections[3 * position + 1] = direction.y;
+        startDirections[3 * position + 2] = direction.z;
+        maxAbsSlope = Math.max(maxAbsSlope, Math.abs(direction.y));
+        numArcs++;
+    }
+
+    /**
+     * Remove the arc at the specified position from the sorted arrays.
+     *
+     * @param position (&ge;0, &lt;numArcs)
+     */
+    private void removeAt(int position) {
+        assert position >= 0 : position;
+        assert position < numArcs : position;
+
+        int numMoved = numArcs - position - 1;
+        System.arraycopy(arcs, position + 1, arcs, position, numMoved);
+        System.arraycopy(azimuths, position + 1, azimuths, position, numMoved);
+        System.arraycopy(horizontalXs, position + 1, horizontalXs, position,
+                numMoved);
+        System.arraycopy(horizontalZs, position + 1, horizontalZs, position,
+                numMoved);
+        System.arraycopy(startDirections, 3 * position + 3, startDirections,
+                3 * position, 3 * numMoved);
+        numArcs--;
+        arcs[numArcs] = null;
+        /*
+         * The slope bound stays valid (if loose) after a removal, so it's
+         * only recomputed once the vertex has no arcs left.
+         */
+        if (numArcs == 0) {
+            maxAbsSlope = 0f;
+        }
+    }
 }
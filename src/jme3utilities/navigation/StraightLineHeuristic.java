@@ -0,0 +1,62 @@
+/*
+ Copyright (c) 2014, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Stephen Gold's name may not be used to endorse or promote products
+ derived from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL STEPHEN GOLD BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.navigation;
+
+import java.util.logging.Logger;
+
+/**
+ * A* heuristic which estimates path length by straight-line (Euclidean)
+ * distance. Since no arc is shorter than the distance between its endpoints,
+ * this heuristic never overestimates.
+ *
+ * @author Stephen Gold <sgold@sonic.net>
+ */
+public class StraightLineHeuristic
+        implements NavHeuristic {
+    // *************************************************************************
+    // constants
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger =
+            Logger.getLogger(StraightLineHeuristic.class.getName());
+    // *************************************************************************
+    // NavHeuristic methods
+
+    /**
+     * Estimate the path length (cost) from one vertex to another.
+     *
+     * @param fromVertex vertex being evaluated (not null)
+     * @param goalVertex goal of the search (not null)
+     * @return straight-line distance (&ge;0)
+     */
+    @Override
+    public float estimate(NavVertex fromVertex, NavVertex goalVertex) {
+        float result = fromVertex.distance(goalVertex);
+        return result;
+    }
+}
\ No newline at end of file
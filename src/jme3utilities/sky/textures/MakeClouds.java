@@ -36,7 +36,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Misc;
 import jme3utilities.MyString;
-import jme3utilities.math.Noise;
+import jme3utilities.math.FbmField;
 import jme3utilities.math.Perlin2;
 
 /**
@@ -147,17 +147,17 @@ public class MakeClouds {
         float gain = 0.45f;
         float lacunarity = 2f;
         /*
-         * Generate FBM noise and store it in a 2-D array.
+         * Generate FBM noise in parallel tiles, then store it in a 2-D array.
          */
+        int tileSize = 128;
+        FbmField fbm = new FbmField(generator, numOctaves, fundamental,
+                gain, lacunarity, numRows, tileSize, 0);
+        float[] field = fbm.sample(0, 0, numRows, numRows, null);
         samples = new float[numRows][];
         for (int x = 0; x < numRows; x++) {
-            float u = ((float) x) / numRows;
             samples[x] = new float[numRows];
             for (int y = 0; y < numRows; y++) {
-                float v = ((float) y) / numRows;
-                float n = Noise.fbmNoise(generator, u, v, numOctaves,
-                        fundamental, gain, lacunarity);
-                samples[x][y] = n;
+                samples[x][y] = field[y * numRows + x];
             }
         }
         /*